@@ -0,0 +1,97 @@
+#!/usr/bin/env python
+# Compares JMH results with a stored baseline. Both files must be written by JMH with "-rf json". Results are matched by
+# benchmark name and parameters. The primary score and, if the run used "-prof gc", the normalized allocation rate
+# (bytes per operation) are compared. The exit code is 1 if any benchmark regressed by more than the threshold.
+#
+# Usage:
+#   python compare.py [--threshold PERCENT] [--update] baseline.json current.json
+#
+# With --update the current results are copied over the baseline after the comparison.
+
+from __future__ import print_function
+
+import json
+import shutil
+import sys
+
+
+def load(path):
+	with open(path) as f:
+		results = {}
+		for entry in json.load(f):
+			params = entry.get("params") or {}
+			key = entry["benchmark"] + "".join(sorted(" %s=%s" % (k, v) for k, v in params.items()))
+			primary = entry["primaryMetric"]
+			alloc = None
+			for name, metric in (entry.get("secondaryMetrics") or {}).items():
+				if name.endswith("gc.alloc.rate.norm"):
+					alloc = metric["score"]
+			results[key] = (primary["score"], primary["scoreUnit"], entry["mode"], alloc)
+		return results
+
+
+def change(baseline, current):
+	if baseline == 0:
+		return 0.0 if current == 0 else float("inf")
+	return (current - baseline) * 100.0 / baseline
+
+
+def main(args):
+	threshold = 5.0
+	update = False
+	paths = []
+	i = 0
+	while i < len(args):
+		if args[i] == "--threshold":
+			i += 1
+			threshold = float(args[i])
+		elif args[i] == "--update":
+			update = True
+		else:
+			paths.append(args[i])
+		i += 1
+	if len(paths) != 2:
+		print("Usage: compare.py [--threshold PERCENT] [--update] baseline.json current.json")
+		return 2
+
+	baseline = load(paths[0])
+	current = load(paths[1])
+	regressions = 0
+	print("%-100s %14s %14s %9s %12s %12s %9s" % ("Benchmark", "Baseline", "Current", "Change", "Alloc base", "Alloc now",
+		"Change"))
+	for key in sorted(current):
+		score, unit, mode, alloc = current[key]
+		if key not in baseline:
+			print("%-100s %14s %14.3f %9s" % (key, "-", score, "new"))
+			continue
+		base_score, base_unit, base_mode, base_alloc = baseline[key]
+		if base_unit != unit:
+			print("%-100s units differ: %s vs %s" % (key, base_unit, unit))
+			continue
+		score_change = change(base_score, score)
+		# Throughput is better when higher, all other modes measure time and are better when lower.
+		regressed = score_change < -threshold if mode == "thrpt" else score_change > threshold
+		line = "%-100s %14.3f %14.3f %+8.1f%%" % (key, base_score, score, score_change)
+		if alloc is not None and base_alloc is not None:
+			alloc_change = change(base_alloc, alloc)
+			# Allocation is compared in bytes, a few bytes of noise per operation are ignored.
+			if alloc - base_alloc > 16 and alloc_change > threshold: regressed = True
+			line += " %12.1f %12.1f %+8.1f%%" % (base_alloc, alloc, alloc_change)
+		if regressed:
+			regressions += 1
+			line += "  REGRESSION"
+		print(line)
+	for key in sorted(baseline):
+		if key not in current: print("%-100s %14.3f %14s %9s" % (key, baseline[key][0], "-", "missing"))
+
+	if update:
+		shutil.copyfile(paths[1], paths[0])
+		print("Baseline updated: " + paths[0])
+	if regressions > 0:
+		print("%d benchmark(s) regressed by more than %.1f%%." % (regressions, threshold))
+		return 1
+	return 0
+
+
+if __name__ == "__main__":
+	sys.exit(main(sys.argv[1:]))
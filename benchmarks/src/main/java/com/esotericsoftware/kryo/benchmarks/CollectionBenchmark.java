@@ -0,0 +1,121 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import com.esotericsoftware.kryo.serializers.MapSerializer;
+
+/** Measures {@link CollectionSerializer} and {@link MapSerializer} with the common JDK collection types. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionBenchmark {
+	@Benchmark
+	public int write (CollectionState state) {
+		Output output = state.output;
+		output.setPosition(0);
+		state.kryo.writeClassAndObject(output, state.object);
+		return output.position();
+	}
+
+	@Benchmark
+	public Object read (CollectionState state) {
+		Input input = state.input;
+		input.setPosition(0);
+		return state.kryo.readClassAndObject(input);
+	}
+
+	@State(Scope.Thread)
+	static public class CollectionState {
+		@Param({"ArrayList", "LinkedList", "HashSet", "HashMap", "TreeMap"}) public String collection;
+		@Param({"10", "1000"}) public int size;
+		@Param({"true", "false"}) public boolean references;
+
+		public Kryo kryo;
+		public Object object;
+		public Output output = new Output(1024, -1);
+		public Input input;
+
+		@Setup
+		public void setup () {
+			kryo = new Kryo();
+			kryo.setReferences(references);
+			kryo.register(ArrayList.class);
+			kryo.register(LinkedList.class);
+			kryo.register(HashSet.class);
+			kryo.register(HashMap.class);
+			kryo.register(TreeMap.class);
+
+			if (collection.equals("ArrayList"))
+				object = fill(new ArrayList(size));
+			else if (collection.equals("LinkedList"))
+				object = fill(new LinkedList());
+			else if (collection.equals("HashSet"))
+				object = fill(new HashSet(size * 2));
+			else if (collection.equals("HashMap"))
+				object = fill(new HashMap(size * 2));
+			else if (collection.equals("TreeMap"))
+				object = fill(new TreeMap());
+			else
+				throw new IllegalArgumentException("Unknown collection: " + collection);
+
+			kryo.writeClassAndObject(output, object);
+			input = new Input(output.toBytes());
+		}
+
+		private Collection fill (Collection collection) {
+			for (int i = 0; i < size; i++)
+				collection.add(i * 31);
+			return collection;
+		}
+
+		private Map fill (Map map) {
+			for (int i = 0; i < size; i++)
+				map.put("key" + i, i * 31);
+			return map;
+		}
+	}
+}
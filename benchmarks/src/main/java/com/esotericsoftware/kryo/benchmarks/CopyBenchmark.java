@@ -0,0 +1,89 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.benchmarks.data.Sample;
+
+/** Measures {@link Kryo#copy(Object)} and {@link Kryo#copyShallow(Object)} of a flat object and an object graph. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CopyBenchmark {
+	@Benchmark
+	public Object copy (CopyState state) {
+		return state.kryo.copy(state.object);
+	}
+
+	@Benchmark
+	public Object copyShallow (CopyState state) {
+		return state.kryo.copyShallow(state.object);
+	}
+
+	@State(Scope.Thread)
+	static public class CopyState {
+		@Param({"sample", "graph"}) public String objectType;
+		@Param({"true", "false"}) public boolean copyReferences;
+
+		public Kryo kryo;
+		public Object object;
+
+		@Setup
+		public void setup () {
+			kryo = new Kryo();
+			kryo.setCopyReferences(copyReferences);
+			kryo.register(Sample.class);
+			kryo.register(ArrayList.class);
+			kryo.register(HashMap.class);
+
+			if (objectType.equals("sample"))
+				object = new Sample().populate();
+			else if (objectType.equals("graph")) {
+				HashMap<String, ArrayList<Sample>> graph = new HashMap();
+				for (int i = 0; i < 10; i++) {
+					ArrayList<Sample> list = new ArrayList();
+					for (int ii = 0; ii < 10; ii++)
+						list.add(new Sample().populate());
+					graph.put("list" + i, list);
+				}
+				object = graph;
+			} else
+				throw new IllegalArgumentException("Unknown object type: " + objectType);
+		}
+	}
+}
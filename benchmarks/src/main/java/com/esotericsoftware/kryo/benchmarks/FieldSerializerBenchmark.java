@@ -0,0 +1,122 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.benchmarks.data.PrivateSample;
+import com.esotericsoftware.kryo.benchmarks.data.Sample;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.CompatibleFieldSerializer;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.esotericsoftware.kryo.serializers.TaggedFieldSerializer;
+
+/** Measures {@link FieldSerializer} with each of its field access backends, and the {@link CompatibleFieldSerializer} and
+ * {@link TaggedFieldSerializer} subclasses. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldSerializerBenchmark {
+	@Benchmark
+	public int write (SerializerState state) {
+		Output output = state.output;
+		output.setPosition(0);
+		state.kryo.writeObject(output, state.object);
+		return output.position();
+	}
+
+	@Benchmark
+	public Object read (SerializerState state) {
+		Input input = state.input;
+		input.setPosition(0);
+		return state.kryo.readObject(input, state.type);
+	}
+
+	@Benchmark
+	public Object roundTrip (SerializerState state) {
+		Output output = state.output;
+		output.setPosition(0);
+		state.kryo.writeObject(output, state.object);
+		Input input = state.roundTripInput;
+		input.setBuffer(output.getBuffer(), 0, output.position());
+		return state.kryo.readObject(input, state.type);
+	}
+
+	@State(Scope.Thread)
+	static public class SerializerState {
+		/** "field-reflection" uses private fields, so ReflectASM can't be used and FieldSerializer uses reflection. */
+		@Param({"field-reflection", "field-asm", "field-unsafe", "compatible", "compatible-length", "tagged"}) public String serializer;
+
+		public Kryo kryo;
+		public Object object;
+		public Class type;
+		public Output output = new Output(1024, -1);
+		public Input input;
+		public Input roundTripInput = new Input();
+
+		@Setup
+		public void setup () {
+			kryo = new Kryo();
+			kryo.setReferences(false);
+			object = new Sample().populate();
+			if (serializer.equals("field-reflection")) {
+				kryo.getFieldSerializerConfig().setUseAsm(true);
+				object = new PrivateSample().populate();
+				kryo.register(PrivateSample.class);
+			} else if (serializer.equals("field-asm")) {
+				kryo.getFieldSerializerConfig().setUseAsm(true);
+				kryo.register(Sample.class);
+			} else if (serializer.equals("field-unsafe")) {
+				kryo.getFieldSerializerConfig().setUseAsm(false);
+				kryo.register(Sample.class);
+			} else if (serializer.equals("compatible")) {
+				kryo.register(Sample.class, new CompatibleFieldSerializer(kryo, Sample.class));
+			} else if (serializer.equals("compatible-length")) {
+				kryo.getCompatibleFieldSerializerConfig().setChunkedEncoding(false);
+				kryo.register(Sample.class, new CompatibleFieldSerializer(kryo, Sample.class));
+			} else if (serializer.equals("tagged")) {
+				kryo.register(Sample.class, new TaggedFieldSerializer(kryo, Sample.class));
+			} else
+				throw new IllegalArgumentException("Unknown serializer: " + serializer);
+			kryo.register(int[].class);
+			kryo.register(long[].class);
+			type = object.getClass();
+
+			kryo.writeObject(output, object);
+			input = new Input(output.toBytes());
+		}
+	}
+}
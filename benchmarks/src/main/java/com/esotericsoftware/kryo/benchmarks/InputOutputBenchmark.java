@@ -0,0 +1,233 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.io.UnsafeInput;
+import com.esotericsoftware.kryo.io.UnsafeOutput;
+
+/** Measures the primitive read and write methods of {@link Output}, {@link UnsafeOutput} and {@link ByteBufferOutput} and their
+ * {@link Input} counterparts. Each invocation processes {@link #COUNT} values, the scores are reported per value. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputOutputBenchmark {
+	static final int COUNT = 1024;
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void writeVarInt (WriteState state) {
+		Output output = state.output;
+		output.setPosition(0);
+		int[] values = state.ints;
+		for (int i = 0; i < COUNT; i++)
+			output.writeVarInt(values[i], true);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void writeInt (WriteState state) {
+		Output output = state.output;
+		output.setPosition(0);
+		int[] values = state.ints;
+		for (int i = 0; i < COUNT; i++)
+			output.writeInt(values[i]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void writeVarLong (WriteState state) {
+		Output output = state.output;
+		output.setPosition(0);
+		long[] values = state.longs;
+		for (int i = 0; i < COUNT; i++)
+			output.writeVarLong(values[i], true);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void writeLong (WriteState state) {
+		Output output = state.output;
+		output.setPosition(0);
+		long[] values = state.longs;
+		for (int i = 0; i < COUNT; i++)
+			output.writeLong(values[i]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void writeString (WriteState state) {
+		Output output = state.output;
+		output.setPosition(0);
+		String[] values = state.strings;
+		for (int i = 0; i < COUNT; i++)
+			output.writeString(values[i]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readVarInt (ReadState state, Blackhole blackhole) {
+		Input input = state.varIntInput;
+		input.setPosition(0);
+		for (int i = 0; i < COUNT; i++)
+			blackhole.consume(input.readVarInt(true));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readInt (ReadState state, Blackhole blackhole) {
+		Input input = state.intInput;
+		input.setPosition(0);
+		for (int i = 0; i < COUNT; i++)
+			blackhole.consume(input.readInt());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readVarLong (ReadState state, Blackhole blackhole) {
+		Input input = state.varLongInput;
+		input.setPosition(0);
+		for (int i = 0; i < COUNT; i++)
+			blackhole.consume(input.readVarLong(true));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readLong (ReadState state, Blackhole blackhole) {
+		Input input = state.longInput;
+		input.setPosition(0);
+		for (int i = 0; i < COUNT; i++)
+			blackhole.consume(input.readLong());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readString (ReadState state, Blackhole blackhole) {
+		Input input = state.stringInput;
+		input.setPosition(0);
+		for (int i = 0; i < COUNT; i++)
+			blackhole.consume(input.readString());
+	}
+
+	static Output newOutput (String type, int bufferSize) {
+		if (type.equals("Output")) return new Output(bufferSize, -1);
+		if (type.equals("UnsafeOutput")) return new UnsafeOutput(bufferSize, -1);
+		if (type.equals("ByteBufferOutput")) return new ByteBufferOutput(bufferSize, -1);
+		throw new IllegalArgumentException("Unknown output type: " + type);
+	}
+
+	static Input newInput (String type, byte[] bytes) {
+		if (type.equals("Output")) return new Input(bytes);
+		if (type.equals("UnsafeOutput")) return new UnsafeInput(bytes);
+		if (type.equals("ByteBufferOutput")) return new ByteBufferInput(bytes);
+		throw new IllegalArgumentException("Unknown output type: " + type);
+	}
+
+	static public class Values {
+		/** Values are spread over all varint lengths, so no single branch of the encoding dominates. */
+		public int[] ints = new int[COUNT];
+		public long[] longs = new long[COUNT];
+		public String[] strings = new String[COUNT];
+
+		void createValues () {
+			Random random = new Random(42);
+			for (int i = 0; i < COUNT; i++) {
+				ints[i] = random.nextInt() >>> random.nextInt(32);
+				longs[i] = random.nextLong() >>> random.nextInt(64);
+				int length = random.nextInt(40);
+				StringBuilder buffer = new StringBuilder(length);
+				for (int ii = 0; ii < length; ii++)
+					buffer.append((char)(i % 10 == 0 ? '\u0100' + ii : 'a' + random.nextInt(26)));
+				strings[i] = buffer.toString();
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	static public class WriteState extends Values {
+		@Param({"Output", "UnsafeOutput", "ByteBufferOutput"}) public String type;
+
+		public Output output;
+
+		@Setup
+		public void setup () {
+			createValues();
+			output = newOutput(type, COUNT * 128);
+		}
+	}
+
+	@State(Scope.Thread)
+	static public class ReadState extends Values {
+		@Param({"Output", "UnsafeOutput", "ByteBufferOutput"}) public String type;
+
+		public Input varIntInput, intInput, varLongInput, longInput, stringInput;
+
+		@Setup
+		public void setup () {
+			createValues();
+			Output output = newOutput(type, COUNT * 128);
+			for (int i = 0; i < COUNT; i++)
+				output.writeVarInt(ints[i], true);
+			varIntInput = newInput(type, output.toBytes());
+
+			output.clear();
+			for (int i = 0; i < COUNT; i++)
+				output.writeInt(ints[i]);
+			intInput = newInput(type, output.toBytes());
+
+			output.clear();
+			for (int i = 0; i < COUNT; i++)
+				output.writeVarLong(longs[i], true);
+			varLongInput = newInput(type, output.toBytes());
+
+			output.clear();
+			for (int i = 0; i < COUNT; i++)
+				output.writeLong(longs[i]);
+			longInput = newInput(type, output.toBytes());
+
+			output.clear();
+			for (int i = 0; i < COUNT; i++)
+				output.writeString(strings[i]);
+			stringInput = newInput(type, output.toBytes());
+		}
+	}
+}
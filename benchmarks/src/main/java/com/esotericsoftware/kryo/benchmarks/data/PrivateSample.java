@@ -0,0 +1,50 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.benchmarks.data;
+
+/** The same fields as {@link Sample}, but private, so {@link com.esotericsoftware.kryo.serializers.FieldSerializer} falls back to
+ * reflection when ASM is enabled. */
+public class PrivateSample {
+	private int intValue;
+	private long longValue;
+	private float floatValue;
+	private double doubleValue;
+	private short shortValue;
+	private boolean booleanValue;
+	private String text;
+	private Integer boxedInt;
+	private int[] ints;
+	private long[] longs;
+
+	public PrivateSample populate () {
+		Sample sample = new Sample().populate();
+		intValue = sample.intValue;
+		longValue = sample.longValue;
+		floatValue = sample.floatValue;
+		doubleValue = sample.doubleValue;
+		shortValue = sample.shortValue;
+		booleanValue = sample.booleanValue;
+		text = sample.text;
+		boxedInt = sample.boxedInt;
+		ints = sample.ints;
+		longs = sample.longs;
+		return this;
+	}
+}
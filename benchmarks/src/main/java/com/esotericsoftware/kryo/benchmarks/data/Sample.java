@@ -0,0 +1,69 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.benchmarks.data;
+
+import java.util.Arrays;
+
+import com.esotericsoftware.kryo.serializers.TaggedFieldSerializer.Tag;
+
+/** A flat object with public fields, so {@link com.esotericsoftware.kryo.serializers.FieldSerializer} can use ReflectASM or
+ * Unsafe to access them. The tags are ignored by all serializers except
+ * {@link com.esotericsoftware.kryo.serializers.TaggedFieldSerializer}. */
+public class Sample {
+	@Tag(0) public int intValue;
+	@Tag(1) public long longValue;
+	@Tag(2) public float floatValue;
+	@Tag(3) public double doubleValue;
+	@Tag(4) public short shortValue;
+	@Tag(5) public boolean booleanValue;
+	@Tag(6) public String text;
+	@Tag(7) public Integer boxedInt;
+	@Tag(8) public int[] ints;
+	@Tag(9) public long[] longs;
+
+	public Sample populate () {
+		intValue = 123;
+		longValue = 1234567890123L;
+		floatValue = 12.345f;
+		doubleValue = 1234.5678;
+		shortValue = 12;
+		booleanValue = true;
+		text = "Sample text for the benchmark.";
+		boxedInt = 456;
+		ints = new int[] {1, 20, 300, 4000, 50000, 600000, 7000000, 80000000};
+		longs = new long[] {1L, 300L, 70000L, 800000000L, 1L << 40, 1L << 50, 1L << 60, Long.MAX_VALUE};
+		return this;
+	}
+
+	public boolean equals (Object obj) {
+		if (this == obj) return true;
+		if (obj == null || getClass() != obj.getClass()) return false;
+		Sample other = (Sample)obj;
+		return intValue == other.intValue && longValue == other.longValue && floatValue == other.floatValue
+			&& doubleValue == other.doubleValue && shortValue == other.shortValue && booleanValue == other.booleanValue
+			&& (text == null ? other.text == null : text.equals(other.text))
+			&& (boxedInt == null ? other.boxedInt == null : boxedInt.equals(other.boxedInt)) && Arrays.equals(ints, other.ints)
+			&& Arrays.equals(longs, other.longs);
+	}
+
+	public int hashCode () {
+		return intValue * 31 + (int)longValue;
+	}
+}
@@ -0,0 +1,377 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+import com.esotericsoftware.kryo.GenerateSerializer;
+import com.esotericsoftware.kryo.NotNull;
+import com.esotericsoftware.kryo.serializers.CollectionSerializer.BindCollection;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.esotericsoftware.kryo.serializers.FieldSerializer.Bind;
+import com.esotericsoftware.kryo.serializers.MapSerializer.BindMap;
+
+/** Generates a serializer for each class annotated with {@link GenerateSerializer}, and a registrar that registers them. The
+ * generated serializers access the fields directly and write the same bytes as {@link FieldSerializer} with its default
+ * settings, so creating them at runtime needs no reflection.
+ * @see GenerateSerializer */
+@SupportedAnnotationTypes("com.esotericsoftware.kryo.GenerateSerializer")
+@SupportedOptions(SerializerProcessor.registrarOption)
+public class SerializerProcessor extends AbstractProcessor {
+	/** The processor option for the fully qualified name of the generated registrar class. */
+	static public final String registrarOption = "kryo.registrar";
+
+	private final ArrayList<Generated> generated = new ArrayList();
+	private boolean registrarWritten;
+
+	public SourceVersion getSupportedSourceVersion () {
+		return SourceVersion.latestSupported();
+	}
+
+	public boolean process (Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		boolean found = false;
+		for (Element element : roundEnv.getElementsAnnotatedWith(GenerateSerializer.class)) {
+			found = true;
+			if (registrarWritten) {
+				error("Serializer generated after the registrar was written: " + element, element);
+				continue;
+			}
+			try {
+				generateSerializer((TypeElement)element);
+			} catch (IOException ex) {
+				error("Unable to write serializer: " + ex.getMessage(), element);
+			}
+		}
+		// The registrar is written in the round after the serializers, so it is compiled with them.
+		if (!found && !generated.isEmpty() && !registrarWritten && !roundEnv.processingOver()) {
+			registrarWritten = true;
+			try {
+				generateRegistrar();
+			} catch (IOException ex) {
+				error("Unable to write registrar: " + ex.getMessage(), null);
+			}
+		}
+		return true;
+	}
+
+	private void generateSerializer (TypeElement type) throws IOException {
+		int id = type.getAnnotation(GenerateSerializer.class).id();
+		if (!isValid(type, id)) return;
+		List<VariableElement> fields = getFields(type);
+		boolean valid = true;
+		for (VariableElement field : fields)
+			if (!isValid(type, field)) valid = false;
+		if (!valid) return;
+
+		String packageName = getPackage(type).getQualifiedName().toString();
+		String serializerName = type.getSimpleName() + "Serializer";
+		for (Element e = type.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement())
+			serializerName = e.getSimpleName() + "_" + serializerName;
+		String typeName = type.getQualifiedName().toString();
+		String qualifiedName = packageName.length() == 0 ? serializerName : packageName + "." + serializerName;
+
+		StringBuilder write = new StringBuilder(), read = new StringBuilder(), copy = new StringBuilder();
+		for (VariableElement field : fields) {
+			String name = field.getSimpleName().toString();
+			String object = "object", original = "original", copyObject = "copy";
+			if (field.getEnclosingElement() != type) {
+				// Qualify fields of superclasses, which may be hidden by fields of subclasses.
+				String cast = "(" + ((TypeElement)field.getEnclosingElement()).getQualifiedName() + ")";
+				object = "(" + cast + object + ")";
+				original = "(" + cast + original + ")";
+				copyObject = "(" + cast + copyObject + ")";
+			}
+			String value = object + "." + name;
+			TypeMirror fieldType = processingEnv.getTypeUtils().erasure(field.asType());
+			TypeKind kind = fieldType.getKind();
+			if (kind.isPrimitive()) {
+				String method = primitiveMethod(kind), varInt = kind == TypeKind.INT || kind == TypeKind.LONG ? "false" : "";
+				write.append("\t\toutput.write").append(method).append('(').append(value);
+				if (varInt.length() > 0) write.append(", ").append(varInt);
+				write.append(");\n");
+				read.append("\t\t").append(value).append(" = input.read").append(method).append('(').append(varInt).append(");\n");
+				copy.append("\t\t").append(copyObject).append('.').append(name).append(" = ").append(original).append('.')
+					.append(name).append(";\n");
+				continue;
+			}
+			String fieldClass = fieldType.toString();
+			if (isFinal(fieldType)) {
+				if (field.getAnnotation(NotNull.class) == null) {
+					write.append("\t\tkryo.writeObjectOrNull(output, ").append(value).append(", ").append(fieldClass)
+						.append(".class);\n");
+					read.append("\t\t").append(value).append(" = kryo.readObjectOrNull(input, ").append(fieldClass)
+						.append(".class);\n");
+				} else {
+					write.append("\t\tkryo.writeObject(output, ").append(value).append(");\n");
+					read.append("\t\t").append(value).append(" = kryo.readObject(input, ").append(fieldClass).append(".class);\n");
+				}
+			} else {
+				write.append("\t\tkryo.writeClassAndObject(output, ").append(value).append(");\n");
+				read.append("\t\t").append(value).append(" = (").append(fieldClass).append(")kryo.readClassAndObject(input);\n");
+			}
+			copy.append("\t\t").append(copyObject).append('.').append(name).append(" = kryo.copy(").append(original).append('.')
+				.append(name).append(");\n");
+		}
+
+		Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+		try {
+			writer.write("// Generated by kryo-processor from " + typeName + ", do not edit.\n");
+			if (packageName.length() > 0) writer.write("package " + packageName + ";\n\n");
+			writer.write("import com.esotericsoftware.kryo.Kryo;\n");
+			writer.write("import com.esotericsoftware.kryo.Serializer;\n");
+			writer.write("import com.esotericsoftware.kryo.io.Input;\n");
+			writer.write("import com.esotericsoftware.kryo.io.Output;\n\n");
+			writer.write("@SuppressWarnings(\"all\")\n");
+			writer.write("public final class " + serializerName + " extends Serializer<" + typeName + "> {\n");
+			writer.write("\tpublic void write (Kryo kryo, Output output, " + typeName + " object) {\n");
+			writer.write(write.toString());
+			writer.write("\t}\n\n");
+			writer.write("\tpublic " + typeName + " read (Kryo kryo, Input input, Class<" + typeName + "> type) {\n");
+			writer.write("\t\t" + typeName + " object = kryo.newInstance(type);\n");
+			writer.write("\t\tkryo.reference(object);\n");
+			writer.write(read.toString());
+			writer.write("\t\treturn object;\n");
+			writer.write("\t}\n\n");
+			writer.write("\tpublic " + typeName + " copy (Kryo kryo, " + typeName + " original) {\n");
+			writer.write("\t\t" + typeName + " copy = kryo.newInstance(original.getClass());\n");
+			writer.write("\t\tkryo.reference(copy);\n");
+			writer.write(copy.toString());
+			writer.write("\t\treturn copy;\n");
+			writer.write("\t}\n");
+			writer.write("}\n");
+		} finally {
+			writer.close();
+		}
+		generated.add(new Generated(type, typeName, qualifiedName, packageName, id));
+	}
+
+	private void generateRegistrar () throws IOException {
+		String qualifiedName = processingEnv.getOptions().get(registrarOption);
+		if (qualifiedName == null) {
+			String packageName = generated.get(0).packageName;
+			for (Generated g : generated)
+				packageName = commonPackage(packageName, g.packageName);
+			if (packageName.length() == 0) {
+				error("The annotated classes have no common package, set the " + registrarOption + " processor option.", null);
+				return;
+			}
+			qualifiedName = packageName + ".KryoRegistrar";
+		}
+		int dot = qualifiedName.lastIndexOf('.');
+		String packageName = dot == -1 ? "" : qualifiedName.substring(0, dot);
+		String simpleName = qualifiedName.substring(dot + 1);
+
+		Collections.sort(generated, new Comparator<Generated>() {
+			public int compare (Generated o1, Generated o2) {
+				return o1.id < o2.id ? -1 : (o1.id == o2.id ? 0 : 1);
+			}
+		});
+		TypeElement[] types = new TypeElement[generated.size()];
+		for (int i = 0, n = types.length; i < n; i++)
+			types[i] = generated.get(i).type;
+
+		Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, types).openWriter();
+		try {
+			writer.write("// Generated by kryo-processor, do not edit.\n");
+			if (packageName.length() > 0) writer.write("package " + packageName + ";\n\n");
+			writer.write("import com.esotericsoftware.kryo.Kryo;\n\n");
+			writer.write("/** Registers the classes annotated with GenerateSerializer and their generated serializers. */\n");
+			writer.write("public final class " + simpleName + " {\n");
+			writer.write("\tprivate " + simpleName + " () {\n");
+			writer.write("\t}\n\n");
+			writer.write("\tstatic public void register (Kryo kryo) {\n");
+			for (Generated g : generated) {
+				writer.write("\t\tkryo.register(" + g.typeName + ".class, new " + g.serializerName + "(), " + g.id + ");\n");
+			}
+			writer.write("\t}\n");
+			writer.write("}\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	private boolean isValid (TypeElement type, int id) {
+		if (type.getKind() != ElementKind.CLASS) {
+			error("@GenerateSerializer can only be used on classes.", type);
+			return false;
+		}
+		if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+			error("@GenerateSerializer can't be used on abstract classes.", type);
+			return false;
+		}
+		if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+			error("@GenerateSerializer can't be used on local classes.", type);
+			return false;
+		}
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			if (e.getModifiers().contains(Modifier.PRIVATE)) {
+				error("A class with @GenerateSerializer must not be private: " + e, type);
+				return false;
+			}
+			if (((TypeElement)e).getNestingKind() == NestingKind.MEMBER && !e.getModifiers().contains(Modifier.STATIC)) {
+				error("A nested class with @GenerateSerializer must be static: " + e, type);
+				return false;
+			}
+		}
+		if (id < 0) {
+			error("The registration ID must be >= 0: " + id, type);
+			return false;
+		}
+		for (Generated g : generated) {
+			if (g.id == id) {
+				error("Duplicate registration ID " + id + ", also used by: " + g.typeName, type);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isValid (TypeElement type, VariableElement field) {
+		Set<Modifier> modifiers = field.getModifiers();
+		String name = field.getEnclosingElement() + "#" + field.getSimpleName();
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			error("A field serialized by a generated serializer must not be private: " + name, field);
+			return false;
+		}
+		if (modifiers.contains(Modifier.FINAL)) {
+			error("A field serialized by a generated serializer must not be final: " + name, field);
+			return false;
+		}
+		if (!modifiers.contains(Modifier.PUBLIC) && getPackage(field) != getPackage(type)) {
+			error("A field serialized by a generated serializer must be public when declared in another package: " + name, field);
+			return false;
+		}
+		if (field.getAnnotation(FieldSerializer.Optional.class) != null || field.getAnnotation(Bind.class) != null
+			|| field.getAnnotation(BindCollection.class) != null || field.getAnnotation(BindMap.class) != null) {
+			error("Only @NotNull is supported on fields serialized by a generated serializer: " + name, field);
+			return false;
+		}
+		return true;
+	}
+
+	/** Returns the fields serialized by FieldSerializer, in the same order. */
+	private List<VariableElement> getFields (TypeElement type) {
+		ArrayList<VariableElement> fields = new ArrayList();
+		TypeElement current = type;
+		while (!current.getQualifiedName().contentEquals("java.lang.Object")) {
+			for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+				Set<Modifier> modifiers = field.getModifiers();
+				if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) continue;
+				fields.add(field);
+			}
+			TypeMirror superclass = current.getSuperclass();
+			if (superclass.getKind() != TypeKind.DECLARED) break;
+			current = (TypeElement)((DeclaredType)superclass).asElement();
+		}
+		// Fields are sorted by name, the sort is stable so hidden fields keep the subclass first order.
+		Collections.sort(fields, new Comparator<VariableElement>() {
+			public int compare (VariableElement o1, VariableElement o2) {
+				return o1.getSimpleName().toString().compareTo(o2.getSimpleName().toString());
+			}
+		});
+		return fields;
+	}
+
+	/** Same as {@link com.esotericsoftware.kryo.Kryo#isFinal(Class)} for an erased type. */
+	private boolean isFinal (TypeMirror type) {
+		while (type.getKind() == TypeKind.ARRAY)
+			type = ((ArrayType)type).getComponentType();
+		if (type.getKind().isPrimitive()) return true;
+		if (type.getKind() != TypeKind.DECLARED) return false;
+		return ((DeclaredType)type).asElement().getModifiers().contains(Modifier.FINAL);
+	}
+
+	private PackageElement getPackage (Element element) {
+		return processingEnv.getElementUtils().getPackageOf(element);
+	}
+
+	private void error (String message, Element element) {
+		processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+	}
+
+	static private String primitiveMethod (TypeKind kind) {
+		switch (kind) {
+		case INT:
+			return "Int";
+		case LONG:
+			return "Long";
+		case FLOAT:
+			return "Float";
+		case DOUBLE:
+			return "Double";
+		case SHORT:
+			return "Short";
+		case BYTE:
+			return "Byte";
+		case BOOLEAN:
+			return "Boolean";
+		case CHAR:
+			return "Char";
+		}
+		throw new IllegalArgumentException("Unknown primitive: " + kind);
+	}
+
+	static private String commonPackage (String a, String b) {
+		while (!(b + ".").startsWith(a + ".") && a.length() > 0) {
+			int dot = a.lastIndexOf('.');
+			a = dot == -1 ? "" : a.substring(0, dot);
+		}
+		return a;
+	}
+
+	static private class Generated {
+		final TypeElement type;
+		final String typeName, serializerName, packageName;
+		final int id;
+
+		Generated (TypeElement type, String typeName, String serializerName, String packageName, int id) {
+			this.type = type;
+			this.typeName = typeName;
+			this.serializerName = serializerName;
+			this.packageName = packageName;
+			this.id = id;
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.processor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+
+import junit.framework.TestCase;
+
+public class SerializerProcessorTest extends TestCase {
+	private File dir;
+	private DiagnosticCollector<JavaFileObject> diagnostics;
+
+	protected void setUp () throws Exception {
+		dir = File.createTempFile("kryo-processor", "");
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	protected void tearDown () throws Exception {
+		delete(dir);
+	}
+
+	public void testGenerate () throws Exception {
+		source("test/a/Base.java", //
+			"package test.a;", //
+			"public class Base {", //
+			"	public int hidden;", //
+			"	public String baseName;", //
+			"}");
+		source("test/a/b/Point.java", //
+			"package test.a.b;", //
+			"import com.esotericsoftware.kryo.GenerateSerializer;", //
+			"import com.esotericsoftware.kryo.NotNull;", //
+			"import java.util.List;", //
+			"@GenerateSerializer(id = 20)", //
+			"public class Point extends test.a.Base {", //
+			"	int x, hidden;", //
+			"	long y;", //
+			"	float f; double d; short s; byte b; boolean z; char c;", //
+			"	Integer boxed;", //
+			"	String name;", //
+			"	@NotNull String notNull = \"\";", //
+			"	int[] ints;", //
+			"	List<String> list;", //
+			"	Object any;", //
+			"	Nested nested;", //
+			"	transient int skipped;", //
+			"	static int ignored;", //
+			"	@GenerateSerializer(id = 21)", //
+			"	static public class Nested {", //
+			"		protected Point parent;", //
+			"	}", //
+			"}");
+		ClassLoader loader = compile(true);
+
+		Class pointClass = loader.loadClass("test.a.b.Point");
+		Class nestedClass = loader.loadClass("test.a.b.Point$Nested");
+		Class registrar = loader.loadClass("test.a.b.KryoRegistrar");
+		Kryo kryo = new Kryo();
+		kryo.setReferences(true);
+		kryo.setRegistrationRequired(true);
+		kryo.register(java.util.ArrayList.class);
+		kryo.register(int[].class);
+		registrar.getMethod("register", Kryo.class).invoke(null, kryo);
+		assertEquals(20, kryo.getRegistration(pointClass).getId());
+		assertEquals(21, kryo.getRegistration(nestedClass).getId());
+		Serializer serializer = kryo.getSerializer(pointClass);
+		assertEquals("test.a.b.PointSerializer", serializer.getClass().getName());
+		assertEquals("test.a.b.Point_NestedSerializer", kryo.getSerializer(nestedClass).getClass().getName());
+
+		Object point = pointClass.newInstance();
+		set(point, "x", 123456);
+		set(point, "hidden", -5);
+		setField(pointClass.getSuperclass(), point, "hidden", 77);
+		setField(pointClass.getSuperclass(), point, "baseName", "base");
+		set(point, "y", 1234567890123L);
+		set(point, "f", 1.5f);
+		set(point, "d", -2.5);
+		set(point, "s", (short)300);
+		set(point, "b", (byte)-3);
+		set(point, "z", true);
+		set(point, "c", 'q');
+		set(point, "boxed", 9);
+		set(point, "ints", new int[] {1, 2, 3});
+		java.util.ArrayList list = new java.util.ArrayList();
+		list.add("one");
+		set(point, "list", list);
+		set(point, "any", "anything");
+		set(point, "skipped", 99);
+		Object nested = nestedClass.newInstance();
+		setField(nestedClass, nested, "parent", point);
+		set(point, "nested", nested);
+
+		byte[] bytes = write(kryo, point);
+
+		// The bytes are the same as FieldSerializer writes.
+		Kryo fieldKryo = new Kryo();
+		fieldKryo.setReferences(true);
+		fieldKryo.register(java.util.ArrayList.class);
+		fieldKryo.register(int[].class);
+		fieldKryo.register(pointClass, new FieldSerializer(fieldKryo, pointClass), 20);
+		fieldKryo.register(nestedClass, new FieldSerializer(fieldKryo, nestedClass), 21);
+		assertTrue(Arrays.equals(write(fieldKryo, point), bytes));
+
+		Object result = kryo.readObject(new Input(bytes), pointClass);
+		assertEquals(123456, get(result, "x"));
+		assertEquals(-5, get(result, "hidden"));
+		assertEquals(77, getField(pointClass.getSuperclass(), result, "hidden"));
+		assertEquals("base", getField(pointClass.getSuperclass(), result, "baseName"));
+		assertEquals(1234567890123L, get(result, "y"));
+		assertEquals('q', get(result, "c"));
+		assertEquals(9, get(result, "boxed"));
+		assertEquals("", get(result, "notNull"));
+		assertNull(get(result, "name"));
+		assertTrue(Arrays.equals(new int[] {1, 2, 3}, (int[])get(result, "ints")));
+		assertEquals(list, get(result, "list"));
+		assertEquals(0, get(result, "skipped"));
+		assertSame(result, getField(nestedClass, get(result, "nested"), "parent"));
+
+		Object copy = kryo.copy(point);
+		assertEquals(1.5f, get(copy, "f"));
+		assertEquals(77, getField(pointClass.getSuperclass(), copy, "hidden"));
+		assertNotSame(list, get(copy, "list"));
+		assertEquals(list, get(copy, "list"));
+		assertSame(copy, getField(nestedClass, get(copy, "nested"), "parent"));
+	}
+
+	public void testRegistrarOption () throws Exception {
+		source("test/Value.java", //
+			"package test;", //
+			"@com.esotericsoftware.kryo.GenerateSerializer(id = 30)", //
+			"public class Value {", //
+			"	public int value;", //
+			"}");
+		ClassLoader loader = compile(true, "-Akryo.registrar=test.registrar.Values");
+		Kryo kryo = new Kryo();
+		loader.loadClass("test.registrar.Values").getMethod("register", Kryo.class).invoke(null, kryo);
+		assertEquals(30, kryo.getRegistration(loader.loadClass("test.Value")).getId());
+	}
+
+	public void testErrors () throws Exception {
+		source("test/Invalid.java", //
+			"package test;", //
+			"import com.esotericsoftware.kryo.GenerateSerializer;", //
+			"@GenerateSerializer(id = 40)", //
+			"public class Invalid {", //
+			"	private int privateField;", //
+			"	final int finalField = 0;", //
+			"}", //
+			"@GenerateSerializer(id = 40)", //
+			"class Duplicate {", //
+			"}", //
+			"@GenerateSerializer(id = 41)", //
+			"abstract class Abstract {", //
+			"}");
+		compile(false);
+		String errors = errors();
+		assertTrue(errors, errors.contains("must not be private: test.Invalid#privateField"));
+		assertTrue(errors, errors.contains("must not be final: test.Invalid#finalField"));
+		assertTrue(errors, errors.contains("abstract"));
+		assertFalse(errors, errors.contains("Duplicate registration ID"));
+
+		delete(dir);
+		dir.mkdirs();
+		source("test/Duplicate.java", //
+			"package test;", //
+			"import com.esotericsoftware.kryo.GenerateSerializer;", //
+			"@GenerateSerializer(id = 40)", //
+			"public class Duplicate {", //
+			"	@GenerateSerializer(id = 40)", //
+			"	public class Inner {", //
+			"	}", //
+			"	@GenerateSerializer(id = 40)", //
+			"	static public class Other {", //
+			"	}", //
+			"}");
+		compile(false);
+		errors = errors();
+		assertTrue(errors, errors.contains("must be static"));
+		assertTrue(errors, errors.contains("Duplicate registration ID 40"));
+	}
+
+	private ClassLoader compile (boolean success, String... options) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("A JDK is required.", compiler);
+		diagnostics = new DiagnosticCollector();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+		List<File> files = new ArrayList();
+		sources(new File(dir, "src"), files);
+		File classes = new File(dir, "classes");
+		classes.mkdirs();
+		List<String> args = new ArrayList();
+		args.addAll(Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", classes.getPath(), "-processor",
+			SerializerProcessor.class.getName()));
+		args.addAll(Arrays.asList(options));
+		boolean result = compiler.getTask(null, fileManager, diagnostics, args, null, fileManager.getJavaFileObjectsFromFiles(files))
+			.call();
+		fileManager.close();
+		assertEquals(errors(), success, result);
+		return new URLClassLoader(new URL[] {classes.toURI().toURL()}, getClass().getClassLoader());
+	}
+
+	private String errors () {
+		StringBuilder buffer = new StringBuilder();
+		for (Diagnostic diagnostic : diagnostics.getDiagnostics())
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) buffer.append(diagnostic.getMessage(null)).append('\n');
+		return buffer.toString();
+	}
+
+	private void source (String path, String... lines) throws IOException {
+		File file = new File(dir, "src/" + path);
+		file.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			for (String line : lines)
+				writer.write(line + "\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	static private void sources (File dir, List<File> files) {
+		for (File file : dir.listFiles()) {
+			if (file.isDirectory())
+				sources(file, files);
+			else
+				files.add(file);
+		}
+	}
+
+	static private void delete (File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files)
+				delete(child);
+		}
+		file.delete();
+	}
+
+	static private byte[] write (Kryo kryo, Object object) {
+		Output output = new Output(1024);
+		kryo.writeObject(output, object);
+		return output.toBytes();
+	}
+
+	static private void set (Object object, String name, Object value) throws Exception {
+		setField(object.getClass(), object, name, value);
+	}
+
+	static private Object get (Object object, String name) throws Exception {
+		return getField(object.getClass(), object, name);
+	}
+
+	static private void setField (Class type, Object object, String name, Object value) throws Exception {
+		Field field = type.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(object, value);
+	}
+
+	static private Object getField (Class type, Object object, String name) throws Exception {
+		Field field = type.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(object);
+	}
+}
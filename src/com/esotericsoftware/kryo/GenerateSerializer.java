@@ -0,0 +1,47 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+
+/** Generates a serializer for the annotated class at compile time, when the kryo-processor annotation processor is on the
+ * compiler's classpath. The generated serializer is named after the class with a "Serializer" suffix (nested class names are
+ * joined with "_") and is in the same package. It writes the same bytes as {@link FieldSerializer} with its default settings.
+ * <p>
+ * The processor also generates a registrar class with a static <code>register(Kryo)</code> method that registers each annotated
+ * class with its generated serializer and the ID given here, using {@link Kryo#register(Class, Serializer, int)}. The
+ * registrar is named by the "kryo.registrar" processor option, or is "KryoRegistrar" in the common package of the annotated
+ * classes.
+ * <p>
+ * The annotated class, and all of its non-static, non-transient fields, must be accessible from its package. The fields must not
+ * be final. {@link NotNull} is honored, other FieldSerializer annotations are not supported. Unlike FieldSerializer, the generated
+ * serializer does not copy transient fields. */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateSerializer {
+	/** The registration ID, see {@link Kryo#register(Class, Serializer, int)}. IDs must be unique and should not change once data
+	 * has been written. */
+	int id();
+}
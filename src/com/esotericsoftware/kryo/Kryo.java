@@ -43,6 +43,7 @@ import java.util.Map;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.objenesis.instantiator.ObjectInstantiator;
 import org.objenesis.strategy.InstantiatorStrategy;
@@ -56,6 +57,9 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.ClosureSerializer;
 import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import com.esotericsoftware.kryo.serializers.CollectionWrapperSerializers;
+import com.esotericsoftware.kryo.serializers.CompatibleFieldSerializer;
+import com.esotericsoftware.kryo.serializers.CompatibleFieldSerializerConfig;
 import com.esotericsoftware.kryo.serializers.DefaultArraySerializers.BooleanArraySerializer;
 import com.esotericsoftware.kryo.serializers.DefaultArraySerializers.ByteArraySerializer;
 import com.esotericsoftware.kryo.serializers.DefaultArraySerializers.CharArraySerializer;
@@ -80,6 +84,7 @@ import com.esotericsoftware.kryo.serializers.DefaultSerializers.CollectionsEmpty
 import com.esotericsoftware.kryo.serializers.DefaultSerializers.CollectionsSingletonListSerializer;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers.CollectionsSingletonMapSerializer;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers.CollectionsSingletonSetSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.CopyOnWriteArrayListSerializer;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers.CurrencySerializer;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers.DateSerializer;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers.DoubleSerializer;
@@ -137,6 +142,7 @@ public class Kryo {
 
 	private int depth, maxDepth = Integer.MAX_VALUE;
 	private boolean autoReset = true;
+	private KryoListener listener;
 	private volatile Thread thread;
 	private ObjectMap context, graphContext;
 
@@ -153,6 +159,7 @@ public class Kryo {
 
 	private FieldSerializerConfig fieldSerializerConfig = new FieldSerializerConfig();
 	private TaggedFieldSerializerConfig taggedFieldSerializerConfig = new TaggedFieldSerializerConfig();
+	private CompatibleFieldSerializerConfig compatibleFieldSerializerConfig = new CompatibleFieldSerializerConfig();
 
 	private StreamFactory streamFactory;
 
@@ -214,7 +221,9 @@ public class Kryo {
 		addDefaultSerializer(Collections.singletonList(null).getClass(), CollectionsSingletonListSerializer.class);
 		addDefaultSerializer(Collections.singletonMap(null, null).getClass(), CollectionsSingletonMapSerializer.class);
 		addDefaultSerializer(Collections.singleton(null).getClass(), CollectionsSingletonSetSerializer.class);
+		CollectionWrapperSerializers.addDefaultSerializers(this);
 		addDefaultSerializer(TreeSet.class, TreeSetSerializer.class);
+		addDefaultSerializer(CopyOnWriteArrayList.class, CopyOnWriteArrayListSerializer.class);
 		addDefaultSerializer(Collection.class, CollectionSerializer.class);
 		addDefaultSerializer(TreeMap.class, TreeMapSerializer.class);
 		addDefaultSerializer(Map.class, MapSerializer.class);
@@ -350,6 +359,15 @@ public class Kryo {
 	 * <td>TreeMap</td>
 	 * <td>EnumSet</td>
 	 * </tr>
+	 * <tr>
+	 * <td>Collections.unmodifiable*</td>
+	 * <td>Collections.synchronized*</td>
+	 * <td>Arrays.asList</td>
+	 * <td>List.of, Set.of, Map.of</td>
+	 * </tr>
+	 * <tr>
+	 * <td>CopyOnWriteArrayList</td>
+	 * </tr>
 	 * </table>
 	 * <p>
 	 * Note that the order default serializers are added is important for a class that may match multiple types. The above default
@@ -554,7 +572,7 @@ public class Kryo {
 				return;
 			}
 			if (TRACE || (DEBUG && depth == 1)) log("Write", object);
-			getRegistration(object.getClass()).getSerializer().write(this, output, object);
+			write(getRegistration(object.getClass()).getSerializer(), output, object);
 		} finally {
 			if (--depth == 0 && autoReset) reset();
 		}
@@ -572,7 +590,7 @@ public class Kryo {
 				return;
 			}
 			if (TRACE || (DEBUG && depth == 1)) log("Write", object);
-			serializer.write(this, output, object);
+			write(serializer, output, object);
 		} finally {
 			if (--depth == 0 && autoReset) reset();
 		}
@@ -599,7 +617,7 @@ public class Kryo {
 				output.writeByte(NOT_NULL);
 			}
 			if (TRACE || (DEBUG && depth == 1)) log("Write", object);
-			serializer.write(this, output, object);
+			write(serializer, output, object);
 		} finally {
 			if (--depth == 0 && autoReset) reset();
 		}
@@ -626,7 +644,7 @@ public class Kryo {
 				output.writeByte(NOT_NULL);
 			}
 			if (TRACE || (DEBUG && depth == 1)) log("Write", object);
-			serializer.write(this, output, object);
+			write(serializer, output, object);
 		} finally {
 			if (--depth == 0 && autoReset) reset();
 		}
@@ -648,7 +666,7 @@ public class Kryo {
 				return;
 			}
 			if (TRACE || (DEBUG && depth == 1)) log("Write", object);
-			registration.getSerializer().write(this, output, object);
+			write(registration.getSerializer(), output, object);
 		} finally {
 			if (--depth == 0 && autoReset) reset();
 		}
@@ -674,6 +692,7 @@ public class Kryo {
 		if (id != -1) {
 			if (DEBUG) debug("kryo", "Write object reference " + id + ": " + string(object));
 			output.writeVarInt(id + 2, true); // + 2 because 0 and 1 are used for NULL and NOT_NULL.
+			if (listener != null) listener.referenceWritten(object.getClass());
 			return true;
 		}
 
@@ -684,6 +703,16 @@ public class Kryo {
 		return false;
 	}
 
+	private void write (Serializer serializer, Output output, Object object) {
+		if (listener == null) {
+			serializer.write(this, output, object);
+			return;
+		}
+		long start = System.nanoTime(), total = output.total();
+		serializer.write(this, output, object);
+		if (object != null) listener.objectWritten(object.getClass(), serializer, output.total() - total, System.nanoTime() - start);
+	}
+
 	/** Reads a class and returns its registration.
 	 * @return May be null.
 	 * @see ClassResolver#readClass(Input) */
@@ -706,10 +735,10 @@ public class Kryo {
 			if (references) {
 				int stackSize = readReferenceOrNull(input, type, false);
 				if (stackSize == REF) return (T)readObject;
-				object = (T)getRegistration(type).getSerializer().read(this, input, type);
+				object = (T)read(getRegistration(type).getSerializer(), input, type);
 				if (stackSize == readReferenceIds.size) reference(object);
 			} else
-				object = (T)getRegistration(type).getSerializer().read(this, input, type);
+				object = (T)read(getRegistration(type).getSerializer(), input, type);
 			if (TRACE || (DEBUG && depth == 1)) log("Read", object);
 			return object;
 		} finally {
@@ -728,10 +757,10 @@ public class Kryo {
 			if (references) {
 				int stackSize = readReferenceOrNull(input, type, false);
 				if (stackSize == REF) return (T)readObject;
-				object = (T)serializer.read(this, input, type);
+				object = (T)read(serializer, input, type);
 				if (stackSize == readReferenceIds.size) reference(object);
 			} else
-				object = (T)serializer.read(this, input, type);
+				object = (T)read(serializer, input, type);
 			if (TRACE || (DEBUG && depth == 1)) log("Read", object);
 			return object;
 		} finally {
@@ -750,7 +779,7 @@ public class Kryo {
 			if (references) {
 				int stackSize = readReferenceOrNull(input, type, true);
 				if (stackSize == REF) return (T)readObject;
-				object = (T)getRegistration(type).getSerializer().read(this, input, type);
+				object = (T)read(getRegistration(type).getSerializer(), input, type);
 				if (stackSize == readReferenceIds.size) reference(object);
 			} else {
 				Serializer serializer = getRegistration(type).getSerializer();
@@ -758,7 +787,7 @@ public class Kryo {
 					if (TRACE || (DEBUG && depth == 1)) log("Read", null);
 					return null;
 				}
-				object = (T)serializer.read(this, input, type);
+				object = (T)read(serializer, input, type);
 			}
 			if (TRACE || (DEBUG && depth == 1)) log("Read", object);
 			return object;
@@ -779,14 +808,14 @@ public class Kryo {
 			if (references) {
 				int stackSize = readReferenceOrNull(input, type, true);
 				if (stackSize == REF) return (T)readObject;
-				object = (T)serializer.read(this, input, type);
+				object = (T)read(serializer, input, type);
 				if (stackSize == readReferenceIds.size) reference(object);
 			} else {
 				if (!serializer.getAcceptsNull() && input.readByte() == NULL) {
 					if (TRACE || (DEBUG && depth == 1)) log("Read", null);
 					return null;
 				}
-				object = (T)serializer.read(this, input, type);
+				object = (T)read(serializer, input, type);
 			}
 			if (TRACE || (DEBUG && depth == 1)) log("Read", object);
 			return object;
@@ -810,10 +839,10 @@ public class Kryo {
 				registration.getSerializer().setGenerics(this, null);
 				int stackSize = readReferenceOrNull(input, type, false);
 				if (stackSize == REF) return readObject;
-				object = registration.getSerializer().read(this, input, type);
+				object = read(registration.getSerializer(), input, type);
 				if (stackSize == readReferenceIds.size) reference(object);
 			} else
-				object = registration.getSerializer().read(this, input, type);
+				object = read(registration.getSerializer(), input, type);
 			if (TRACE || (DEBUG && depth == 1)) log("Read", object);
 			return object;
 		} finally {
@@ -821,6 +850,14 @@ public class Kryo {
 		}
 	}
 
+	private Object read (Serializer serializer, Input input, Class type) {
+		if (listener == null) return serializer.read(this, input, type);
+		long start = System.nanoTime(), total = input.total();
+		Object object = serializer.read(this, input, type);
+		listener.objectRead(type, serializer, input.total() - total, System.nanoTime() - start);
+		return object;
+	}
+
 	/** Returns {@link #REF} if a reference to a previously read object was read, which is stored in {@link #readObject}. Returns a
 	 * stack size (> 0) if a reference ID has been put on the stack. */
 	int readReferenceOrNull (Input input, Class type, boolean mayBeNull) {
@@ -856,6 +893,7 @@ public class Kryo {
 		id -= 2; // - 2 because 0 and 1 are used for NULL and NOT_NULL.
 		readObject = referenceResolver.getReadObject(type, id);
 		if (DEBUG) debug("kryo", "Read object reference " + id + ": " + string(readObject));
+		if (listener != null) listener.referenceRead(readObject != null ? readObject.getClass() : type);
 		return REF;
 	}
 
@@ -1095,6 +1133,12 @@ public class Kryo {
 		return taggedFieldSerializerConfig;
 	}
 
+	/** The default configuration for {@link CompatibleFieldSerializer} instances. Already existing serializer instances are not
+	 * affected by this configuration. */
+	public CompatibleFieldSerializerConfig getCompatibleFieldSerializerConfig () {
+		return compatibleFieldSerializerConfig;
+	}
+
 	/** Sets the reference resolver and enables references. */
 	public void setReferenceResolver (ReferenceResolver referenceResolver) {
 		if (referenceResolver == null) throw new IllegalArgumentException("referenceResolver cannot be null.");
@@ -1171,6 +1215,18 @@ public class Kryo {
 		this.autoReset = autoReset;
 	}
 
+	/** Sets a listener that is notified about the objects that are read and written, eg to collect metrics.
+	 * @param listener May be null.
+	 * @see com.esotericsoftware.kryo.util.KryoStatistics */
+	public void setListener (KryoListener listener) {
+		this.listener = listener;
+	}
+
+	/** @return May be null. */
+	public KryoListener getListener () {
+		return listener;
+	}
+
 	/** Sets the maxiumum depth of an object graph. This can be used to prevent malicious data from causing a stack overflow.
 	 * Default is {@link Integer#MAX_VALUE}. */
 	public void setMaxDepth (int maxDepth) {
@@ -0,0 +1,56 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import com.esotericsoftware.kryo.util.KryoStatistics;
+
+/** Is notified about the objects Kryo reads and writes. This allows metrics to be collected in production, where logging at
+ * TRACE or DEBUG level is too slow. No listener is set by default, in which case Kryo only performs a null check per object.
+ * <p>
+ * Listener methods are called by the thread using the Kryo instance. If the same listener is set for multiple Kryo instances, eg
+ * for all instances in a {@link com.esotericsoftware.kryo.pool.KryoPool}, it must be thread safe. Listener methods must not use
+ * the Kryo instance.
+ * @see Kryo#setListener(KryoListener)
+ * @see KryoStatistics */
+public interface KryoListener {
+	/** Called after a serializer wrote an object.
+	 * @param bytes The number of bytes written by the serializer, including the bytes for child objects.
+	 * @param nanos The time spent in the serializer, including the time for child objects. */
+	public void objectWritten (Class type, Serializer serializer, long bytes, long nanos);
+
+	/** Called after a serializer read an object.
+	 * @param type The type requested from the serializer.
+	 * @param bytes The number of bytes read by the serializer, including the bytes for child objects.
+	 * @param nanos The time spent in the serializer, including the time for child objects. */
+	public void objectRead (Class type, Serializer serializer, long bytes, long nanos);
+
+	/** Called when an object is written as a reference to an object previously written in the same object graph. */
+	public void referenceWritten (Class type);
+
+	/** Called when an object is read as a reference to an object previously read in the same object graph. */
+	public void referenceRead (Class type);
+
+	/** Called when the name of an unregistered class is written, which happens the first time the class is encountered in an
+	 * object graph. */
+	public void classNameWritten (Class type);
+
+	/** Called when the name of an unregistered class is read. */
+	public void classNameRead (Class type);
+}
@@ -0,0 +1,227 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import com.esotericsoftware.kryo.KryoException;
+
+/** An Input that fills a direct ByteBuffer from a {@link ReadableByteChannel}, such as a SocketChannel or FileChannel.
+ * <p>
+ * With a non-blocking channel, a read that needs more bytes than the channel has available throws
+ * {@link NeedMoreBytesException} instead of blocking. To retry such a read later, call {@link #mark()} before reading each
+ * object. The bytes from the mark onward are kept in the buffer, growing it if needed, so after {@link #reset()} the object can
+ * be read again once the channel is readable:
+ * 
+ * <pre>
+ * input.mark();
+ * try {
+ * 	Object object = kryo.readClassAndObject(input);
+ * 	// handle object
+ * } catch (KryoException ex) {
+ * 	if (!input.needMoreBytes()) throw ex;
+ * 	input.reset();
+ * 	// wait until the channel is readable
+ * }
+ * </pre>
+ * 
+ * {@link #needMoreBytes()} is checked rather than the exception type because a serializer may wrap the exception. */
+public class ChannelInput extends ByteBufferInput {
+	protected ReadableByteChannel channel;
+	protected int maxCapacity;
+	private int mark = -1;
+	private boolean needMoreBytes;
+
+	/** Creates a new Input for reading from a channel with a buffer size of 4096 that grows as needed. */
+	public ChannelInput (ReadableByteChannel channel) {
+		this(channel, 4096, -1);
+	}
+
+	/** Creates a new Input for reading from a channel.
+	 * @param bufferSize The initial size of the buffer.
+	 * @param maxBufferSize The buffer only grows when a single read or the bytes since the {@link #mark()} need more space, up to
+	 *           this size. Can be -1 for no maximum. */
+	public ChannelInput (ReadableByteChannel channel, int bufferSize, int maxBufferSize) {
+		super(bufferSize);
+		if (channel == null) throw new IllegalArgumentException("channel cannot be null.");
+		if (maxBufferSize < -1) throw new IllegalArgumentException("maxBufferSize cannot be < -1: " + maxBufferSize);
+		if (bufferSize > maxBufferSize && maxBufferSize != -1) throw new IllegalArgumentException(
+			"bufferSize: " + bufferSize + " cannot be greater than maxBufferSize: " + maxBufferSize);
+		this.channel = channel;
+		this.maxCapacity = maxBufferSize == -1 ? Integer.MAX_VALUE : maxBufferSize;
+	}
+
+	public ReadableByteChannel getChannel () {
+		return channel;
+	}
+
+	/** Sets a new channel. The position, total and mark are reset, discarding any buffered bytes. */
+	public void setChannel (ReadableByteChannel channel) {
+		if (channel == null) throw new IllegalArgumentException("channel cannot be null.");
+		this.channel = channel;
+		limit = 0;
+		mark = -1;
+		needMoreBytes = false;
+		rewind();
+	}
+
+	/** Marks the current position. The bytes from the mark onward are kept in the buffer until the next mark. */
+	public void mark () {
+		mark = position;
+		needMoreBytes = false;
+	}
+
+	/** Returns to the position of the last {@link #mark()}, so the bytes read since then can be read again. */
+	public void reset () {
+		if (mark == -1) throw new KryoException("No mark has been set.");
+		position = mark;
+		niobuffer.position(position);
+		needMoreBytes = false;
+	}
+
+	/** Returns true if the last read failed because a non-blocking channel had no more bytes available. */
+	public boolean needMoreBytes () {
+		return needMoreBytes;
+	}
+
+	/** Reads from the channel into the buffer after the limit, making room first if the buffer cannot hold the required bytes.
+	 * @return the number of bytes read, 0 if a non-blocking channel has no bytes available, or -1 at the end of the stream. */
+	private int fill (int required) throws KryoException {
+		if (limit == capacity || capacity - position < required) makeRoom(required);
+		niobuffer.limit(capacity);
+		niobuffer.position(limit);
+		int count;
+		try {
+			count = channel.read(niobuffer);
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+		niobuffer.position(position);
+		if (count > 0) limit += count;
+		return count;
+	}
+
+	/** Discards the bytes before the mark or position and grows the buffer if it still cannot hold the required bytes. */
+	private void makeRoom (int required) throws KryoException {
+		int keep = mark != -1 ? mark : position;
+		if (keep > 0) {
+			niobuffer.limit(limit);
+			niobuffer.position(keep);
+			niobuffer.compact();
+			total += keep;
+			position -= keep;
+			limit -= keep;
+			if (mark != -1) mark = 0;
+		}
+		if (capacity - position >= required && limit < capacity) return;
+		long newCapacity = Math.max((long)capacity * 2, (long)position + required);
+		if (newCapacity > maxCapacity) {
+			if (position + required > maxCapacity)
+				throw new KryoException("Buffer too small: capacity: " + maxCapacity + ", required: " + (position + required));
+			newCapacity = maxCapacity;
+		}
+		ByteBuffer newBuffer = ByteBuffer.allocateDirect((int)newCapacity);
+		newBuffer.order(niobuffer.order());
+		niobuffer.position(0);
+		niobuffer.limit(limit);
+		newBuffer.put(niobuffer);
+		niobuffer = newBuffer;
+		capacity = (int)newCapacity;
+	}
+
+	protected int require (int required) throws KryoException {
+		int remaining = limit - position;
+		if (remaining >= required) return remaining;
+		if (required > maxCapacity)
+			throw new KryoException("Buffer too small: capacity: " + maxCapacity + ", required: " + required);
+		while (true) {
+			int count = fill(required);
+			if (count == -1) throw new KryoException("Buffer underflow.");
+			remaining = limit - position;
+			if (remaining >= required) return remaining;
+			if (count == 0) {
+				needMoreBytes = true;
+				throw new NeedMoreBytesException();
+			}
+		}
+	}
+
+	/** @return the number of bytes remaining, but not more than optional, or -1 if the end of the stream was reached and the
+	 *         buffer is empty. */
+	protected int optional (int optional) throws KryoException {
+		int remaining = limit - position;
+		if (remaining >= optional) return optional;
+		optional = Math.min(optional, maxCapacity);
+		while (true) {
+			int count = fill(optional);
+			remaining = limit - position;
+			if (count == -1 || remaining >= optional) break;
+			if (count == 0) {
+				if (remaining > 0) break;
+				needMoreBytes = true;
+				throw new NeedMoreBytesException();
+			}
+		}
+		return remaining == 0 ? -1 : Math.min(remaining, optional);
+	}
+
+	public int read () throws KryoException {
+		if (optional(1) <= 0) return -1;
+		niobuffer.position(position);
+		position++;
+		return niobuffer.get() & 0xFF;
+	}
+
+	/** Reads the buffered bytes, or if none are buffered, the bytes the channel has available, up to count. */
+	public int read (byte[] bytes, int offset, int count) throws KryoException {
+		if (bytes == null) throw new IllegalArgumentException("bytes cannot be null.");
+		int copyCount = Math.min(limit - position, count);
+		if (copyCount == 0 && count > 0) {
+			copyCount = optional(count);
+			if (copyCount == -1) return -1;
+		}
+		niobuffer.position(position);
+		niobuffer.get(bytes, offset, copyCount);
+		position += copyCount;
+		return copyCount;
+	}
+
+	public boolean canReadInt () throws KryoException {
+		if (limit - position >= 5) return true;
+		if (optional(5) <= 0) return false;
+		return super.canReadInt();
+	}
+
+	public boolean canReadLong () throws KryoException {
+		if (limit - position >= 9) return true;
+		if (optional(9) <= 0) return false;
+		return super.canReadLong();
+	}
+
+	/** Closes the channel. */
+	public void close () throws KryoException {
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+import com.esotericsoftware.kryo.KryoException;
+
+/** An Output that writes to a direct ByteBuffer and flushes it to a {@link WritableByteChannel}, such as a SocketChannel or
+ * FileChannel.
+ * <p>
+ * With a non-blocking channel, {@link #flush()} writes only the bytes the channel accepts and never blocks. The remaining bytes
+ * stay at the start of the buffer and the buffer grows as more is written, up to the maximum buffer size. When
+ * {@link #pending()} is not 0 after a flush, the caller should wait until the channel is writable and flush again:
+ * 
+ * <pre>
+ * kryo.writeClassAndObject(output, object);
+ * output.flush();
+ * if (output.pending() &gt; 0) {
+ * 	// register interest in writability, then call output.flush() again
+ * }
+ * </pre> */
+public class ChannelOutput extends ByteBufferOutput {
+	protected WritableByteChannel channel;
+
+	/** Creates a new Output for writing to a channel with a buffer size of 4096 that grows as needed. */
+	public ChannelOutput (WritableByteChannel channel) {
+		this(channel, 4096, -1);
+	}
+
+	/** Creates a new Output for writing to a channel.
+	 * @param bufferSize The initial size of the buffer.
+	 * @param maxBufferSize The buffer only grows when a single write or the bytes a non-blocking channel has not accepted yet need
+	 *           more space, up to this size. Can be -1 for no maximum. */
+	public ChannelOutput (WritableByteChannel channel, int bufferSize, int maxBufferSize) {
+		super(bufferSize, maxBufferSize);
+		if (channel == null) throw new IllegalArgumentException("channel cannot be null.");
+		if (bufferSize > maxBufferSize && maxBufferSize != -1) throw new IllegalArgumentException(
+			"bufferSize: " + bufferSize + " cannot be greater than maxBufferSize: " + maxBufferSize);
+		this.channel = channel;
+	}
+
+	public WritableByteChannel getChannel () {
+		return channel;
+	}
+
+	/** Sets a new channel. The position and total are reset, discarding any buffered bytes. */
+	public void setChannel (WritableByteChannel channel) {
+		if (channel == null) throw new IllegalArgumentException("channel cannot be null.");
+		this.channel = channel;
+		clear();
+	}
+
+	/** Returns the number of buffered bytes that have not been written to the channel. */
+	public int pending () {
+		return position;
+	}
+
+	/** @return true if the buffer has been flushed or resized. */
+	protected boolean require (int required) throws KryoException {
+		if (capacity - position >= required) return false;
+		if (required > maxCapacity)
+			throw new KryoException("Buffer overflow. Max capacity: " + maxCapacity + ", required: " + required);
+		flush();
+		if (capacity - position >= required) return true;
+		// Grow the buffer to hold the bytes the channel has not accepted yet.
+		long newCapacity = Math.max((long)capacity * 2, (long)position + required);
+		if (newCapacity > maxCapacity) {
+			if (position + required > maxCapacity)
+				throw new KryoException("Buffer overflow. Available: " + (capacity - position) + ", required: " + required);
+			newCapacity = maxCapacity;
+		}
+		ByteBuffer newBuffer = ByteBuffer.allocateDirect((int)newCapacity);
+		newBuffer.order(niobuffer.order());
+		niobuffer.position(0);
+		niobuffer.limit(position);
+		newBuffer.put(niobuffer);
+		niobuffer = newBuffer;
+		capacity = (int)newCapacity;
+		return true;
+	}
+
+	/** Writes the buffered bytes to the channel. With a non-blocking channel, only the bytes the channel accepts are written and
+	 * the rest remain buffered, see {@link #pending()}. */
+	public void flush () throws KryoException {
+		if (position == 0) return;
+		boolean blocking = !(channel instanceof SelectableChannel) || ((SelectableChannel)channel).isBlocking();
+		niobuffer.position(0);
+		niobuffer.limit(position);
+		try {
+			while (niobuffer.hasRemaining()) {
+				if (channel.write(niobuffer) == 0 && !blocking) break;
+			}
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+		int written = niobuffer.position();
+		niobuffer.compact();
+		total += written;
+		position -= written;
+	}
+
+	/** Flushes any buffered bytes and closes the channel. */
+	public void close () throws KryoException {
+		flush();
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.serializers.CompressionCodec;
+
+/** An Input that reads blocks written by {@link CompressedOutput} from another InputStream and decompresses them. The end of the
+ * stream or a zero length block ends the data. After a zero length block, the input will appear to hit the end of the data until
+ * {@link #nextBlocks()} is called. */
+public class CompressedInput extends Input {
+	private final CompressionCodec codec;
+	private byte[] block = new byte[0], compressed;
+	private int blockPosition, blockLimit;
+	private boolean end;
+
+	/** Creates an uninitialized CompressedInput with a buffer size of 2048. The InputStream must be set before it can be used. */
+	public CompressedInput (CompressionCodec codec) {
+		this(codec, 2048);
+	}
+
+	/** Creates an uninitialized CompressedInput. The InputStream must be set before it can be used. */
+	public CompressedInput (CompressionCodec codec, int bufferSize) {
+		super(bufferSize);
+		if (codec == null) throw new IllegalArgumentException("codec cannot be null.");
+		this.codec = codec;
+	}
+
+	/** Creates a CompressedInput with a buffer size of 2048. */
+	public CompressedInput (InputStream inputStream, CompressionCodec codec) {
+		this(inputStream, codec, 2048);
+	}
+
+	public CompressedInput (InputStream inputStream, CompressionCodec codec, int bufferSize) {
+		this(codec, bufferSize);
+		setInputStream(inputStream);
+	}
+
+	public void setInputStream (InputStream inputStream) {
+		super.setInputStream(inputStream);
+		blockPosition = 0;
+		blockLimit = 0;
+		end = false;
+	}
+
+	public void rewind () {
+		super.rewind();
+		blockPosition = 0;
+		blockLimit = 0;
+		end = false;
+	}
+
+	protected int fill (byte[] buffer, int offset, int count) throws KryoException {
+		if (blockPosition == blockLimit && !readBlock()) return -1;
+		int length = Math.min(count, blockLimit - blockPosition);
+		System.arraycopy(block, blockPosition, buffer, offset, length);
+		blockPosition += length;
+		return length;
+	}
+
+	/** Reads and decompresses the next block.
+	 * @return false if there are no more blocks. */
+	private boolean readBlock () {
+		if (end) return false;
+		InputStream inputStream = getInputStream();
+		if (inputStream == null) return false;
+		try {
+			int b = inputStream.read();
+			if (b == -1) return false;
+			int length = readVarInt(inputStream, b);
+			if (length == 0) {
+				end = true;
+				return false;
+			}
+			int compressedLength = readVarInt(inputStream, inputStream.read());
+			if (block.length < length) block = new byte[length];
+			if (compressedLength == 0)
+				readFully(inputStream, block, length);
+			else {
+				if (compressed == null || compressed.length < compressedLength) compressed = new byte[compressedLength];
+				readFully(inputStream, compressed, compressedLength);
+				codec.decompress(compressed, 0, compressedLength, block, 0, length);
+			}
+			blockPosition = 0;
+			blockLimit = length;
+			return true;
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+	}
+
+	/** Advances past the zero length block that ended the current data. Any unread bytes of the current data are skipped. */
+	public void nextBlocks () {
+		while (readBlock())
+			blockPosition = blockLimit;
+		blockPosition = 0;
+		blockLimit = 0;
+		position = 0;
+		limit = 0;
+		end = false;
+	}
+
+	static private int readVarInt (InputStream inputStream, int b) throws IOException {
+		int result = 0;
+		for (int offset = 0; offset < 32; offset += 7) {
+			if (b == -1) throw new KryoException("Buffer underflow.");
+			result |= (b & 0x7F) << offset;
+			if ((b & 0x80) == 0) return result;
+			b = inputStream.read();
+		}
+		throw new KryoException("Malformed integer.");
+	}
+
+	static private void readFully (InputStream inputStream, byte[] bytes, int count) throws IOException {
+		for (int offset = 0; offset < count;) {
+			int read = inputStream.read(bytes, offset, count - offset);
+			if (read == -1) throw new KryoException("Buffer underflow.");
+			offset += read;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.serializers.CompressionCodec;
+
+/** An Output that compresses the buffer each time it is flushed and writes it to another OutputStream as a block. Each block is
+ * written as its length, its compressed length and the compressed bytes. A block shorter than the threshold, or that does not
+ * get smaller, is stored uncompressed with a compressed length of 0. Like {@link OutputChunked}, {@link #endBlocks()} marks the end
+ * of the blocks with a zero length so more data can follow in the stream.
+ * @see CompressedInput */
+public class CompressedOutput extends Output {
+	private final CompressionCodec codec;
+	private int threshold = 64;
+	private byte[] compressed;
+
+	/** Creates an uninitialized CompressedOutput with a block size of 65536. The OutputStream must be set before it can be
+	 * used. */
+	public CompressedOutput (CompressionCodec codec) {
+		this(codec, 65536);
+	}
+
+	/** Creates an uninitialized CompressedOutput. The OutputStream must be set before it can be used.
+	 * @param blockSize The maximum number of bytes compressed as a block. */
+	public CompressedOutput (CompressionCodec codec, int blockSize) {
+		super(blockSize);
+		if (codec == null) throw new IllegalArgumentException("codec cannot be null.");
+		this.codec = codec;
+	}
+
+	/** Creates a CompressedOutput with a block size of 65536. */
+	public CompressedOutput (OutputStream outputStream, CompressionCodec codec) {
+		this(outputStream, codec, 65536);
+	}
+
+	/** @param blockSize The maximum number of bytes compressed as a block. */
+	public CompressedOutput (OutputStream outputStream, CompressionCodec codec, int blockSize) {
+		this(codec, blockSize);
+		setOutputStream(outputStream);
+	}
+
+	/** Sets the minimum number of bytes in a block for it to be compressed. Default is 64. */
+	public void setThreshold (int threshold) {
+		this.threshold = threshold;
+	}
+
+	public int getThreshold () {
+		return threshold;
+	}
+
+	public void flush () throws KryoException {
+		OutputStream outputStream = getOutputStream();
+		if (outputStream == null) return;
+		if (position > 0) {
+			int length = position;
+			try {
+				writeVarInt(outputStream, length);
+				int compressedLength = 0;
+				if (length >= threshold) {
+					int maxLength = codec.maxCompressedLength(length);
+					if (compressed == null || compressed.length < maxLength) compressed = new byte[maxLength];
+					compressedLength = codec.compress(buffer, 0, length, compressed, 0);
+					if (compressedLength >= length) compressedLength = 0;
+				}
+				writeVarInt(outputStream, compressedLength);
+				if (compressedLength == 0)
+					outputStream.write(buffer, 0, length);
+				else
+					outputStream.write(compressed, 0, compressedLength);
+			} catch (IOException ex) {
+				throw new KryoException(ex);
+			}
+			total += length;
+			position = 0;
+		}
+		try {
+			outputStream.flush();
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+	}
+
+	/** Marks the end of the blocks. {@link CompressedInput} will appear to hit the end of the data until
+	 * {@link CompressedInput#nextBlocks()} is called. */
+	public void endBlocks () {
+		flush(); // Flush any partial block.
+		try {
+			getOutputStream().write(0); // Zero length block.
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+	}
+
+	static void writeVarInt (OutputStream outputStream, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			outputStream.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		outputStream.write(value);
+	}
+}
@@ -0,0 +1,73 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+
+/** Reads a framed record stream written by {@link FramedRecordWriter}. Frames can be read as bytes with {@link #readFrame()}, to
+ * be decoded elsewhere, or read and decoded with {@link #read(Kryo)}. A reader is not thread safe.
+ * @see com.esotericsoftware.kryo.pool.ParallelFrameDecoder */
+public class FramedRecordReader {
+	private final Input input;
+	private final Input frame = new Input();
+
+	public FramedRecordReader (Input input) {
+		if (input == null) throw new IllegalArgumentException("input cannot be null.");
+		this.input = input;
+	}
+
+	/** Returns the bytes of the next frame, or null at the end of the stream. */
+	public byte[] readFrame () throws KryoException {
+		if (input.eof()) return null;
+		int length = input.readVarInt(true);
+		return input.readBytes(length);
+	}
+
+	/** Returns true if there are no more frames. */
+	public boolean eof () throws KryoException {
+		return input.eof();
+	}
+
+	/** Reads and decodes the next record.
+	 * @return May be null.
+	 * @throws KryoException at the end of the stream. */
+	public Object read (Kryo kryo) throws KryoException {
+		byte[] bytes = readFrame();
+		if (bytes == null) throw new KryoException("End of stream.");
+		return decode(kryo, frame, bytes);
+	}
+
+	/** Decodes a frame returned by {@link #readFrame()}.
+	 * @param input Used to read the frame, its buffer is replaced. */
+	static public Object decode (Kryo kryo, Input input, byte[] frame) throws KryoException {
+		input.setBuffer(frame);
+		kryo.reset();
+		try {
+			return kryo.readClassAndObject(input);
+		} finally {
+			kryo.reset();
+		}
+	}
+
+	public void close () throws KryoException {
+		input.close();
+	}
+}
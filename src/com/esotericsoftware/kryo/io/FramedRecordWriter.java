@@ -0,0 +1,68 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+
+/** Writes a framed record stream: each record is written with {@link Kryo#writeClassAndObject(Output, Object)} into its own
+ * frame, preceded by the frame's length as a positive varint. Kryo is reset after each record so records share no references or
+ * class IDs. Since each frame can be decoded on its own, the stream can be decoded in parallel, see
+ * {@link com.esotericsoftware.kryo.pool.ParallelFrameDecoder}. A writer is not thread safe.
+ * @see FramedRecordReader */
+public class FramedRecordWriter {
+	private final Kryo kryo;
+	private final Output output;
+	private final Output frame = new Output(256, -1);
+
+	public FramedRecordWriter (Kryo kryo, Output output) {
+		if (kryo == null) throw new IllegalArgumentException("kryo cannot be null.");
+		if (output == null) throw new IllegalArgumentException("output cannot be null.");
+		this.kryo = kryo;
+		this.output = output;
+	}
+
+	/** Writes a record.
+	 * @param object May be null. */
+	public void write (Object object) throws KryoException {
+		frame.clear();
+		kryo.reset();
+		try {
+			kryo.writeClassAndObject(frame, object);
+		} finally {
+			kryo.reset();
+		}
+		writeFrame(frame.getBuffer(), 0, frame.position());
+	}
+
+	/** Writes an already encoded record. */
+	public void writeFrame (byte[] bytes, int offset, int count) throws KryoException {
+		output.writeVarInt(count, true);
+		output.writeBytes(bytes, offset, count);
+	}
+
+	public void flush () throws KryoException {
+		output.flush();
+	}
+
+	public void close () throws KryoException {
+		output.close();
+	}
+}
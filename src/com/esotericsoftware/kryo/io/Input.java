@@ -208,7 +208,7 @@ public class Input extends InputStream {
 
 	/** @param optional Try to fill the buffer with this many bytes.
 	 * @return the number of bytes remaining, but not more than optional, or -1 if the EOS was reached and the buffer is empty. */
-	private int optional (int optional) throws KryoException {
+	protected int optional (int optional) throws KryoException {
 		int remaining = limit - position;
 		if (remaining >= optional) return optional;
 		optional = Math.min(optional, capacity);
@@ -371,25 +371,27 @@ public class Input extends InputStream {
 	/** Reads a 1-5 byte int. It is guaranteed that a varible length encoding will be used. */
 	public int readVarInt (boolean optimizePositive) throws KryoException {
 		if (require(1) < 5) return readInt_slow(optimizePositive);
-		int b = buffer[position++];
+		byte[] buffer = this.buffer;
+		int p = position;
+		int b = buffer[p++];
 		int result = b & 0x7F;
-		if ((b & 0x80) != 0) {
-			byte[] buffer = this.buffer;
-			b = buffer[position++];
+		if (b < 0) {
+			b = buffer[p++];
 			result |= (b & 0x7F) << 7;
-			if ((b & 0x80) != 0) {
-				b = buffer[position++];
+			if (b < 0) {
+				b = buffer[p++];
 				result |= (b & 0x7F) << 14;
-				if ((b & 0x80) != 0) {
-					b = buffer[position++];
+				if (b < 0) {
+					b = buffer[p++];
 					result |= (b & 0x7F) << 21;
-					if ((b & 0x80) != 0) {
-						b = buffer[position++];
+					if (b < 0) {
+						b = buffer[p++];
 						result |= (b & 0x7F) << 28;
 					}
 				}
 			}
 		}
+		position = p;
 		return optimizePositive ? result : ((result >>> 1) ^ -(result & 1));
 	}
 
@@ -706,32 +708,33 @@ public class Input extends InputStream {
 	/** Reads a 1-9 byte long. It is guaranteed that a varible length encoding will be used. */
 	public long readVarLong (boolean optimizePositive) throws KryoException {
 		if (require(1) < 9) return readLong_slow(optimizePositive);
-		int b = buffer[position++];
+		byte[] buffer = this.buffer;
+		int p = position;
+		int b = buffer[p++];
 		long result = b & 0x7F;
-		if ((b & 0x80) != 0) {
-			byte[] buffer = this.buffer;
-			b = buffer[position++];
+		if (b < 0) {
+			b = buffer[p++];
 			result |= (b & 0x7F) << 7;
-			if ((b & 0x80) != 0) {
-				b = buffer[position++];
+			if (b < 0) {
+				b = buffer[p++];
 				result |= (b & 0x7F) << 14;
-				if ((b & 0x80) != 0) {
-					b = buffer[position++];
+				if (b < 0) {
+					b = buffer[p++];
 					result |= (b & 0x7F) << 21;
-					if ((b & 0x80) != 0) {
-						b = buffer[position++];
+					if (b < 0) {
+						b = buffer[p++];
 						result |= (long)(b & 0x7F) << 28;
-						if ((b & 0x80) != 0) {
-							b = buffer[position++];
+						if (b < 0) {
+							b = buffer[p++];
 							result |= (long)(b & 0x7F) << 35;
-							if ((b & 0x80) != 0) {
-								b = buffer[position++];
+							if (b < 0) {
+								b = buffer[p++];
 								result |= (long)(b & 0x7F) << 42;
-								if ((b & 0x80) != 0) {
-									b = buffer[position++];
+								if (b < 0) {
+									b = buffer[p++];
 									result |= (long)(b & 0x7F) << 49;
-									if ((b & 0x80) != 0) {
-										b = buffer[position++];
+									if (b < 0) {
+										b = buffer[p++];
 										result |= (long)b << 56;
 									}
 								}
@@ -741,6 +744,7 @@ public class Input extends InputStream {
 				}
 			}
 		}
+		position = p;
 		if (!optimizePositive) result = (result >>> 1) ^ -(result & 1);
 		return result;
 	}
@@ -0,0 +1,190 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+
+/** Reads a sequence of top-level objects from an {@link Input} lazily, as written by {@link KryoObjectWriter} or by consecutive
+ * calls to {@link Kryo#writeClassAndObject(Output, Object)}. The end of the sequence is the end of the input, which is detected
+ * with {@link Input#eof()}, so no exception is thrown for a clean end of stream. A truncated object still throws
+ * {@link KryoException}.
+ * 
+ * <pre>
+ * KryoObjectReader<Event> reader = new KryoObjectReader(kryo, input);
+ * for (Event event : reader)
+ * 	replay(event);
+ * </pre>
+ * 
+ * {@link #prefetch(int)} returns an iterator that reads the objects on a background thread. A reader is not thread safe and can
+ * be iterated once.
+ * @param <T> The type of the objects. */
+public class KryoObjectReader<T> implements Iterator<T>, Iterable<T> {
+	final Kryo kryo;
+	final Input input;
+	final Class<T> type;
+
+	/** Creates a reader for objects written with {@link Kryo#writeClassAndObject(Output, Object)}. */
+	public KryoObjectReader (Kryo kryo, Input input) {
+		this(kryo, input, null);
+	}
+
+	/** @param type If not null, the objects are read with {@link Kryo#readObjectOrNull(Input, Class)} and must have been written
+	 *           with {@link Kryo#writeObjectOrNull(Output, Object, Class)}. Otherwise they are read with
+	 *           {@link Kryo#readClassAndObject(Input)}. */
+	public KryoObjectReader (Kryo kryo, Input input, Class<T> type) {
+		if (kryo == null) throw new IllegalArgumentException("kryo cannot be null.");
+		if (input == null) throw new IllegalArgumentException("input cannot be null.");
+		this.kryo = kryo;
+		this.input = input;
+		this.type = type;
+	}
+
+	public boolean hasNext () throws KryoException {
+		return !input.eof();
+	}
+
+	public T next () throws KryoException {
+		if (input.eof()) throw new NoSuchElementException();
+		if (type != null) return kryo.readObjectOrNull(input, type);
+		return (T)kryo.readClassAndObject(input);
+	}
+
+	public void remove () {
+		throw new UnsupportedOperationException();
+	}
+
+	public Iterator<T> iterator () {
+		return this;
+	}
+
+	/** Returns an iterator that reads the objects on a new daemon thread, up to the given number of objects ahead of the caller.
+	 * The Kryo instance and input must not be used by other threads until the iterator is exhausted or closed. An exception
+	 * thrown while reading is rethrown by {@link Iterator#next()}. */
+	public PrefetchIterator<T> prefetch (int capacity) {
+		if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+		PrefetchIterator<T> iterator = new PrefetchIterator(this, capacity);
+		iterator.thread.start();
+		return iterator;
+	}
+
+	/** Iterates objects read by a background thread, see {@link KryoObjectReader#prefetch(int)}. */
+	static public class PrefetchIterator<T> implements Iterator<T>, Iterable<T> {
+		static private final Object end = new Object();
+
+		final BlockingQueue<Object> queue;
+		final Thread thread;
+		private Object next;
+		volatile Throwable error;
+		volatile boolean closed;
+
+		PrefetchIterator (final KryoObjectReader<T> reader, int capacity) {
+			queue = new ArrayBlockingQueue(capacity);
+			thread = new Thread("KryoObjectReader prefetch") {
+				public void run () {
+					try {
+						while (!closed && reader.hasNext())
+							queue.put(new Value(reader.next()));
+					} catch (InterruptedException ignored) {
+					} catch (Throwable ex) {
+						error = ex;
+					}
+					try {
+						if (!closed) queue.put(end);
+					} catch (InterruptedException ignored) {
+					}
+				}
+			};
+			thread.setDaemon(true);
+		}
+
+		public boolean hasNext () throws KryoException {
+			if (next == null) {
+				if (closed) return false;
+				try {
+					next = queue.take();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new KryoException("Interrupted while waiting for the next object.", ex);
+				}
+			}
+			if (next != end) return true;
+			if (error != null) {
+				Throwable ex = error;
+				error = null;
+				if (ex instanceof KryoException) throw (KryoException)ex;
+				if (ex instanceof RuntimeException) throw (RuntimeException)ex;
+				if (ex instanceof Error) throw (Error)ex;
+				throw new KryoException(ex);
+			}
+			return false;
+		}
+
+		public T next () throws KryoException {
+			if (!hasNext()) throw new NoSuchElementException();
+			T value = ((Value<T>)next).value;
+			next = null;
+			return value;
+		}
+
+		public void remove () {
+			throw new UnsupportedOperationException();
+		}
+
+		public Iterator<T> iterator () {
+			return this;
+		}
+
+		/** Stops the background thread between objects and waits for it to finish, after which the Kryo instance and input can be
+		 * used again. The thread is not interrupted, so an object being read is always read completely and an interruptible channel
+		 * is not closed. If the input blocks waiting for more bytes, this method waits until they arrive or the input is closed. */
+		public void close () {
+			closed = true;
+			// Makes room for an object the thread is putting, after which it sees closed and stops.
+			queue.clear();
+			boolean interrupted = false;
+			while (true) {
+				try {
+					thread.join();
+					break;
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) Thread.currentThread().interrupt();
+			queue.clear();
+			next = end;
+		}
+	}
+
+	/** Wraps each object so that null objects can be queued. */
+	static class Value<T> {
+		final T value;
+
+		Value (T value) {
+			this.value = value;
+		}
+	}
+}
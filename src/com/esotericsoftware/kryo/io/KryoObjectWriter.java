@@ -0,0 +1,87 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+
+/** Writes a sequence of top-level objects to an {@link Output}, to be read with {@link KryoObjectReader}. Instead of flushing
+ * after each object, the output is flushed after every batch of objects, so an OutputStream such as a socket or file receives
+ * fewer, larger writes. A writer is not thread safe.
+ * @param <T> The type of the objects. */
+public class KryoObjectWriter<T> {
+	private final Kryo kryo;
+	private final Output output;
+	private final Class<T> type;
+	private int batchSize = 64, batchCount;
+	private long count;
+
+	/** Creates a writer that writes objects with {@link Kryo#writeClassAndObject(Output, Object)}. */
+	public KryoObjectWriter (Kryo kryo, Output output) {
+		this(kryo, output, null);
+	}
+
+	/** @param type If not null, the objects are written with {@link Kryo#writeObjectOrNull(Output, Object, Class)}. Otherwise
+	 *           they are written with {@link Kryo#writeClassAndObject(Output, Object)}. */
+	public KryoObjectWriter (Kryo kryo, Output output, Class<T> type) {
+		if (kryo == null) throw new IllegalArgumentException("kryo cannot be null.");
+		if (output == null) throw new IllegalArgumentException("output cannot be null.");
+		this.kryo = kryo;
+		this.output = output;
+		this.type = type;
+	}
+
+	/** Sets the number of objects written between flushes (default 64). 1 flushes after each object. */
+	public void setBatchSize (int batchSize) {
+		if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be > 0: " + batchSize);
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize () {
+		return batchSize;
+	}
+
+	/** Returns the number of objects written. */
+	public long getCount () {
+		return count;
+	}
+
+	/** @param object May be null. */
+	public void write (T object) throws KryoException {
+		if (type != null)
+			kryo.writeObjectOrNull(output, object, type);
+		else
+			kryo.writeClassAndObject(output, object);
+		count++;
+		if (++batchCount == batchSize) flush();
+	}
+
+	/** Flushes the output, ending the current batch. */
+	public void flush () throws KryoException {
+		batchCount = 0;
+		output.flush();
+	}
+
+	/** Flushes and closes the output. */
+	public void close () throws KryoException {
+		batchCount = 0;
+		output.close();
+	}
+}
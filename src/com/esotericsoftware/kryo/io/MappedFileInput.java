@@ -0,0 +1,231 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import static com.esotericsoftware.minlog.Log.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.util.UnsafeUtil;
+
+/** An Input that reads a file through memory mapped regions. When the bytes for a read extend past the current region, the next
+ * region is mapped starting at the current file position, so files larger than 2GB can be read without copying them through an
+ * InputStream.
+ * <p>
+ * {@link #total()} and {@link #seek(long)} use the absolute position in the file. {@link #position()} and {@link #limit()} are
+ * positions in the current region. Regions are unmapped when they are no longer used, if the JVM allows it, so ByteBuffers
+ * obtained from {@link #getByteBuffer()} must not be used after the input moves to another region. */
+public class MappedFileInput extends ByteBufferInput {
+	static public final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+	private final FileChannel channel;
+	private final int regionSize;
+	private final long length;
+	private long regionStart;
+
+	/** Creates an input that reads the file from the start. */
+	public MappedFileInput (File file) throws KryoException {
+		this(file, DEFAULT_REGION_SIZE);
+	}
+
+	/** Creates an input that reads the file from the start.
+	 * @param regionSize The size of each mapped region. */
+	public MappedFileInput (File file, int regionSize) throws KryoException {
+		this(open(file), 0, regionSize);
+	}
+
+	/** Creates an input that reads the channel starting at the given position. The channel is closed when this input is closed.
+	 * @param regionSize The size of each mapped region. */
+	public MappedFileInput (FileChannel channel, long position, int regionSize) throws KryoException {
+		if (channel == null) throw new IllegalArgumentException("channel cannot be null.");
+		if (regionSize <= 0) throw new IllegalArgumentException("regionSize must be > 0: " + regionSize);
+		this.channel = channel;
+		this.regionSize = regionSize;
+		try {
+			length = channel.size();
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+		if (position < 0 || position > length)
+			throw new IllegalArgumentException("position must be >= 0 and <= " + length + ": " + position);
+		map(position);
+	}
+
+	static private FileChannel open (File file) throws KryoException {
+		try {
+			return new RandomAccessFile(file, "r").getChannel();
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+	}
+
+	private void map (long start) throws KryoException {
+		map(start, (int)Math.min(regionSize, length - start));
+	}
+
+	private void map (long start, int size) throws KryoException {
+		if (niobuffer != null) {
+			unmap(niobuffer);
+			niobuffer = null;
+		}
+		try {
+			niobuffer = channel.map(MapMode.READ_ONLY, start, size);
+		} catch (IOException ex) {
+			throw new KryoException("Unable to map region at: " + start + ", size: " + size, ex);
+		}
+		niobuffer.order(byteOrder);
+		regionStart = start;
+		total = start;
+		capacity = size;
+		limit = size;
+		position = 0;
+	}
+
+	public FileChannel getChannel () {
+		return channel;
+	}
+
+	public int getRegionSize () {
+		return regionSize;
+	}
+
+	/** Returns the length of the file. */
+	public long length () {
+		return length;
+	}
+
+	/** Returns true if the position is at the end of the file. */
+	public boolean eof () {
+		return regionStart + position >= length;
+	}
+
+	/** Moves to the given absolute position in the file. */
+	public void seek (long position) throws KryoException {
+		if (position < 0 || position > length)
+			throw new IllegalArgumentException("position must be >= 0 and <= " + length + ": " + position);
+		if (position >= regionStart && position <= regionStart + limit)
+			setPosition((int)(position - regionStart));
+		else
+			map(position);
+	}
+
+	/** @return the number of bytes remaining in the current region. */
+	protected int require (int required) throws KryoException {
+		int remaining = limit - position;
+		if (remaining >= required) return remaining;
+		long start = regionStart + position;
+		if (length - start < required) throw new KryoException("Buffer underflow.");
+		map(start, (int)Math.min(Math.max(regionSize, required), length - start));
+		return limit;
+	}
+
+	/** @return the number of bytes remaining, but not more than optional, or -1 if the end of the file was reached. */
+	protected int optional (int optional) throws KryoException {
+		int remaining = limit - position;
+		if (remaining >= optional) return optional;
+		long start = regionStart + position;
+		if (start >= length) return -1;
+		if (length - start > remaining) map(start, (int)Math.min(Math.max(regionSize, optional), length - start));
+		return Math.min(limit - position, optional);
+	}
+
+	public int read () throws KryoException {
+		if (optional(1) <= 0) return -1;
+		niobuffer.position(position);
+		position++;
+		return niobuffer.get() & 0xFF;
+	}
+
+	public int read (byte[] bytes, int offset, int count) throws KryoException {
+		if (bytes == null) throw new IllegalArgumentException("bytes cannot be null.");
+		int copyCount = optional(count);
+		if (copyCount == -1) return count == 0 ? 0 : -1;
+		niobuffer.position(position);
+		niobuffer.get(bytes, offset, copyCount);
+		position += copyCount;
+		return copyCount;
+	}
+
+	public boolean canReadInt () throws KryoException {
+		if (limit - position >= 5) return true;
+		if (optional(5) <= 0) return false;
+		return super.canReadInt();
+	}
+
+	public boolean canReadLong () throws KryoException {
+		if (limit - position >= 9) return true;
+		if (optional(9) <= 0) return false;
+		return super.canReadLong();
+	}
+
+	/** Discards the specified number of bytes by moving the position in the file. */
+	public long skip (long count) throws KryoException {
+		seek(Math.min(length, regionStart + position + count));
+		return count;
+	}
+
+	public void skip (int count) throws KryoException {
+		long target = regionStart + position + count;
+		if (target > length) throw new KryoException("Buffer underflow.");
+		seek(target);
+	}
+
+	/** Sets the position in the file to 0. */
+	public void rewind () {
+		seek(0);
+	}
+
+	/** Not supported, the input reads from the mapped file. */
+	public void setInputStream (InputStream inputStream) {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Unmaps the current region and closes the channel. */
+	public void close () throws KryoException {
+		if (niobuffer == null) return;
+		unmap(niobuffer);
+		niobuffer = null;
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	static private boolean unmapAvailable = true;
+
+	/** Unmaps a region without waiting for it to be garbage collected. Unmapping uses JDK internals which are not accessible on
+	 * all JVMs (eg Java 9+), if it fails the region is left for the garbage collector to unmap. */
+	static void unmap (ByteBuffer buffer) {
+		if (!unmapAvailable) return;
+		try {
+			UnsafeUtil.releaseBuffer(buffer);
+		} catch (Throwable ex) {
+			unmapAvailable = false;
+			if (DEBUG) debug("kryo", "Unable to unmap memory mapped regions, they are unmapped by the garbage collector.", ex);
+		}
+	}
+}
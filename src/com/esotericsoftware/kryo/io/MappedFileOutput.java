@@ -0,0 +1,157 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.esotericsoftware.kryo.KryoException;
+
+/** An Output that writes to a file through memory mapped regions. When the current region is full, the next region is mapped
+ * starting at the current file position, so files larger than 2GB can be written and no bytes are copied through the heap.
+ * <p>
+ * {@link #total()} and {@link #seek(long)} use the absolute position in the file. {@link #position()} is the position in the
+ * current region. When the output is closed, the file is truncated to the end of the written bytes, or its original length if
+ * that was larger. Regions are unmapped when they are no longer used, if the JVM allows it, so ByteBuffers obtained from
+ * {@link #getByteBuffer()} must not be used after the output moves to another region. */
+public class MappedFileOutput extends ByteBufferOutput {
+	static public final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+	private final FileChannel channel;
+	private final int regionSize;
+	private long regionStart, end;
+
+	/** Creates an output that writes to the file from the start, truncating it. */
+	public MappedFileOutput (File file) throws KryoException {
+		this(file, DEFAULT_REGION_SIZE);
+	}
+
+	/** Creates an output that writes to the file from the start, truncating it.
+	 * @param regionSize The size of each mapped region. */
+	public MappedFileOutput (File file, int regionSize) throws KryoException {
+		this(open(file), 0, regionSize);
+	}
+
+	/** Creates an output that writes to the channel starting at the given position. The channel must be readable and writable. It
+	 * is closed when this output is closed.
+	 * @param regionSize The size of each mapped region. */
+	public MappedFileOutput (FileChannel channel, long position, int regionSize) throws KryoException {
+		if (channel == null) throw new IllegalArgumentException("channel cannot be null.");
+		if (position < 0) throw new IllegalArgumentException("position cannot be < 0: " + position);
+		if (regionSize <= 0) throw new IllegalArgumentException("regionSize must be > 0: " + regionSize);
+		this.channel = channel;
+		this.regionSize = regionSize;
+		maxCapacity = Integer.MAX_VALUE;
+		try {
+			end = channel.size();
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+		map(position, regionSize);
+	}
+
+	static private FileChannel open (File file) throws KryoException {
+		try {
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			randomAccessFile.setLength(0);
+			return randomAccessFile.getChannel();
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+	}
+
+	private void map (long start, int size) throws KryoException {
+		if (niobuffer != null) {
+			end = Math.max(end, regionStart + position);
+			MappedFileInput.unmap(niobuffer);
+			niobuffer = null;
+		}
+		try {
+			niobuffer = channel.map(MapMode.READ_WRITE, start, size);
+		} catch (IOException ex) {
+			throw new KryoException("Unable to map region at: " + start + ", size: " + size, ex);
+		}
+		niobuffer.order(byteOrder);
+		regionStart = start;
+		total = start;
+		capacity = size;
+		position = 0;
+	}
+
+	public FileChannel getChannel () {
+		return channel;
+	}
+
+	public int getRegionSize () {
+		return regionSize;
+	}
+
+	/** Moves to the given absolute position in the file. */
+	public void seek (long position) throws KryoException {
+		if (position < 0) throw new IllegalArgumentException("position cannot be < 0: " + position);
+		end = Math.max(end, regionStart + this.position);
+		if (position >= regionStart && position <= regionStart + capacity) {
+			setPosition((int)(position - regionStart));
+			return;
+		}
+		map(position, regionSize);
+	}
+
+	/** @return true if a new region was mapped. */
+	protected boolean require (int required) throws KryoException {
+		if (capacity - position >= required) return false;
+		map(regionStart + position, Math.max(regionSize, required));
+		return true;
+	}
+
+	/** Not supported, the output writes to the mapped file. */
+	public void setOutputStream (OutputStream outputStream) {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Sets the position in the file to 0. */
+	public void clear () {
+		seek(0);
+	}
+
+	/** Forces the written bytes in the current region to be written to the storage device. */
+	public void flush () throws KryoException {
+		if (niobuffer != null) ((MappedByteBuffer)niobuffer).force();
+	}
+
+	/** Unmaps the current region, truncates the file to the end of the written bytes and closes the channel. */
+	public void close () throws KryoException {
+		if (niobuffer == null) return;
+		end = Math.max(end, regionStart + position);
+		MappedFileInput.unmap(niobuffer);
+		niobuffer = null;
+		try {
+			channel.truncate(end);
+			channel.close();
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+	}
+}
@@ -280,6 +280,40 @@ public class Output extends OutputStream {
 	 *           inefficient (5 bytes). */
 	public int writeVarInt (int value, boolean optimizePositive) throws KryoException {
 		if (!optimizePositive) value = (value << 1) ^ (value >> 31);
+		if (capacity - position < 5) return writeVarInt_slow(value);
+		byte[] buffer = this.buffer;
+		int p = position;
+		if (value >>> 7 == 0) {
+			buffer[p] = (byte)value;
+			position = p + 1;
+			return 1;
+		}
+		buffer[p++] = (byte)(value | 0x80);
+		if (value >>> 14 == 0) {
+			buffer[p] = (byte)(value >>> 7);
+			position = p + 1;
+			return 2;
+		}
+		buffer[p++] = (byte)(value >>> 7 | 0x80);
+		if (value >>> 21 == 0) {
+			buffer[p] = (byte)(value >>> 14);
+			position = p + 1;
+			return 3;
+		}
+		buffer[p++] = (byte)(value >>> 14 | 0x80);
+		if (value >>> 28 == 0) {
+			buffer[p] = (byte)(value >>> 21);
+			position = p + 1;
+			return 4;
+		}
+		buffer[p++] = (byte)(value >>> 21 | 0x80);
+		buffer[p] = (byte)(value >>> 28);
+		position = p + 1;
+		return 5;
+	}
+
+	private int writeVarInt_slow (int value) {
+		// The buffer may not have room for 5 bytes, require only the bytes needed for the value.
 		if (value >>> 7 == 0) {
 			require(1);
 			buffer[position++] = (byte)value;
@@ -554,6 +588,64 @@ public class Output extends OutputStream {
 	 *           inefficient (9 bytes). */
 	public int writeVarLong (long value, boolean optimizePositive) throws KryoException {
 		if (!optimizePositive) value = (value << 1) ^ (value >> 63);
+		if (capacity - position < 9) return writeVarLong_slow(value);
+		byte[] buffer = this.buffer;
+		int p = position;
+		if (value >>> 7 == 0) {
+			buffer[p] = (byte)value;
+			position = p + 1;
+			return 1;
+		}
+		buffer[p++] = (byte)(value | 0x80);
+		if (value >>> 14 == 0) {
+			buffer[p] = (byte)(value >>> 7);
+			position = p + 1;
+			return 2;
+		}
+		buffer[p++] = (byte)(value >>> 7 | 0x80);
+		if (value >>> 21 == 0) {
+			buffer[p] = (byte)(value >>> 14);
+			position = p + 1;
+			return 3;
+		}
+		buffer[p++] = (byte)(value >>> 14 | 0x80);
+		if (value >>> 28 == 0) {
+			buffer[p] = (byte)(value >>> 21);
+			position = p + 1;
+			return 4;
+		}
+		buffer[p++] = (byte)(value >>> 21 | 0x80);
+		if (value >>> 35 == 0) {
+			buffer[p] = (byte)(value >>> 28);
+			position = p + 1;
+			return 5;
+		}
+		buffer[p++] = (byte)(value >>> 28 | 0x80);
+		if (value >>> 42 == 0) {
+			buffer[p] = (byte)(value >>> 35);
+			position = p + 1;
+			return 6;
+		}
+		buffer[p++] = (byte)(value >>> 35 | 0x80);
+		if (value >>> 49 == 0) {
+			buffer[p] = (byte)(value >>> 42);
+			position = p + 1;
+			return 7;
+		}
+		buffer[p++] = (byte)(value >>> 42 | 0x80);
+		if (value >>> 56 == 0) {
+			buffer[p] = (byte)(value >>> 49);
+			position = p + 1;
+			return 8;
+		}
+		buffer[p++] = (byte)(value >>> 49 | 0x80);
+		buffer[p] = (byte)(value >>> 56);
+		position = p + 1;
+		return 9;
+	}
+
+	private int writeVarLong_slow (long value) {
+		// The buffer may not have room for 9 bytes, require only the bytes needed for the value.
 		if (value >>> 7 == 0) {
 			require(1);
 			buffer[position++] = (byte)value;
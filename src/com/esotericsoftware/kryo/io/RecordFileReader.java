@@ -0,0 +1,120 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import java.io.File;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.util.ObjectMap;
+
+/** Reads a record file written by {@link RecordFileWriter}. The index is read when the reader is opened, after which any record
+ * can be read with a single seek. The file is read through a {@link MappedFileInput}. A reader is not thread safe.
+ * @see RecordFileWriter */
+public class RecordFileReader {
+	private final Kryo kryo;
+	private final MappedFileInput input;
+	private final long[] offsets;
+	private final String[] keys;
+	private final ObjectMap<String, Integer> keyToRecord = new ObjectMap();
+
+	public RecordFileReader (Kryo kryo, File file) throws KryoException {
+		this(kryo, new MappedFileInput(file));
+	}
+
+	/** @param input Its file must have been written by a {@link RecordFileWriter}. */
+	public RecordFileReader (Kryo kryo, MappedFileInput input) throws KryoException {
+		if (kryo == null) throw new IllegalArgumentException("kryo cannot be null.");
+		if (input == null) throw new IllegalArgumentException("input cannot be null.");
+		this.kryo = kryo;
+		this.input = input;
+
+		long length = input.length();
+		if (length < 5 + 1 + 12) throw new KryoException("Not a record file, too short: " + length);
+		input.seek(0);
+		if (input.readInt() != RecordFileWriter.MAGIC) throw new KryoException("Not a record file.");
+		byte version = input.readByte();
+		if (version != RecordFileWriter.VERSION) throw new KryoException("Unsupported record file version: " + version);
+		input.seek(length - 12);
+		long indexOffset = input.readLong();
+		if (input.readInt() != RecordFileWriter.MAGIC) throw new KryoException("Record file has no index, it may be truncated.");
+		if (indexOffset < 5 || indexOffset > length - 12) throw new KryoException("Invalid record file index offset: " + indexOffset);
+
+		input.seek(indexOffset);
+		int count = input.readVarInt(true);
+		offsets = new long[count];
+		keys = new String[count];
+		long offset = 0;
+		for (int i = 0; i < count; i++) {
+			offset += input.readVarLong(true);
+			offsets[i] = offset;
+			String key = input.readString();
+			keys[i] = key;
+			if (key != null) keyToRecord.put(key, i);
+		}
+	}
+
+	/** Returns the number of records. */
+	public int size () {
+		return offsets.length;
+	}
+
+	/** Returns the offset of the record in the file. */
+	public long getOffset (int record) {
+		return offsets[record];
+	}
+
+	/** Returns the key of the record, or null. */
+	public String getKey (int record) {
+		return keys[record];
+	}
+
+	/** Returns the record number for the key, or -1. */
+	public int indexOf (String key) {
+		Integer record = keyToRecord.get(key);
+		return record == null ? -1 : record;
+	}
+
+	/** Reads the record with the given number. */
+	public Object read (int record) throws KryoException {
+		if (record < 0 || record >= offsets.length)
+			throw new IndexOutOfBoundsException("record must be >= 0 and < " + offsets.length + ": " + record);
+		input.seek(offsets[record]);
+		kryo.reset();
+		try {
+			return kryo.readClassAndObject(input);
+		} finally {
+			kryo.reset();
+		}
+	}
+
+	/** Reads the record with the given key.
+	 * @throws KryoException if no record has the key. */
+	public Object read (String key) throws KryoException {
+		int record = indexOf(key);
+		if (record == -1) throw new KryoException("Record not found: " + key);
+		return read(record);
+	}
+
+	/** Closes the file. */
+	public void close () throws KryoException {
+		input.close();
+	}
+}
@@ -0,0 +1,136 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.util.ObjectMap;
+
+/** Writes a record file, a sequence of independently encoded objects followed by an index, which {@link RecordFileReader} can
+ * read in any order.
+ * <p>
+ * The file starts with the int {@link #MAGIC} and a version byte. Each record is written with
+ * {@link Kryo#writeClassAndObject(Output, Object)}, and {@link Kryo#reset()} is called after each record so that no references or
+ * class IDs are shared between records. The index follows the records: the varint record count, then for each record the varlong
+ * distance from the previous record's offset and the key written with {@link Output#writeString(String)}, which is null for
+ * records without a key. The file ends with the long offset of the index and the int {@link #MAGIC}.
+ * <p>
+ * Records are read with {@link Kryo#readClassAndObject(Input)}, so the reader must use a Kryo configured like the writer's. */
+public class RecordFileWriter {
+	static public final int MAGIC = 0x4B52463F;
+	static public final byte VERSION = 1;
+
+	private final Kryo kryo;
+	private final Output output;
+	private long[] offsets = new long[64];
+	private final ArrayList<String> keys = new ArrayList();
+	private final ObjectMap<String, Integer> keyToRecord = new ObjectMap();
+	private int count;
+	private boolean closed;
+
+	public RecordFileWriter (Kryo kryo, File file) throws KryoException {
+		this(kryo, open(file));
+	}
+
+	/** @param output Receives the file contents. Its {@link Output#total()} must be 0. */
+	public RecordFileWriter (Kryo kryo, Output output) throws KryoException {
+		if (kryo == null) throw new IllegalArgumentException("kryo cannot be null.");
+		if (output == null) throw new IllegalArgumentException("output cannot be null.");
+		if (output.total() != 0) throw new IllegalArgumentException("output must be at the start of the file: " + output.total());
+		this.kryo = kryo;
+		this.output = output;
+		output.writeInt(MAGIC);
+		output.writeByte(VERSION);
+	}
+
+	static private Output open (File file) throws KryoException {
+		try {
+			return new Output(new FileOutputStream(file), 64 * 1024);
+		} catch (FileNotFoundException ex) {
+			throw new KryoException("Unable to open file: " + file, ex);
+		}
+	}
+
+	/** Writes a record without a key.
+	 * @param object May be null.
+	 * @return The record number. */
+	public int write (Object object) throws KryoException {
+		return write(null, object);
+	}
+
+	/** Writes a record. If serialization fails, no record is added and the writer can still be used. The bytes of the failed
+	 * record are discarded if they are still buffered, else they are left in the file unreferenced by the index.
+	 * @param key May be null. Keys must be unique within the file.
+	 * @param object May be null.
+	 * @return The record number. */
+	public int write (String key, Object object) throws KryoException {
+		if (closed) throw new KryoException("Writer is closed.");
+		if (key != null && keyToRecord.containsKey(key)) throw new IllegalArgumentException("Duplicate key: " + key);
+		long offset = output.total();
+		boolean success = false;
+		kryo.reset();
+		try {
+			kryo.writeClassAndObject(output, object);
+			success = true;
+		} finally {
+			kryo.reset();
+			if (!success) {
+				long flushed = output.total() - output.position();
+				if (offset >= flushed) output.setPosition((int)(offset - flushed));
+			}
+		}
+		if (count == offsets.length) {
+			long[] newOffsets = new long[count * 2];
+			System.arraycopy(offsets, 0, newOffsets, 0, count);
+			offsets = newOffsets;
+		}
+		offsets[count] = offset;
+		keys.add(key);
+		if (key != null) keyToRecord.put(key, count);
+		return count++;
+	}
+
+	/** Returns the number of records written. */
+	public int size () {
+		return count;
+	}
+
+	/** Writes the index and closes the output. */
+	public void close () throws KryoException {
+		if (closed) return;
+		closed = true;
+		long indexOffset = output.total();
+		output.writeVarInt(count, true);
+		long previous = 0;
+		for (int i = 0; i < count; i++) {
+			output.writeVarLong(offsets[i] - previous, true);
+			previous = offsets[i];
+			output.writeString(keys.get(i));
+		}
+		output.writeLong(indexOffset);
+		output.writeInt(MAGIC);
+		output.close();
+	}
+}
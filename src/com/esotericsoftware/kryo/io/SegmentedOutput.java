@@ -0,0 +1,191 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.util.IntArray;
+
+/** An Output that writes to a chain of fixed size segments instead of a single buffer. When a segment is full a new segment is
+ * started, so written bytes are never copied as the output grows and no array larger than the segment size is allocated. The
+ * written bytes can be exported to an OutputStream, to a channel using a gathering write, as ByteBuffers wrapping the segments,
+ * or copied into a single byte array.
+ * <p>
+ * The segment where the bytes for a single primitive would not fit is left partially filled. {@link #getBuffer()},
+ * {@link #position()} and {@link #setPosition(int)} refer to the current segment, {@link #total()} is the number of bytes written
+ * to all segments. Subclasses can override {@link #newSegment(int)} and {@link #freeSegment(byte[])} to pool the segments. */
+public class SegmentedOutput extends Output {
+	static private final byte[] empty = new byte[0];
+
+	private final int segmentSize;
+	private final ArrayList<byte[]> segments = new ArrayList();
+	private final IntArray segmentLengths = new IntArray();
+
+	/** Creates an output with a segment size of 64KB. */
+	public SegmentedOutput () {
+		this(64 * 1024);
+	}
+
+	/** @param segmentSize The size of each segment. Bigger segments are only allocated if a single write needs more bytes. */
+	public SegmentedOutput (int segmentSize) {
+		if (segmentSize <= 0) throw new IllegalArgumentException("segmentSize must be > 0: " + segmentSize);
+		this.segmentSize = segmentSize;
+		maxCapacity = Integer.MAX_VALUE;
+		// The first segment is allocated by the first require, so newSegment is not called before a subclass is initialized.
+		// Until then an empty buffer is used, as Output may copy zero bytes into the buffer before it calls require.
+		buffer = empty;
+	}
+
+	/** Returns a new segment with a length of at least the given size. */
+	protected byte[] newSegment (int size) {
+		return new byte[size];
+	}
+
+	/** Called when a segment is no longer used by this output. */
+	protected void freeSegment (byte[] segment) {
+	}
+
+	public int getSegmentSize () {
+		return segmentSize;
+	}
+
+	/** Returns the number of segments holding written bytes, including the current segment. */
+	public int getSegmentCount () {
+		return segments.size() + (position > 0 ? 1 : 0);
+	}
+
+	protected boolean require (int required) throws KryoException {
+		// Output may require zero bytes when the buffer is full, so the empty buffer is always replaced.
+		if (capacity - position >= required && capacity > 0) return false;
+		if (position > 0) {
+			segments.add(buffer);
+			segmentLengths.add(position);
+			total += position;
+		} else if (buffer != empty) {
+			freeSegment(buffer);
+		}
+		buffer = newSegment(Math.max(segmentSize, required));
+		capacity = buffer.length;
+		position = 0;
+		return true;
+	}
+
+	/** Discards all written bytes. The segments other than the current segment are freed. */
+	public void clear () {
+		for (int i = 0, n = segments.size(); i < n; i++)
+			freeSegment(segments.get(i));
+		segments.clear();
+		segmentLengths.clear();
+		position = 0;
+		total = 0;
+	}
+
+	/** Discards all written bytes and frees all segments. The output can still be written to, which allocates new segments. */
+	public void close () {
+		clear();
+		if (buffer != empty) {
+			freeSegment(buffer);
+			buffer = empty;
+			capacity = 0;
+		}
+	}
+
+	/** Not supported, the bytes are kept in the segments until they are exported. */
+	public void setOutputStream (OutputStream outputStream) {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Not supported, the output allocates its own segments. */
+	public void setBuffer (byte[] buffer, int maxBufferSize) {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Returns a new byte array containing all written bytes.
+	 * @throws KryoException if more bytes were written than fit in a byte array. */
+	public byte[] toBytes () {
+		long total = total();
+		if (total > Integer.MAX_VALUE - 8) throw new KryoException("Too many bytes for a byte array: " + total);
+		byte[] bytes = new byte[(int)total];
+		int offset = 0;
+		for (int i = 0, n = segments.size(); i < n; i++) {
+			int length = segmentLengths.get(i);
+			System.arraycopy(segments.get(i), 0, bytes, offset, length);
+			offset += length;
+		}
+		if (position > 0) System.arraycopy(buffer, 0, bytes, offset, position);
+		return bytes;
+	}
+
+	/** Returns ByteBuffers wrapping the written bytes in each segment. The ByteBuffers share the segments, so they are only valid
+	 * until the output is written to, cleared or closed. */
+	public ByteBuffer[] toByteBuffers () {
+		int count = segments.size();
+		ByteBuffer[] buffers = new ByteBuffer[count + (position > 0 ? 1 : 0)];
+		for (int i = 0; i < count; i++)
+			buffers[i] = ByteBuffer.wrap(segments.get(i), 0, segmentLengths.get(i));
+		if (position > 0) buffers[count] = ByteBuffer.wrap(buffer, 0, position);
+		return buffers;
+	}
+
+	/** Writes all written bytes to the stream, one write per segment. */
+	public void writeTo (OutputStream outputStream) throws KryoException {
+		try {
+			for (int i = 0, n = segments.size(); i < n; i++)
+				outputStream.write(segments.get(i), 0, segmentLengths.get(i));
+			if (position > 0) outputStream.write(buffer, 0, position);
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+	}
+
+	/** Writes all written bytes to the channel, using a single gathering write if the channel is a {@link GatheringByteChannel}.
+	 * The channel must be in blocking mode.
+	 * @return The number of bytes written. */
+	public long writeTo (WritableByteChannel channel) throws KryoException {
+		ByteBuffer[] buffers = toByteBuffers();
+		long total = total(), written = 0;
+		try {
+			if (channel instanceof GatheringByteChannel) {
+				GatheringByteChannel gathering = (GatheringByteChannel)channel;
+				int offset = 0;
+				while (written < total) {
+					written += gathering.write(buffers, offset, buffers.length - offset);
+					while (offset < buffers.length && !buffers[offset].hasRemaining())
+						offset++;
+				}
+			} else {
+				for (int i = 0; i < buffers.length; i++) {
+					ByteBuffer buffer = buffers[i];
+					while (buffer.hasRemaining())
+						written += channel.write(buffer);
+				}
+			}
+		} catch (IOException ex) {
+			throw new KryoException(ex);
+		}
+		return written;
+	}
+}
@@ -22,8 +22,10 @@ package com.esotericsoftware.kryo.io;
 import static com.esotericsoftware.kryo.util.UnsafeUtil.*;
 
 import java.io.InputStream;
+import java.nio.ByteOrder;
 
 import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.util.Util;
 
 /** An optimized InputStream that reads data from a byte array and optionally fills the byte array from another InputStream as
  * needed. Utility methods are provided for efficiently writing primitive types, arrays of primitive types and strings. It uses
@@ -43,6 +45,8 @@ public final class UnsafeInput extends Input {
 
 	private boolean varIntsEnabled = false;
 
+	private static final boolean isLittleEndian = ByteOrder.nativeOrder().equals(ByteOrder.LITTLE_ENDIAN);
+
 	/** Creates an uninitialized Input. {@link #setBuffer(byte[], int, int)} must be called before the Input is used. */
 	public UnsafeInput () {
 	}
@@ -148,6 +152,59 @@ public final class UnsafeInput extends Input {
 			return super.readLong(optimizePositive);
 	}
 
+	/** Reads a 1-5 byte int. When at least 8 bytes are buffered, they are read with a single load and decoded without a branch
+	 * per byte. */
+	public int readVarInt (boolean optimizePositive) throws KryoException {
+		if (limit - position < 8) return super.readVarInt(optimizePositive);
+		int p = position;
+		int b = buffer[p];
+		if (b >= 0) {
+			position = p + 1;
+			return optimizePositive ? b : ((b >>> 1) ^ -(b & 1));
+		}
+		long bits = unsafe().getLong(buffer, byteArrayBaseOffset + p);
+		if (!isLittleEndian) bits = Util.swapLong(bits);
+		// The first byte without the continuation bit is the last byte. The 5th byte is always the last byte.
+		int length = (Long.numberOfTrailingZeros(~bits & 0x8080808080L) >>> 3) + 1;
+		if (length > 5) length = 5;
+		position = p + length;
+		bits &= (1L << (length << 3)) - 1;
+		int result = (int)((bits & 0x7F) | ((bits >>> 1) & 0x3F80) | ((bits >>> 2) & 0x1FC000) | ((bits >>> 3) & 0xFE00000)
+			| ((bits >>> 4) & 0xF0000000L));
+		return optimizePositive ? result : ((result >>> 1) ^ -(result & 1));
+	}
+
+	/** Reads a 1-9 byte long. When at least 9 bytes are buffered, the first 8 bytes are read with a single load and decoded
+	 * without a branch per byte. */
+	public long readVarLong (boolean optimizePositive) throws KryoException {
+		if (limit - position < 9) return super.readVarLong(optimizePositive);
+		int p = position;
+		int b = buffer[p];
+		if (b >= 0) {
+			position = p + 1;
+			return optimizePositive ? b : ((b >>> 1) ^ -(b & 1));
+		}
+		long bits = unsafe().getLong(buffer, byteArrayBaseOffset + p);
+		if (!isLittleEndian) bits = Util.swapLong(bits);
+		long stops = ~bits & 0x8080808080808080L;
+		long result;
+		if (stops == 0) {
+			// All 8 bytes have the continuation bit, the 9th byte has the remaining 8 bits.
+			result = (long)buffer[p + 8] << 56;
+			position = p + 9;
+		} else {
+			int length = (Long.numberOfTrailingZeros(stops) >>> 3) + 1;
+			if (length < 8) bits &= (1L << (length << 3)) - 1;
+			result = 0;
+			position = p + length;
+		}
+		result |= (bits & 0x7F) | ((bits >>> 1) & 0x3F80) | ((bits >>> 2) & 0x1FC000) | ((bits >>> 3) & 0xFE00000L)
+			| ((bits >>> 4) & 0x7F0000000L) | ((bits >>> 5) & 0x3F800000000L) | ((bits >>> 6) & 0x1FC0000000000L)
+			| ((bits >>> 7) & 0xFE000000000000L);
+		if (!optimizePositive) result = (result >>> 1) ^ -(result & 1);
+		return result;
+	}
+
 	// Methods implementing bulk operations on arrays of primitive types
 
 	/** {@inheritDoc} */
@@ -163,156 +163,56 @@ public final class UnsafeOutput extends Output {
 			return writeVarLong(value, optimizePositive);
 	}
 
-	final public int writeVarInt (int val, boolean optimizePositive) throws KryoException {
-		int value = val;
+	/** Writes a 1-5 byte int. When at least 8 bytes are available in the buffer, the bytes are computed in a long and stored with
+	 * a single write. */
+	final public int writeVarInt (int value, boolean optimizePositive) throws KryoException {
 		if (!optimizePositive) value = (value << 1) ^ (value >> 31);
-		int varInt = 0;
-
-		varInt = (value & 0x7F);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			write(varInt);
+		if (value >>> 7 == 0) {
+			require(1);
+			buffer[position++] = (byte)value;
 			return 1;
 		}
-
-		varInt |= 0x80;
-		varInt |= ((value & 0x7F) << 8);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianInt(varInt);
-			position -= 2;
-			return 2;
-		}
-
-		varInt |= 0x80 << 8;
-		varInt |= ((value & 0x7F) << 16);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianInt(varInt);
-			position -= 1;
-			return 3;
-		}
-
-		varInt |= 0x80 << 16;
-		varInt |= ((value & 0x7F) << 24);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianInt(varInt);
-			position -= 0;
-			return 4;
-		}
-
-		long varLong = varInt;
-		varLong |= (0x80L << 24);
-		varLong |= ((long)(value & 0x7F) << 32);
-		varLong &= 0xFFFFFFFFFL;
-		writeLittleEndianLong(varLong);
-		position -= 3;
-		return 5;
+		if (capacity - position < 8) return super.writeVarInt(value, true);
+		long bits = value & 0xFFFFFFFFL;
+		// Spread the 7 bit groups over the bytes.
+		long varLong = (bits & 0x7F) | ((bits << 1) & 0x7F00) | ((bits << 2) & 0x7F0000) | ((bits << 3) & 0x7F000000L)
+			| ((bits << 4) & 0x7F00000000L);
+		int length = (38 - Integer.numberOfLeadingZeros(value)) / 7;
+		// Set the continuation bit on all but the last byte.
+		varLong |= 0x8080808080L & ((1L << ((length - 1) << 3)) - 1);
+		unsafe().putLong(buffer, byteArrayBaseOffset + position, isLittleEndian ? varLong : Util.swapLong(varLong));
+		position += length;
+		return length;
 	}
 
-	// TODO: Make it work on little and big endian machines
+	/** Writes a 1-9 byte long. When at least 9 bytes are available in the buffer, the first 8 bytes are computed in a long and
+	 * stored with a single write. */
 	final public int writeVarLong (long value, boolean optimizePositive) throws KryoException {
 		if (!optimizePositive) value = (value << 1) ^ (value >> 63);
-		int varInt = 0;
-
-		varInt = (int)(value & 0x7F);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeByte(varInt);
+		if (value >>> 7 == 0) {
+			require(1);
+			buffer[position++] = (byte)value;
 			return 1;
 		}
-
-		varInt |= 0x80;
-		varInt |= ((value & 0x7F) << 8);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianInt(varInt);
-			position -= 2;
-			return 2;
-		}
-
-		varInt |= (0x80 << 8);
-		varInt |= ((value & 0x7F) << 16);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianInt(varInt);
-			position -= 1;
-			return 3;
-		}
-
-		varInt |= (0x80 << 16);
-		varInt |= ((value & 0x7F) << 24);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianInt(varInt);
-			position -= 0;
-			return 4;
+		if (capacity - position < 9) return super.writeVarLong(value, true);
+		// Spread the 7 bit groups over the bytes.
+		long varLong = (value & 0x7F) | ((value << 1) & 0x7F00) | ((value << 2) & 0x7F0000) | ((value << 3) & 0x7F000000L)
+			| ((value << 4) & 0x7F00000000L) | ((value << 5) & 0x7F0000000000L) | ((value << 6) & 0x7F000000000000L)
+			| ((value << 7) & 0x7F00000000000000L);
+		if (value >>> 56 != 0) {
+			// All 8 bytes have the continuation bit, the 9th byte has the remaining 8 bits.
+			varLong |= 0x8080808080808080L;
+			unsafe().putLong(buffer, byteArrayBaseOffset + position, isLittleEndian ? varLong : Util.swapLong(varLong));
+			buffer[position + 8] = (byte)(value >>> 56);
+			position += 9;
+			return 9;
 		}
-
-		long varLong = (varInt & 0xFFFFFFFFL) | (0x80L << 24);
-		varLong |= ((value & 0x7F) << 32);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianLong(varLong);
-			position -= 3;
-			return 5;
-		}
-
-		varLong |= (0x80L << 32);
-		varLong |= ((value & 0x7F) << 40);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianLong(varLong);
-			position -= 2;
-			return 6;
-		}
-
-		varLong |= (0x80L << 40);
-		varLong |= ((value & 0x7F) << 48);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianLong(varLong);
-			position -= 1;
-			return 7;
-		}
-
-		varLong |= (0x80L << 48);
-		varLong |= ((value & 0x7F) << 56);
-
-		value >>>= 7;
-
-		if (value == 0) {
-			writeLittleEndianLong(varLong);
-			return 8;
-		}
-
-		varLong |= (0x80L << 56);
-		writeLittleEndianLong(varLong);
-		write((int)(value & 0xFF));
-		return 9;
+		int length = (70 - Long.numberOfLeadingZeros(value)) / 7;
+		// Set the continuation bit on all but the last byte.
+		varLong |= 0x8080808080808080L & ((1L << ((length - 1) << 3)) - 1);
+		unsafe().putLong(buffer, byteArrayBaseOffset + position, isLittleEndian ? varLong : Util.swapLong(varLong));
+		position += length;
+		return length;
 	}
 
 	// Methods implementing bulk operations on arrays of primitive types
@@ -0,0 +1,246 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.pool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/** A thread safe pool of byte arrays and direct {@link ByteBuffer}s. Buffers are kept in size classes which are powers of two
+ * between the minimum and maximum size, a buffer obtained from the pool has at least the requested size. Each size class keeps
+ * at most a maximum number of buffers, further freed buffers are left to the garbage collector. Buffers larger than the maximum
+ * size are never pooled.
+ * <p>
+ * {@link #run(KryoPool, KryoBufferCallback)} borrows a {@link Kryo} instance from a {@link KryoPool} together with an
+ * {@link Output} and {@link Input} using pooled buffers:
+ * 
+ * <pre>
+ * byte[] bytes = bufferPool.run(kryoPool, new KryoBufferCallback<byte[]>() {
+ *   public byte[] execute(Kryo kryo, Output output, Input input) {
+ *     kryo.writeObject(output, value);
+ *     return output.toBytes();
+ *   }
+ * });
+ * </pre>
+ * 
+ * The buffers can also be used directly:
+ * 
+ * <pre>
+ * byte[] buffer = bufferPool.obtain(8192);
+ * try {
+ *   // use the buffer
+ * } finally {
+ *   bufferPool.free(buffer);
+ * }
+ * </pre> */
+public class BufferPool {
+	private final int minimumShift, maximumShift, maximumCount;
+	private final Queue<byte[]>[] arrays;
+	private final Queue<ByteBuffer>[] byteBuffers;
+	private final AtomicIntegerArray arrayCounts, byteBufferCounts;
+
+	/** Creates a pool with a minimum size of 4096, a maximum size of 1MB and up to 16 buffers per size class. */
+	public BufferPool () {
+		this(4096, 1024 * 1024, 16);
+	}
+
+	/** @param minimumSize The size of the smallest size class, rounded up to a power of two. This is also the initial size of the
+	 *           buffers used by {@link #run(KryoPool, KryoBufferCallback)}.
+	 * @param maximumSize The size of the largest size class, rounded up to a power of two.
+	 * @param maximumCount The maximum number of idle buffers kept per size class. */
+	public BufferPool (int minimumSize, int maximumSize, int maximumCount) {
+		if (minimumSize <= 0) throw new IllegalArgumentException("minimumSize must be > 0: " + minimumSize);
+		if (maximumSize < minimumSize)
+			throw new IllegalArgumentException("maximumSize: " + maximumSize + " cannot be < minimumSize: " + minimumSize);
+		if (maximumSize > 1 << 30) throw new IllegalArgumentException("maximumSize cannot be > 2^30: " + maximumSize);
+		if (maximumCount < 0) throw new IllegalArgumentException("maximumCount cannot be < 0: " + maximumCount);
+		minimumShift = shift(minimumSize);
+		maximumShift = shift(maximumSize);
+		this.maximumCount = maximumCount;
+		int classes = maximumShift - minimumShift + 1;
+		arrays = new Queue[classes];
+		byteBuffers = new Queue[classes];
+		for (int i = 0; i < classes; i++) {
+			arrays[i] = new ConcurrentLinkedQueue();
+			byteBuffers[i] = new ConcurrentLinkedQueue();
+		}
+		arrayCounts = new AtomicIntegerArray(classes);
+		byteBufferCounts = new AtomicIntegerArray(classes);
+	}
+
+	/** Returns the number of bits to shift 1 to get the smallest power of two >= size. */
+	static private int shift (int size) {
+		return 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+
+	/** Returns the size class for a requested size, or -1 if the size is larger than the largest size class. */
+	private int obtainClass (int size) {
+		if (size <= 1 << minimumShift) return 0;
+		int shift = shift(size);
+		return shift > maximumShift ? -1 : shift - minimumShift;
+	}
+
+	/** Returns the size class a buffer of the given capacity can serve, or -1 if it is not pooled. */
+	private int freeClass (int capacity) {
+		if (capacity < 1 << minimumShift || capacity > 1 << maximumShift) return -1;
+		return 31 - Integer.numberOfLeadingZeros(capacity) - minimumShift;
+	}
+
+	/** Returns a byte array with a length of at least the given size. The contents of the array are undefined. */
+	public byte[] obtain (int size) {
+		int index = obtainClass(size);
+		if (index == -1) return new byte[size];
+		byte[] array = arrays[index].poll();
+		if (array == null) return new byte[1 << (minimumShift + index)];
+		arrayCounts.decrementAndGet(index);
+		return array;
+	}
+
+	/** Returns the array to the pool. The array must not be used afterward. */
+	public void free (byte[] array) {
+		if (array == null) throw new IllegalArgumentException("array cannot be null.");
+		int index = freeClass(array.length);
+		if (index == -1) return;
+		if (arrayCounts.incrementAndGet(index) <= maximumCount)
+			arrays[index].offer(array);
+		else
+			arrayCounts.decrementAndGet(index);
+	}
+
+	/** Returns a cleared direct ByteBuffer with {@link ByteOrder#BIG_ENDIAN} order and a capacity of at least the given size. */
+	public ByteBuffer obtainByteBuffer (int size) {
+		int index = obtainClass(size);
+		if (index == -1) return ByteBuffer.allocateDirect(size);
+		ByteBuffer buffer = byteBuffers[index].poll();
+		if (buffer == null) return ByteBuffer.allocateDirect(1 << (minimumShift + index));
+		byteBufferCounts.decrementAndGet(index);
+		return buffer;
+	}
+
+	/** Returns the direct ByteBuffer to the pool. The buffer must not be used afterward. */
+	public void free (ByteBuffer buffer) {
+		if (buffer == null) throw new IllegalArgumentException("buffer cannot be null.");
+		if (!buffer.isDirect()) throw new IllegalArgumentException("buffer must be direct.");
+		int index = freeClass(buffer.capacity());
+		if (index == -1) return;
+		if (byteBufferCounts.incrementAndGet(index) <= maximumCount) {
+			buffer.clear();
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			byteBuffers[index].offer(buffer);
+		} else
+			byteBufferCounts.decrementAndGet(index);
+	}
+
+	/** Returns the size of the smallest size class. */
+	public int getMinimumSize () {
+		return 1 << minimumShift;
+	}
+
+	/** Returns the size of the largest size class. */
+	public int getMaximumSize () {
+		return 1 << maximumShift;
+	}
+
+	/** Returns the number of idle byte arrays in the pool. */
+	public int getArrayCount () {
+		int count = 0;
+		for (int i = 0, n = arrayCounts.length(); i < n; i++)
+			count += arrayCounts.get(i);
+		return count;
+	}
+
+	/** Returns the number of idle ByteBuffers in the pool. */
+	public int getByteBufferCount () {
+		int count = 0;
+		for (int i = 0, n = byteBufferCounts.length(); i < n; i++)
+			count += byteBufferCounts.get(i);
+		return count;
+	}
+
+	/** Removes all idle buffers from the pool. */
+	public void clear () {
+		for (int i = 0, n = arrays.length; i < n; i++) {
+			while (arrays[i].poll() != null)
+				arrayCounts.decrementAndGet(i);
+			while (byteBuffers[i].poll() != null)
+				byteBufferCounts.decrementAndGet(i);
+		}
+	}
+
+	/** Runs the provided {@link KryoBufferCallback} with a {@link Kryo} instance from the pool and an {@link Output} and
+	 * {@link Input} using buffers from this pool. The Output has no maximum size and grows using buffers from this pool, the Input
+	 * is empty until a buffer or InputStream is set. The Kryo instance and buffers are returned afterward, so the Output and Input
+	 * must not be used after the callback returns. */
+	public <T> T run (KryoPool pool, KryoBufferCallback<T> callback) {
+		Kryo kryo = pool.borrow();
+		byte[] inputBuffer = obtain(getMinimumSize());
+		PooledOutput output = new PooledOutput(this, obtain(getMinimumSize()));
+		try {
+			return callback.execute(kryo, output, new Input(inputBuffer, 0, 0));
+		} finally {
+			free(inputBuffer);
+			free(output.pooledBuffer);
+			pool.release(kryo);
+		}
+	}
+
+	/** An Output which grows its buffer using buffers from the pool. */
+	static class PooledOutput extends Output {
+		private final BufferPool bufferPool;
+		/** The buffer obtained from the pool, which may no longer be the Output's buffer if {@link #setBuffer(byte[], int)} was
+		 * used. */
+		byte[] pooledBuffer;
+
+		PooledOutput (BufferPool bufferPool, byte[] buffer) {
+			super(buffer, -1);
+			this.bufferPool = bufferPool;
+			pooledBuffer = buffer;
+		}
+
+		protected boolean require (int required) throws KryoException {
+			if (capacity - position >= required) return false;
+			if (required > maxCapacity)
+				throw new KryoException("Buffer overflow. Max capacity: " + maxCapacity + ", required: " + required);
+			flush();
+			if (capacity - position >= required) return true;
+			int newCapacity = Math.max(capacity, 1);
+			while (newCapacity - position < required) {
+				if (newCapacity == maxCapacity)
+					throw new KryoException("Buffer overflow. Available: " + (capacity - position) + ", required: " + required);
+				newCapacity = Math.min(newCapacity * 2, maxCapacity);
+				if (newCapacity < 0) newCapacity = maxCapacity;
+			}
+			byte[] newBuffer = bufferPool.obtain(newCapacity);
+			System.arraycopy(buffer, 0, newBuffer, 0, position);
+			if (buffer == pooledBuffer) bufferPool.free(buffer);
+			buffer = newBuffer;
+			pooledBuffer = newBuffer;
+			capacity = Math.min(newBuffer.length, maxCapacity);
+			return true;
+		}
+	}
+}
@@ -42,6 +42,8 @@ import com.esotericsoftware.kryo.Kryo;
  * };
  * // Simple pool, you might also activate SoftReferences to fight OOMEs.
  * KryoPool pool = new KryoPool.Builder(factory).build();
+ * // Or a pool for many threads, keeping at most 64 idle instances.
+ * KryoPool pool = new KryoPool.Builder(factory).striped().maximumSize(64).build();
  * Kryo kryo = pool.borrow();
  * // do s.th. with kryo here, and afterwards release it
  * pool.release(kryo);
@@ -68,12 +70,17 @@ public interface KryoPool {
 	 * {@link KryoCallback#execute(Kryo)}). */
 	<T> T run (KryoCallback<T> callback);
 
-	/** Builder for a {@link KryoPool} instance, constructs a {@link KryoPoolQueueImpl} instance. */
+	/** Builder for a {@link KryoPool} instance, constructs a {@link KryoPoolQueueImpl} instance, or a {@link KryoPoolStripedImpl}
+	 * instance if {@link #striped()} is used. */
 	public static class Builder {
 
 		private final KryoFactory factory;
 		private Queue<Kryo> queue = new ConcurrentLinkedQueue<Kryo>();
 		private boolean softReferences;
+		private boolean striped, evictOldest;
+		private int stripes;
+		private int maximumSize = Integer.MAX_VALUE;
+		private KryoPoolMetrics metrics;
 
 		public Builder (KryoFactory factory) {
 			if (factory == null) {
@@ -98,15 +105,63 @@ public interface KryoPool {
 			return this;
 		}
 
+		/** Keeps idle instances in slots striped by thread, falling back to the queue when a thread's slot is taken. This avoids
+		 * contention on the queue when many threads borrow and release concurrently. The number of stripes is twice the number of
+		 * processors, rounded up to a power of two. */
+		public Builder striped () {
+			striped = true;
+			return this;
+		}
+
+		/** Like {@link #striped()}, using the given number of stripes (rounded down to a power of two). */
+		public Builder striped (int stripes) {
+			if (stripes <= 0) {
+				throw new IllegalArgumentException("stripes must be > 0: " + stripes);
+			}
+			striped = true;
+			this.stripes = stripes;
+			return this;
+		}
+
+		/** Limits the number of idle instances kept by a {@link #striped()} pool (by default unbounded). When the pool is full, a
+		 * released instance is dropped, unless {@link #evictOldest()} is used. */
+		public Builder maximumSize (int maximumSize) {
+			if (maximumSize <= 0) {
+				throw new IllegalArgumentException("maximumSize must be > 0: " + maximumSize);
+			}
+			this.maximumSize = maximumSize;
+			return this;
+		}
+
+		/** When a {@link #striped()} pool is at its maximum size, drops the oldest queued instance instead of the released one. */
+		public Builder evictOldest () {
+			evictOldest = true;
+			return this;
+		}
+
+		/** Has a {@link #striped()} pool count borrows, creations, misses, evictions and the time spent borrowing in the given
+		 * metrics. */
+		public Builder metrics (KryoPoolMetrics metrics) {
+			if (metrics == null) {
+				throw new IllegalArgumentException("metrics must not be null");
+			}
+			this.metrics = metrics;
+			return this;
+		}
+
 		/** Build the pool. */
 		public KryoPool build () {
+			if (striped) return new KryoPoolStripedImpl(factory, queue, stripes, maximumSize, softReferences, evictOldest, metrics);
+			if (maximumSize != Integer.MAX_VALUE || evictOldest || metrics != null)
+				throw new IllegalStateException("maximumSize, evictOldest and metrics require a striped pool.");
 			Queue<Kryo> q = softReferences ? new SoftReferenceQueue(queue) : queue;
 			return new KryoPoolQueueImpl(factory, q);
 		}
 
 		@Override
 		public String toString () {
-			return getClass().getName() + "[queue.class=" + queue.getClass() + ", softReferences=" + softReferences + "]";
+			return getClass().getName() + "[queue.class=" + queue.getClass() + ", softReferences=" + softReferences + ", striped="
+				+ striped + ", maximumSize=" + maximumSize + "]";
 		}
 	}
 
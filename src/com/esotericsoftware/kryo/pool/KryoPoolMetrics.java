@@ -0,0 +1,109 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.pool;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Counters updated by a striped {@link KryoPool}, see {@link KryoPool.Builder#metrics(KryoPoolMetrics)}. The counters are
+ * striped by thread so that updating them does not contend across threads, the getters sum the stripes. The values are not a
+ * consistent snapshot while the pool is in use. */
+public class KryoPoolMetrics {
+	static final int BORROWS = 0, HITS = 1, CREATIONS = 2, RELEASES = 3, EVICTIONS = 4, BORROW_NANOS = 5;
+
+	// Each stripe gets its own 128 byte block so that counters of different threads are not in the same cache line.
+	static private final int STRIDE = 16;
+
+	private final AtomicLongArray counters;
+	private final int mask;
+
+	public KryoPoolMetrics () {
+		int stripes = KryoPoolStripedImpl.defaultStripes();
+		counters = new AtomicLongArray(stripes * STRIDE);
+		mask = stripes - 1;
+	}
+
+	void increment (int counter) {
+		counters.incrementAndGet(((KryoPoolStripedImpl.threadHash() & mask) * STRIDE) + counter);
+	}
+
+	void add (int counter, long value) {
+		counters.addAndGet(((KryoPoolStripedImpl.threadHash() & mask) * STRIDE) + counter, value);
+	}
+
+	private long sum (int counter) {
+		long total = 0;
+		for (int i = counter, n = counters.length(); i < n; i += STRIDE)
+			total += counters.get(i);
+		return total;
+	}
+
+	/** Returns the number of {@link KryoPool#borrow()} calls. */
+	public long getBorrows () {
+		return sum(BORROWS);
+	}
+
+	/** Returns the number of borrows that were served by the slot of the borrowing thread. */
+	public long getHits () {
+		return sum(HITS);
+	}
+
+	/** Returns the number of borrows that were not served by the slot of the borrowing thread and had to fall back to the shared
+	 * queue, the other slots or the factory. */
+	public long getMisses () {
+		return getBorrows() - getHits();
+	}
+
+	/** Returns the number of instances created by the {@link KryoFactory}. */
+	public long getCreations () {
+		return sum(CREATIONS);
+	}
+
+	/** Returns the number of {@link KryoPool#release(Kryo)} calls. */
+	public long getReleases () {
+		return sum(RELEASES);
+	}
+
+	/** Returns the number of instances dropped from the pool because it was at its maximum size. */
+	public long getEvictions () {
+		return sum(EVICTIONS);
+	}
+
+	/** Returns the total time spent in {@link KryoPool#borrow()}, including creating new instances. */
+	public long getBorrowNanos () {
+		return sum(BORROW_NANOS);
+	}
+
+	/** Returns the average time spent in {@link KryoPool#borrow()}, or 0 if nothing was borrowed. */
+	public long getAverageBorrowNanos () {
+		long borrows = getBorrows();
+		return borrows == 0 ? 0 : getBorrowNanos() / borrows;
+	}
+
+	/** Sets all counters to 0. */
+	public void reset () {
+		for (int i = 0, n = counters.length(); i < n; i++)
+			counters.set(i, 0);
+	}
+
+	public String toString () {
+		return "borrows=" + getBorrows() + ", hits=" + getHits() + ", misses=" + getMisses() + ", creations=" + getCreations()
+			+ ", releases=" + getReleases() + ", evictions=" + getEvictions() + ", averageBorrowNanos=" + getAverageBorrowNanos();
+	}
+}
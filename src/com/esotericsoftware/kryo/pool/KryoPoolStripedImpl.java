@@ -0,0 +1,155 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.pool;
+
+import java.lang.ref.SoftReference;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/** A {@link KryoPool} that keeps idle instances in slots striped by thread, so that threads borrowing and releasing concurrently
+ * usually touch different memory. A thread first tries its own slot, then the shared queue, then the slots of other threads and
+ * finally creates a new instance. Released instances go to the thread's slot or, if that is taken, to the shared queue. The
+ * number of idle instances is bounded by the maximum size, releasing to a full pool either drops the released instance or evicts
+ * the oldest instance in the queue. Should be built using the {@link KryoPool.Builder}. */
+class KryoPoolStripedImpl implements KryoPool {
+	// Slots are 128 bytes apart so that different stripes are not in the same cache line.
+	static private final int STRIDE = 32;
+
+	private final KryoFactory factory;
+	private final AtomicReferenceArray<Kryo> slots;
+	private final int mask;
+	private final Queue queue;
+	private final AtomicInteger queueSize = new AtomicInteger();
+	private final int queueCapacity;
+	private final boolean softReferences, evictOldest;
+	private final KryoPoolMetrics metrics;
+
+	KryoPoolStripedImpl (KryoFactory factory, Queue<Kryo> queue, int stripes, int maximumSize, boolean softReferences,
+		boolean evictOldest, KryoPoolMetrics metrics) {
+		if (stripes <= 0) stripes = defaultStripes();
+		stripes = Integer.highestOneBit(Math.min(stripes, maximumSize));
+		this.factory = factory;
+		this.queue = queue;
+		this.softReferences = softReferences;
+		this.evictOldest = evictOldest;
+		this.metrics = metrics;
+		slots = new AtomicReferenceArray(stripes * STRIDE);
+		mask = stripes - 1;
+		queueCapacity = maximumSize - stripes;
+	}
+
+	public Kryo borrow () {
+		long start = metrics != null ? System.nanoTime() : 0;
+		int index = (threadHash() & mask) * STRIDE;
+		Kryo kryo = slots.get(index);
+		if (kryo != null && slots.compareAndSet(index, kryo, null)) {
+			if (metrics != null) {
+				metrics.increment(KryoPoolMetrics.HITS);
+				borrowed(start);
+			}
+			return kryo;
+		}
+		kryo = poll();
+		if (kryo == null) kryo = pollSlots(index);
+		if (kryo == null) {
+			kryo = factory.create();
+			if (metrics != null) metrics.increment(KryoPoolMetrics.CREATIONS);
+		}
+		if (metrics != null) borrowed(start);
+		return kryo;
+	}
+
+	private void borrowed (long start) {
+		metrics.increment(KryoPoolMetrics.BORROWS);
+		metrics.add(KryoPoolMetrics.BORROW_NANOS, System.nanoTime() - start);
+	}
+
+	private Kryo poll () {
+		Object value;
+		while ((value = queue.poll()) != null) {
+			queueSize.decrementAndGet();
+			Kryo kryo = softReferences ? ((SoftReference<Kryo>)value).get() : (Kryo)value;
+			if (kryo != null) return kryo;
+		}
+		return null;
+	}
+
+	private Kryo pollSlots (int skip) {
+		for (int i = 0, n = slots.length(); i < n; i += STRIDE) {
+			if (i == skip) continue;
+			Kryo kryo = slots.get(i);
+			if (kryo != null && slots.compareAndSet(i, kryo, null)) return kryo;
+		}
+		return null;
+	}
+
+	public void release (Kryo kryo) {
+		if (metrics != null) metrics.increment(KryoPoolMetrics.RELEASES);
+		int index = (threadHash() & mask) * STRIDE;
+		if (slots.get(index) == null && slots.compareAndSet(index, null, kryo)) return;
+		Object value = softReferences ? new SoftReference(kryo) : kryo;
+		if (queueSize.incrementAndGet() <= queueCapacity) {
+			queue.offer(value);
+			return;
+		}
+		queueSize.decrementAndGet();
+		// The pool is full. Either the oldest queued instance or the released instance is dropped.
+		if (evictOldest && queue.poll() != null) queue.offer(value);
+		if (metrics != null) metrics.increment(KryoPoolMetrics.EVICTIONS);
+	}
+
+	public <T> T run (KryoCallback<T> callback) {
+		Kryo kryo = borrow();
+		try {
+			return callback.execute(kryo);
+		} finally {
+			release(kryo);
+		}
+	}
+
+	/** Returns the number of idle instances in the pool. */
+	public int size () {
+		int size = queueSize.get();
+		for (int i = 0, n = slots.length(); i < n; i += STRIDE)
+			if (slots.get(i) != null) size++;
+		return size;
+	}
+
+	public void clear () {
+		for (int i = 0, n = slots.length(); i < n; i += STRIDE)
+			slots.set(i, null);
+		while (queue.poll() != null)
+			queueSize.decrementAndGet();
+	}
+
+	static int threadHash () {
+		long id = Thread.currentThread().getId();
+		int hash = (int)(id ^ (id >>> 32)) * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	static int defaultStripes () {
+		int processors = Runtime.getRuntime().availableProcessors();
+		return Integer.highestOneBit(Math.max(1, processors * 2 - 1)) << 1;
+	}
+}
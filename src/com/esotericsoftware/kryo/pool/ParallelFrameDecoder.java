@@ -0,0 +1,176 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.pool;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.FramedRecordReader;
+import com.esotericsoftware.kryo.io.FramedRecordWriter;
+import com.esotericsoftware.kryo.io.Input;
+
+/** Decodes a framed record stream written by {@link FramedRecordWriter} using multiple threads. The frames are split on the
+ * calling thread and each frame is decoded by a task on an {@link ExecutorService}, using a {@link Kryo} instance borrowed from a
+ * {@link KryoPool}. The records are returned in stream order, or in the order decoding finishes if the order is not needed.
+ * 
+ * <pre>
+ * ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+ * ParallelFrameDecoder decoder = new ParallelFrameDecoder(pool, executor);
+ * Iterator<Object> records = decoder.decode(new FramedRecordReader(input), true);
+ * while (records.hasNext())
+ * 	replay(records.next());
+ * </pre> */
+public class ParallelFrameDecoder {
+	private final KryoPool pool;
+	private final ExecutorService executor;
+	private final int maxPending;
+
+	/** Creates a decoder with at most 4 pending frames per available processor. */
+	public ParallelFrameDecoder (KryoPool pool, ExecutorService executor) {
+		this(pool, executor, Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	/** @param maxPending The maximum number of frames that have been read but whose records have not been returned yet. This
+	 *           bounds the memory used for frames and decoded records. */
+	public ParallelFrameDecoder (KryoPool pool, ExecutorService executor, int maxPending) {
+		if (pool == null) throw new IllegalArgumentException("pool cannot be null.");
+		if (executor == null) throw new IllegalArgumentException("executor cannot be null.");
+		if (maxPending <= 0) throw new IllegalArgumentException("maxPending must be > 0: " + maxPending);
+		this.pool = pool;
+		this.executor = executor;
+		this.maxPending = maxPending;
+	}
+
+	/** Returns an iterator over the decoded records. Frames are read from the reader as the iterator advances. An exception thrown
+	 * while decoding a record is rethrown by {@link Iterator#next()}.
+	 * @param ordered If true, records are returned in stream order. Otherwise they are returned as soon as they are decoded. */
+	public Iterator<Object> decode (FramedRecordReader reader, boolean ordered) {
+		if (reader == null) throw new IllegalArgumentException("reader cannot be null.");
+		return ordered ? new OrderedIterator(reader) : new UnorderedIterator(reader);
+	}
+
+	Callable<Object> task (final byte[] frame) {
+		return new Callable<Object>() {
+			public Object call () {
+				return pool.run(new KryoCallback<Object>() {
+					public Object execute (Kryo kryo) {
+						return FramedRecordReader.decode(kryo, new Input(), frame);
+					}
+				});
+			}
+		};
+	}
+
+	static Object get (Future<Object> future) throws KryoException {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new KryoException("Interrupted while decoding.", ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new KryoException(cause);
+		}
+	}
+
+	private class OrderedIterator implements Iterator<Object> {
+		private final FramedRecordReader reader;
+		private final LinkedList<Future<Object>> pending = new LinkedList();
+
+		OrderedIterator (FramedRecordReader reader) {
+			this.reader = reader;
+		}
+
+		private void fill () {
+			while (pending.size() < maxPending) {
+				byte[] frame = reader.readFrame();
+				if (frame == null) break;
+				pending.add(executor.submit(task(frame)));
+			}
+		}
+
+		public boolean hasNext () throws KryoException {
+			fill();
+			return !pending.isEmpty();
+		}
+
+		public Object next () throws KryoException {
+			if (!hasNext()) throw new NoSuchElementException();
+			return get(pending.removeFirst());
+		}
+
+		public void remove () {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private class UnorderedIterator implements Iterator<Object> {
+		private final FramedRecordReader reader;
+		private final CompletionService<Object> completion;
+		private int pending;
+
+		UnorderedIterator (FramedRecordReader reader) {
+			this.reader = reader;
+			completion = new ExecutorCompletionService(executor);
+		}
+
+		private void fill () {
+			while (pending < maxPending) {
+				byte[] frame = reader.readFrame();
+				if (frame == null) break;
+				completion.submit(task(frame));
+				pending++;
+			}
+		}
+
+		public boolean hasNext () throws KryoException {
+			fill();
+			return pending > 0;
+		}
+
+		public Object next () throws KryoException {
+			if (!hasNext()) throw new NoSuchElementException();
+			Future<Object> future;
+			try {
+				future = completion.take();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new KryoException("Interrupted while decoding.", ex);
+			}
+			pending--;
+			return get(future);
+		}
+
+		public void remove () {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -19,12 +19,17 @@
 
 package com.esotericsoftware.kryo.serializers;
 
+import static com.esotericsoftware.kryo.util.Util.*;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.Serializer;
@@ -38,10 +43,15 @@ import com.esotericsoftware.kryo.io.Output;
  * collection.
  * @author Nathan Sweet <misc@n4te.com> */
 public class CollectionSerializer extends Serializer<Collection> {
+	/** ArrayDeque is only available on Java 6+, so it is resolved once and is null on older JVMs. */
+	static private final Class arrayDequeClass = isClassAvailable("java.util.ArrayDeque") ? ArrayDeque.class : null;
+
 	private boolean elementsCanBeNull = true;
 	private Serializer serializer;
 	private Class elementClass;
 	private Class genericType;
+	final boolean createOverridden = overrides(getClass(), CollectionSerializer.class, "create", Kryo.class, Input.class,
+		Class.class);
 
 	public CollectionSerializer () {
 	}
@@ -82,6 +92,7 @@ public class CollectionSerializer extends Serializer<Collection> {
 	public void write (Kryo kryo, Output output, Collection collection) {
 		int length = collection.size();
 		output.writeVarInt(length, true);
+		writeHeader(kryo, output, collection);
 		Serializer serializer = this.serializer;
 		if (genericType != null) {
 			if (serializer == null) serializer = kryo.getSerializer(genericType);
@@ -101,17 +112,44 @@ public class CollectionSerializer extends Serializer<Collection> {
 		}
 	}
 
+	/** Called by {@link #write(Kryo, Output, Collection)} after the number of elements is written, so
+	 * {@link #create(Kryo, Input, Class, int)} can read what is needed to create the collection with the required capacity. The
+	 * default implementation writes nothing. */
+	void writeHeader (Kryo kryo, Output output, Collection collection) {
+	}
+
 	/** Used by {@link #read(Kryo, Input, Class)} to create the new object. This can be overridden to customize object creation, eg
 	 * to call a constructor with arguments. The default implementation uses {@link Kryo#newInstance(Class)}. */
 	protected Collection create (Kryo kryo, Input input, Class<Collection> type) {
 		return kryo.newInstance(type);
 	}
 
+	/** Used by {@link #read(Kryo, Input, Class)} to create the new object with room for the number of elements that will be read,
+	 * so the collection does not need to grow. This can be overridden to customize object creation. It is not used if
+	 * {@link #create(Kryo, Input, Class)} is overridden, because that method may read bytes that are written before the number of
+	 * elements. The default implementation creates an {@link ArrayList}, {@link HashSet}, {@link LinkedHashSet} or
+	 * {@link ArrayDeque} (on Java 6+) with the required capacity, else uses {@link Kryo#newInstance(Class)}. */
+	protected Collection create (Kryo kryo, Input input, Class<Collection> type, int size) {
+		if ((Class)type == ArrayList.class) return new ArrayList(size);
+		if ((Class)type == HashSet.class) return new HashSet(hashCapacity(size));
+		if ((Class)type == LinkedHashSet.class) return new LinkedHashSet(hashCapacity(size));
+		if (type == arrayDequeClass) return new ArrayDeque(size);
+		return kryo.newInstance(type);
+	}
+
 	public Collection read (Kryo kryo, Input input, Class<Collection> type) {
-		Collection collection = create(kryo, input, type);
+		Collection collection;
+		int length;
+		if (createOverridden) {
+			collection = create(kryo, input, type);
+			length = input.readVarInt(true);
+			if (collection instanceof ArrayList) ((ArrayList)collection).ensureCapacity(length);
+		} else {
+			length = input.readVarInt(true);
+			collection = create(kryo, input, type, length);
+		}
 		kryo.reference(collection);
-		int length = input.readVarInt(true);
-		if (collection instanceof ArrayList) ((ArrayList)collection).ensureCapacity(length);
+		Collection elements = readInto(collection, length);
 		Class elementClass = this.elementClass;
 		Serializer serializer = this.serializer;
 		if (genericType != null) {
@@ -124,18 +162,29 @@ public class CollectionSerializer extends Serializer<Collection> {
 		if (serializer != null) {
 			if (elementsCanBeNull) {
 				for (int i = 0; i < length; i++)
-					collection.add(kryo.readObjectOrNull(input, elementClass, serializer));
+					elements.add(kryo.readObjectOrNull(input, elementClass, serializer));
 			} else {
 				for (int i = 0; i < length; i++)
-					collection.add(kryo.readObject(input, elementClass, serializer));
+					elements.add(kryo.readObject(input, elementClass, serializer));
 			}
 		} else {
 			for (int i = 0; i < length; i++)
-				collection.add(kryo.readClassAndObject(input));
+				elements.add(kryo.readClassAndObject(input));
 		}
+		if (elements != collection) readComplete(collection, elements);
+		return collection;
+	}
+
+	/** Returns the collection that {@link #read(Kryo, Input, Class)} adds the elements to. The default implementation returns the
+	 * new collection. */
+	Collection readInto (Collection collection, int size) {
 		return collection;
 	}
 
+	/** Called after the elements were added, if {@link #readInto(Collection, int)} did not return the new collection. */
+	void readComplete (Collection collection, Collection elements) {
+	}
+
 	/** Used by {@link #copy(Kryo, Collection)} to create the new object. This can be overridden to customize object creation, eg
 	 * to call a constructor with arguments. The default implementation uses {@link Kryo#newInstance(Class)}. */
 	protected Collection createCopy (Kryo kryo, Collection original) {
@@ -150,6 +199,26 @@ public class CollectionSerializer extends Serializer<Collection> {
 		return copy;
 	}
 
+	/** Returns the initial capacity for a hash based collection or map that will not need to grow to hold the number of
+	 * entries. */
+	static int hashCapacity (int size) {
+		if (size < 3) return size + 1;
+		if (size >= 1 << 30) return Integer.MAX_VALUE;
+		return (int)(size / 0.75f) + 1;
+	}
+
+	/** Returns true if a class between the type and the base class declares the method. */
+	static boolean overrides (Class type, Class base, String name, Class... parameterTypes) {
+		for (; type != base && type != null; type = type.getSuperclass()) {
+			try {
+				type.getDeclaredMethod(name, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException ignored) {
+			}
+		}
+		return false;
+	}
+
 	/** Used to annotate fields that are collections with specific Kryo serializers for their values. */
 	@Retention(RetentionPolicy.RUNTIME)
 	@Target(ElementType.FIELD)
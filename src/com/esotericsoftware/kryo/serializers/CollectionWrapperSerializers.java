@@ -0,0 +1,374 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import static com.esotericsoftware.kryo.util.Util.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/** Serializers for the collections returned by the {@link Collections} unmodifiable and synchronized methods, by
+ * {@link Arrays#asList(Object...)} and, for java >= 9, by {@code List.of}, {@code Set.of} and {@code Map.of}. Only the elements
+ * are written, and the collections are rebuilt with the same methods, so the JDK internals are never accessed. Are added as default
+ * serializers. */
+public final class CollectionWrapperSerializers {
+	static public void addDefaultSerializers (Kryo kryo) {
+		for (int i = 0; i < 2; i++) {
+			boolean synchronize = i == 1;
+			if (isClassAvailable("java.util.Collections$UnmodifiableNavigableSet"))
+				add(kryo, new CollectionWrapperSerializer(CollectionWrapperSerializer.NAVIGABLE_SET, synchronize));
+			add(kryo, new CollectionWrapperSerializer(CollectionWrapperSerializer.SORTED_SET, synchronize));
+			add(kryo, new CollectionWrapperSerializer(CollectionWrapperSerializer.SET, synchronize));
+			add(kryo, new CollectionWrapperSerializer(CollectionWrapperSerializer.RANDOM_ACCESS_LIST, synchronize));
+			add(kryo, new CollectionWrapperSerializer(CollectionWrapperSerializer.LIST, synchronize));
+			add(kryo, new CollectionWrapperSerializer(CollectionWrapperSerializer.COLLECTION, synchronize));
+			if (isClassAvailable("java.util.Collections$UnmodifiableNavigableMap"))
+				add(kryo, new MapWrapperSerializer(MapWrapperSerializer.NAVIGABLE_MAP, synchronize));
+			add(kryo, new MapWrapperSerializer(MapWrapperSerializer.SORTED_MAP, synchronize));
+			add(kryo, new MapWrapperSerializer(MapWrapperSerializer.MAP, synchronize));
+		}
+		kryo.addDefaultSerializer(Arrays.asList().getClass(), new ArraysAsListSerializer());
+
+		if (isClassAvailable("java.util.ImmutableCollections")) {
+			HashSet<Class> types = new HashSet();
+			try {
+				ImmutableCollectionSerializer list = new ImmutableCollectionSerializer(List.class.getMethod("of", Object[].class));
+				ImmutableCollectionSerializer set = new ImmutableCollectionSerializer(Set.class.getMethod("of", Object[].class));
+				ImmutableMapSerializer map = new ImmutableMapSerializer(Map.class.getMethod("ofEntries", Entry[].class));
+				for (int size = 0; size < 4; size++) {
+					Object[] elements = new Object[size];
+					Entry[] entries = new Entry[size];
+					for (int i = 0; i < size; i++) {
+						elements[i] = i;
+						entries[i] = new SimpleImmutableEntry(i, i);
+					}
+					List immutableList = (List)invoke(list.factory, elements);
+					add(kryo, types, immutableList.getClass(), list);
+					add(kryo, types, immutableList.subList(0, size).getClass(), list);
+					add(kryo, types, invoke(set.factory, elements).getClass(), set);
+					add(kryo, types, invoke(map.factory, entries).getClass(), map);
+				}
+			} catch (NoSuchMethodException ex) {
+				throw new KryoException(ex);
+			}
+		}
+	}
+
+	static private void add (Kryo kryo, CollectionWrapperSerializer serializer) {
+		kryo.addDefaultSerializer(serializer.wrap(serializer.create(null, 0)).getClass(), serializer);
+	}
+
+	static private void add (Kryo kryo, MapWrapperSerializer serializer) {
+		kryo.addDefaultSerializer(serializer.wrap(serializer.create(null, 0)).getClass(), serializer);
+	}
+
+	static private void add (Kryo kryo, Set<Class> types, Class type, Serializer serializer) {
+		if (type.getName().startsWith("java.util.ImmutableCollections$") && types.add(type))
+			kryo.addDefaultSerializer(type, serializer);
+	}
+
+	static Object invoke (Method factory, Object[] elements) {
+		try {
+			return factory.invoke(null, (Object)elements);
+		} catch (InvocationTargetException ex) {
+			throw new KryoException(ex.getCause());
+		} catch (Exception ex) {
+			throw new KryoException(ex);
+		}
+	}
+
+	/** Serializer for the collections returned by the {@link Collections} unmodifiable and synchronized collection, list and set
+	 * methods. A sorted set's comparator is written, followed by the elements. A new collection is wrapped when reading: an
+	 * {@link ArrayList} or {@link LinkedList} depending on whether the list was {@link java.util.RandomAccess}, a
+	 * {@link LinkedHashSet}, which keeps the iteration order, or a {@link TreeSet}. */
+	static public class CollectionWrapperSerializer extends Serializer<Collection> {
+		static public final int COLLECTION = 0, LIST = 1, RANDOM_ACCESS_LIST = 2, SET = 3, SORTED_SET = 4, NAVIGABLE_SET = 5;
+
+		private final int kind;
+		private final boolean synchronize;
+
+		/** @param kind One of {@link #COLLECTION}, {@link #LIST}, {@link #RANDOM_ACCESS_LIST}, {@link #SET}, {@link #SORTED_SET}
+		 *           or {@link #NAVIGABLE_SET}.
+		 * @param synchronize If true, the synchronized wrapper is used, otherwise the unmodifiable wrapper. */
+		public CollectionWrapperSerializer (int kind, boolean synchronize) {
+			if (kind < COLLECTION || kind > NAVIGABLE_SET) throw new IllegalArgumentException("Unknown kind: " + kind);
+			this.kind = kind;
+			this.synchronize = synchronize;
+		}
+
+		public void write (Kryo kryo, Output output, Collection collection) {
+			if (kind >= SORTED_SET) kryo.writeClassAndObject(output, ((SortedSet)collection).comparator());
+			// A synchronized collection locks itself for toArray.
+			Object[] elements = collection.toArray();
+			output.writeVarInt(elements.length, true);
+			for (int i = 0, n = elements.length; i < n; i++)
+				kryo.writeClassAndObject(output, elements[i]);
+		}
+
+		public Collection read (Kryo kryo, Input input, Class<Collection> type) {
+			Comparator comparator = kind >= SORTED_SET ? (Comparator)kryo.readClassAndObject(input) : null;
+			int length = input.readVarInt(true);
+			Collection elements = create(comparator, length);
+			Collection collection = wrap(elements);
+			kryo.reference(collection);
+			for (int i = 0; i < length; i++)
+				elements.add(kryo.readClassAndObject(input));
+			return collection;
+		}
+
+		public Collection copy (Kryo kryo, Collection original) {
+			Object[] originalElements = original.toArray();
+			Collection elements = create(kind >= SORTED_SET ? ((SortedSet)original).comparator() : null, originalElements.length);
+			Collection copy = wrap(elements);
+			kryo.reference(copy);
+			for (int i = 0, n = originalElements.length; i < n; i++)
+				elements.add(kryo.copy(originalElements[i]));
+			return copy;
+		}
+
+		Collection create (Comparator comparator, int size) {
+			switch (kind) {
+			case LIST:
+				return new LinkedList();
+			case SET:
+				return new LinkedHashSet(CollectionSerializer.hashCapacity(size));
+			case SORTED_SET:
+			case NAVIGABLE_SET:
+				return new TreeSet(comparator);
+			default:
+				return new ArrayList(size);
+			}
+		}
+
+		Collection wrap (Collection elements) {
+			switch (kind) {
+			case LIST:
+			case RANDOM_ACCESS_LIST:
+				return synchronize ? Collections.synchronizedList((List)elements) : Collections.unmodifiableList((List)elements);
+			case SET:
+				return synchronize ? Collections.synchronizedSet((Set)elements) : Collections.unmodifiableSet((Set)elements);
+			case SORTED_SET:
+				return synchronize ? Collections.synchronizedSortedSet((SortedSet)elements)
+					: Collections.unmodifiableSortedSet((SortedSet)elements);
+			case NAVIGABLE_SET:
+				return synchronize ? Collections.synchronizedNavigableSet((NavigableSet)elements)
+					: Collections.unmodifiableNavigableSet((NavigableSet)elements);
+			default:
+				return synchronize ? Collections.synchronizedCollection(elements) : Collections.unmodifiableCollection(elements);
+			}
+		}
+	}
+
+	/** Serializer for the maps returned by the {@link Collections} unmodifiable and synchronized map methods. A sorted map's
+	 * comparator is written, followed by the entries. A new {@link LinkedHashMap}, which keeps the iteration order, or
+	 * {@link TreeMap} is wrapped when reading. */
+	static public class MapWrapperSerializer extends Serializer<Map> {
+		static public final int MAP = 0, SORTED_MAP = 1, NAVIGABLE_MAP = 2;
+
+		private final int kind;
+		private final boolean synchronize;
+
+		/** @param kind One of {@link #MAP}, {@link #SORTED_MAP} or {@link #NAVIGABLE_MAP}.
+		 * @param synchronize If true, the synchronized wrapper is used, otherwise the unmodifiable wrapper. */
+		public MapWrapperSerializer (int kind, boolean synchronize) {
+			if (kind < MAP || kind > NAVIGABLE_MAP) throw new IllegalArgumentException("Unknown kind: " + kind);
+			this.kind = kind;
+			this.synchronize = synchronize;
+		}
+
+		public void write (Kryo kryo, Output output, Map map) {
+			if (kind >= SORTED_MAP) kryo.writeClassAndObject(output, ((SortedMap)map).comparator());
+			// The entry set of a synchronized map locks the map for toArray.
+			Object[] entries = map.entrySet().toArray();
+			output.writeVarInt(entries.length, true);
+			for (int i = 0, n = entries.length; i < n; i++) {
+				Entry entry = (Entry)entries[i];
+				kryo.writeClassAndObject(output, entry.getKey());
+				kryo.writeClassAndObject(output, entry.getValue());
+			}
+		}
+
+		public Map read (Kryo kryo, Input input, Class<Map> type) {
+			Comparator comparator = kind >= SORTED_MAP ? (Comparator)kryo.readClassAndObject(input) : null;
+			int length = input.readVarInt(true);
+			Map entries = create(comparator, length);
+			Map map = wrap(entries);
+			kryo.reference(map);
+			for (int i = 0; i < length; i++) {
+				Object key = kryo.readClassAndObject(input);
+				entries.put(key, kryo.readClassAndObject(input));
+			}
+			return map;
+		}
+
+		public Map copy (Kryo kryo, Map original) {
+			Object[] originalEntries = original.entrySet().toArray();
+			Map entries = create(kind >= SORTED_MAP ? ((SortedMap)original).comparator() : null, originalEntries.length);
+			Map copy = wrap(entries);
+			kryo.reference(copy);
+			for (int i = 0, n = originalEntries.length; i < n; i++) {
+				Entry entry = (Entry)originalEntries[i];
+				entries.put(kryo.copy(entry.getKey()), kryo.copy(entry.getValue()));
+			}
+			return copy;
+		}
+
+		Map create (Comparator comparator, int size) {
+			if (kind == MAP) return new LinkedHashMap(CollectionSerializer.hashCapacity(size));
+			return new TreeMap(comparator);
+		}
+
+		Map wrap (Map entries) {
+			switch (kind) {
+			case SORTED_MAP:
+				return synchronize ? Collections.synchronizedSortedMap((SortedMap)entries)
+					: Collections.unmodifiableSortedMap((SortedMap)entries);
+			case NAVIGABLE_MAP:
+				return synchronize ? Collections.synchronizedNavigableMap((NavigableMap)entries)
+					: Collections.unmodifiableNavigableMap((NavigableMap)entries);
+			default:
+				return synchronize ? Collections.synchronizedMap(entries) : Collections.unmodifiableMap(entries);
+			}
+		}
+	}
+
+	/** Serializer for lists returned by {@link Arrays#asList(Object...)}. When reading, the list is backed by an Object[]. */
+	static public class ArraysAsListSerializer extends Serializer<List> {
+		public void write (Kryo kryo, Output output, List list) {
+			int length = list.size();
+			output.writeVarInt(length, true);
+			for (int i = 0; i < length; i++)
+				kryo.writeClassAndObject(output, list.get(i));
+		}
+
+		public List read (Kryo kryo, Input input, Class<List> type) {
+			Object[] elements = new Object[input.readVarInt(true)];
+			List list = Arrays.asList(elements);
+			kryo.reference(list);
+			for (int i = 0, n = elements.length; i < n; i++)
+				elements[i] = kryo.readClassAndObject(input);
+			return list;
+		}
+
+		public List copy (Kryo kryo, List original) {
+			Object[] elements = new Object[original.size()];
+			List copy = Arrays.asList(elements);
+			kryo.reference(copy);
+			for (int i = 0, n = elements.length; i < n; i++)
+				elements[i] = kryo.copy(original.get(i));
+			return copy;
+		}
+	}
+
+	/** Serializer for the immutable lists and sets returned by {@code List.of} and {@code Set.of} on java >= 9. The collection is
+	 * rebuilt with the same factory method. A list containing nulls, as returned by {@code Stream.toList}, is read as an
+	 * {@link Collections#unmodifiableList(List) unmodifiable list}. */
+	static public class ImmutableCollectionSerializer extends Serializer<Collection> {
+		final Method factory;
+
+		{
+			setImmutable(true);
+		}
+
+		/** @param factory A static method that takes an Object[] and returns the collection, such as {@code List.of(Object...)}. */
+		public ImmutableCollectionSerializer (Method factory) {
+			if (factory == null) throw new IllegalArgumentException("factory cannot be null.");
+			this.factory = factory;
+		}
+
+		public void write (Kryo kryo, Output output, Collection collection) {
+			output.writeVarInt(collection.size(), true);
+			for (Object element : collection)
+				kryo.writeClassAndObject(output, element);
+		}
+
+		public Collection read (Kryo kryo, Input input, Class<Collection> type) {
+			Object[] elements = new Object[input.readVarInt(true)];
+			boolean hasNull = false;
+			for (int i = 0, n = elements.length; i < n; i++) {
+				Object element = kryo.readClassAndObject(input);
+				if (element == null) hasNull = true;
+				elements[i] = element;
+			}
+			if (hasNull && List.class.isAssignableFrom(type)) return Collections.unmodifiableList(Arrays.asList(elements));
+			return (Collection)invoke(factory, elements);
+		}
+	}
+
+	/** Serializer for the immutable maps returned by {@code Map.of} and {@code Map.ofEntries} on java >= 9. The map is rebuilt
+	 * with the same factory method. */
+	static public class ImmutableMapSerializer extends Serializer<Map> {
+		final Method factory;
+
+		{
+			setImmutable(true);
+		}
+
+		/** @param factory A static method that takes an Entry[] and returns the map, such as {@code Map.ofEntries(Entry...)}. */
+		public ImmutableMapSerializer (Method factory) {
+			if (factory == null) throw new IllegalArgumentException("factory cannot be null.");
+			this.factory = factory;
+		}
+
+		public void write (Kryo kryo, Output output, Map map) {
+			output.writeVarInt(map.size(), true);
+			for (Object object : map.entrySet()) {
+				Entry entry = (Entry)object;
+				kryo.writeClassAndObject(output, entry.getKey());
+				kryo.writeClassAndObject(output, entry.getValue());
+			}
+		}
+
+		public Map read (Kryo kryo, Input input, Class<Map> type) {
+			Entry[] entries = new Entry[input.readVarInt(true)];
+			for (int i = 0, n = entries.length; i < n; i++) {
+				Object key = kryo.readClassAndObject(input);
+				entries[i] = new SimpleImmutableEntry(key, kryo.readClassAndObject(input));
+			}
+			return (Map)invoke(factory, entries);
+		}
+	}
+}
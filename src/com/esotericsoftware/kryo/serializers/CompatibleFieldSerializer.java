@@ -21,11 +21,19 @@ package com.esotericsoftware.kryo.serializers;
 
 import static com.esotericsoftware.minlog.Log.*;
 
+import java.nio.ByteBuffer;
+
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
+import com.esotericsoftware.kryo.io.FastOutput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.InputChunked;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.io.OutputChunked;
+import com.esotericsoftware.kryo.io.UnsafeMemoryOutput;
+import com.esotericsoftware.kryo.io.UnsafeOutput;
+import com.esotericsoftware.kryo.util.IntMap;
 import com.esotericsoftware.kryo.util.ObjectMap;
 
 /** Serializes objects using direct field assignment, providing both forward and backward compatibility. This means fields can be
@@ -35,6 +43,12 @@ import com.esotericsoftware.kryo.util.ObjectMap;
  * field name strings. Also, during serialization and deserialization buffers are allocated to perform chunked encoding. This is
  * what enables CompatibleFieldSerializer to skip bytes for fields it does not know about.
  * <p>
+ * When {@link CompatibleFieldSerializerConfig#setChunkedEncoding(boolean) chunked encoding} is disabled, the data for each field
+ * is instead prefixed with its length. Buffers for this are kept in the {@link Kryo#getContext() Kryo context} and reused.
+ * <p>
+ * With a {@link CompatibleFieldSerializerConfig#setSchemaRegistry(SchemaRegistry) schema registry}, a schema ID is written
+ * instead of the field name strings.
+ * <p>
  * Removing fields when {@link Kryo#setReferences(boolean) references} are enabled can cause compatibility issues. See
  * <a href="https://github.com/EsotericSoftware/kryo/issues/286#issuecomment-74870545">here</a>.
  * <p>
@@ -44,9 +58,40 @@ import com.esotericsoftware.kryo.util.ObjectMap;
 public class CompatibleFieldSerializer<T> extends FieldSerializer<T> {
 	/* For object with more than BINARY_SEARCH_THRESHOLD fields, use binary search instead of iterative search */
 	private static final int THRESHOLD_BINARY_SEARCH = 32;
+	/* Key for the field buffers in the Kryo context */
+	static private final Object fieldBuffersKey = new Object();
+
+	private boolean chunkedEncoding;
+	private SchemaRegistry schemaRegistry;
+	/* The fields the schema ID and the fields by schema ID were computed for */
+	private CachedField[] schemaFields;
+	private int schemaId = -1;
+	private final IntMap<CachedField[]> fieldsBySchemaId = new IntMap();
 
 	public CompatibleFieldSerializer (Kryo kryo, Class type) {
 		super(kryo, type);
+		CompatibleFieldSerializerConfig config = kryo.getCompatibleFieldSerializerConfig();
+		chunkedEncoding = config.isChunkedEncoding();
+		schemaRegistry = config.getSchemaRegistry();
+	}
+
+	/** @see CompatibleFieldSerializerConfig#setChunkedEncoding(boolean) */
+	public void setChunkedEncoding (boolean chunkedEncoding) {
+		this.chunkedEncoding = chunkedEncoding;
+	}
+
+	public boolean getChunkedEncoding () {
+		return chunkedEncoding;
+	}
+
+	/** @see CompatibleFieldSerializerConfig#setSchemaRegistry(SchemaRegistry) */
+	public void setSchemaRegistry (SchemaRegistry schemaRegistry) {
+		this.schemaRegistry = schemaRegistry;
+		schemaFields = null;
+	}
+
+	public SchemaRegistry getSchemaRegistry () {
+		return schemaRegistry;
 	}
 
 	public void write (Kryo kryo, Output output, T object) {
@@ -54,10 +99,21 @@ public class CompatibleFieldSerializer<T> extends FieldSerializer<T> {
 		ObjectMap context = kryo.getGraphContext();
 		if (!context.containsKey(this)) {
 			context.put(this, null);
-			if (TRACE) trace("kryo", "Write " + fields.length + " field names.");
-			output.writeVarInt(fields.length, true);
-			for (int i = 0, n = fields.length; i < n; i++)
-				output.writeString(getCachedFieldName(fields[i]));
+			if (schemaRegistry != null) {
+				int id = getSchemaId(fields);
+				if (TRACE) trace("kryo", "Write schema ID: " + id);
+				output.writeVarInt(id, true);
+			} else {
+				if (TRACE) trace("kryo", "Write " + fields.length + " field names.");
+				output.writeVarInt(fields.length, true);
+				for (int i = 0, n = fields.length; i < n; i++)
+					output.writeString(getCachedFieldName(fields[i]));
+			}
+		}
+
+		if (!chunkedEncoding) {
+			writeLengthPrefixed(kryo, output, object, fields);
+			return;
 		}
 
 		OutputChunked outputChunked = new OutputChunked(output, 1024);
@@ -67,65 +123,137 @@ public class CompatibleFieldSerializer<T> extends FieldSerializer<T> {
 		}
 	}
 
+	/** Returns the field for each name, or null for names that are not fields of this serializer. */
+	private CachedField[] matchFields (String[] names) {
+		int length = names.length;
+		CachedField[] fields = new CachedField[length];
+		CachedField[] allFields = getFields();
+
+		if (length < THRESHOLD_BINARY_SEARCH) {
+			outer:
+			for (int i = 0; i < length; i++) {
+				String schemaName = names[i];
+				for (int ii = 0, nn = allFields.length; ii < nn; ii++) {
+					if (getCachedFieldName(allFields[ii]).equals(schemaName)) {
+						fields[i] = allFields[ii];
+						continue outer;
+					}
+				}
+				if (TRACE) trace("kryo", "Ignore obsolete field: " + schemaName);
+			}
+		} else {
+			// binary search for schemaName
+			int low, mid, high;
+			int compare;
+			outerBinarySearch:
+			for (int i = 0; i < length; i++) {
+				String schemaName = names[i];
+
+				low = 0;
+				high = allFields.length - 1;
+
+				while (low <= high) {
+					mid = (low + high) >>> 1;
+					String midVal = getCachedFieldName(allFields[mid]);
+					compare = schemaName.compareTo(midVal);
+
+					if (compare < 0) {
+						high = mid - 1;
+					} else if (compare > 0) {
+						low = mid + 1;
+					} else {
+						fields[i] = allFields[mid];
+						continue outerBinarySearch;
+					}
+				}
+				if (TRACE) trace("kryo", "Ignore obsolete field: " + schemaName);
+			}
+		}
+		return fields;
+	}
+
+	private int getSchemaId (CachedField[] fields) {
+		if (schemaFields != fields) {
+			String[] names = new String[fields.length];
+			for (int i = 0, n = fields.length; i < n; i++)
+				names[i] = getCachedFieldName(fields[i]);
+			schemaId = schemaRegistry.getId(type, names);
+			if (schemaId < 0) throw new KryoException("Invalid schema ID: " + schemaId);
+			fieldsBySchemaId.clear();
+			schemaFields = fields;
+		}
+		return schemaId;
+	}
+
+	private CachedField[] getSchemaFields (int id) {
+		CachedField[] allFields = getFields();
+		if (schemaFields != allFields) {
+			schemaId = -1;
+			fieldsBySchemaId.clear();
+			schemaFields = allFields;
+		}
+		CachedField[] fields = fieldsBySchemaId.get(id);
+		if (fields == null) {
+			String[] names = schemaRegistry.getFieldNames(id);
+			if (names == null) throw new KryoException("Unknown schema ID " + id + " for class: " + type.getName());
+			fields = matchFields(names);
+			fieldsBySchemaId.put(id, fields);
+		}
+		return fields;
+	}
+
+	private void writeLengthPrefixed (Kryo kryo, Output output, T object, CachedField[] fields) {
+		// Fields may contain objects written by a CompatibleFieldSerializer, so a buffer is used for each nesting level.
+		FieldBuffers buffers = (FieldBuffers)kryo.getContext().get(fieldBuffersKey);
+		if (buffers == null) {
+			buffers = new FieldBuffers();
+			kryo.getContext().put(fieldBuffersKey, buffers);
+		}
+		Output buffer = buffers.push(output);
+		try {
+			for (int i = 0, n = fields.length; i < n; i++) {
+				buffer.clear();
+				fields[i].write(buffer, object);
+				int length = buffer.position();
+				output.writeVarInt(length, true);
+				if (buffer instanceof ByteBufferOutput) {
+					// The buffer is backed by a heap ByteBuffer, see FieldBuffers#newBuffer, so its array is copied directly.
+					ByteBuffer bytes = ((ByteBufferOutput)buffer).getByteBuffer();
+					output.writeBytes(bytes.array(), bytes.arrayOffset(), length);
+				} else
+					output.writeBytes(buffer.getBuffer(), 0, length);
+			}
+		} finally {
+			buffers.pop();
+		}
+	}
+
 	public T read (Kryo kryo, Input input, Class<T> type) {
 		T object = create(kryo, input, type);
 		kryo.reference(object);
 		ObjectMap context = kryo.getGraphContext();
 		CachedField[] fields = (CachedField[])context.get(this);
 		if (fields == null) {
-			int length = input.readVarInt(true);
-			if (TRACE) trace("kryo", "Read " + length + " field names.");
-			String[] names = new String[length];
-			for (int i = 0; i < length; i++)
-				names[i] = input.readString();
-
-			fields = new CachedField[length];
-			CachedField[] allFields = getFields();
-
-			if (length < THRESHOLD_BINARY_SEARCH) {
-				outer:
-				for (int i = 0; i < length; i++) {
-					String schemaName = names[i];
-					for (int ii = 0, nn = allFields.length; ii < nn; ii++) {
-						if (getCachedFieldName(allFields[ii]).equals(schemaName)) {
-							fields[i] = allFields[ii];
-							continue outer;
-						}
-					}
-					if (TRACE) trace("kryo", "Ignore obsolete field: " + schemaName);
-				}
+			if (schemaRegistry != null) {
+				int id = input.readVarInt(true);
+				if (TRACE) trace("kryo", "Read schema ID: " + id);
+				fields = getSchemaFields(id);
 			} else {
-				// binary search for schemaName
-				int low, mid, high;
-				int compare;
-				outerBinarySearch:
-				for (int i = 0; i < length; i++) {
-					String schemaName = names[i];
-
-					low = 0;
-					high = length - 1;
-
-					while (low <= high) {
-						mid = (low + high) >>> 1;
-						String midVal = getCachedFieldName(allFields[mid]);
-						compare = schemaName.compareTo(midVal);
-
-						if (compare < 0) {
-							high = mid - 1;
-						} else if (compare > 0) {
-							low = mid + 1;
-						} else {
-							fields[i] = allFields[mid];
-							continue outerBinarySearch;
-						}
-					}
-					if (TRACE) trace("kryo", "Ignore obsolete field: " + schemaName);
-				}
+				int length = input.readVarInt(true);
+				if (TRACE) trace("kryo", "Read " + length + " field names.");
+				String[] names = new String[length];
+				for (int i = 0; i < length; i++)
+					names[i] = input.readString();
+				fields = matchFields(names);
 			}
-
 			context.put(this, fields);
 		}
 
+		if (!chunkedEncoding) {
+			readLengthPrefixed(input, object, fields);
+			return object;
+		}
+
 		InputChunked inputChunked = new InputChunked(input, 1024);
 		boolean hasGenerics = getGenerics() != null;
 		for (int i = 0, n = fields.length; i < n; i++) {
@@ -146,4 +274,86 @@ public class CompatibleFieldSerializer<T> extends FieldSerializer<T> {
 		}
 		return object;
 	}
+
+	private void readLengthPrefixed (Input input, T object, CachedField[] fields) {
+		boolean hasGenerics = getGenerics() != null;
+		for (int i = 0, n = fields.length; i < n; i++) {
+			int length = input.readVarInt(true);
+			CachedField cachedField = fields[i];
+			if (cachedField != null && hasGenerics) cachedField = getField(getCachedFieldName(cachedField));
+			if (cachedField == null) {
+				if (TRACE) trace("kryo", "Skip obsolete field: " + length + " bytes");
+				input.skip(length);
+				continue;
+			}
+			// Known fields are read directly, the length is only used to detect fields whose type has changed.
+			long start = input.total();
+			cachedField.read(input, object);
+			long read = input.total() - start;
+			if (read != length) {
+				throw new KryoException("Field " + getCachedFieldName(cachedField) + " read " + read + " bytes, expected: " + length
+					+ ". The type of the field may have changed.");
+			}
+		}
+	}
+
+	/** Reusable buffers for the field data of nested objects. A buffer writes the same bytes as the output it is copied to. */
+	static private class FieldBuffers {
+		private Output[] buffers = new Output[4];
+		private int depth;
+
+		Output push (Output output) {
+			if (depth == buffers.length) {
+				Output[] newBuffers = new Output[depth << 1];
+				System.arraycopy(buffers, 0, newBuffers, 0, depth);
+				buffers = newBuffers;
+			}
+			Output buffer = buffers[depth];
+			if (buffer == null || !matches(buffer, output)) buffers[depth] = buffer = newBuffer(output);
+			depth++;
+			return buffer;
+		}
+
+		void pop () {
+			depth--;
+		}
+
+		static private Output newBuffer (Output output) {
+			if (output instanceof UnsafeOutput) {
+				UnsafeOutput buffer = new UnsafeOutput(256, -1);
+				buffer.supportVarInts(((UnsafeOutput)output).supportVarInts());
+				return buffer;
+			}
+			if (output instanceof UnsafeMemoryOutput) {
+				// UnsafeOutput writes the same bytes and is backed by a byte array.
+				UnsafeOutput buffer = new UnsafeOutput(256, -1);
+				buffer.supportVarInts(((UnsafeMemoryOutput)output).getVarIntsEnabled());
+				return buffer;
+			}
+			if (output instanceof ByteBufferOutput) {
+				ByteBufferOutput byteBufferOutput = (ByteBufferOutput)output;
+				ByteBufferOutput buffer = new ByteBufferOutput(ByteBuffer.allocate(256), -1);
+				buffer.order(byteBufferOutput.order());
+				buffer.setVarIntsEnabled(byteBufferOutput.getVarIntsEnabled());
+				return buffer;
+			}
+			if (output instanceof FastOutput) return new FastOutput(256, -1);
+			return new Output(256, -1);
+		}
+
+		static private boolean matches (Output buffer, Output output) {
+			if (output instanceof UnsafeOutput) return buffer instanceof UnsafeOutput
+				&& ((UnsafeOutput)buffer).supportVarInts() == ((UnsafeOutput)output).supportVarInts();
+			if (output instanceof UnsafeMemoryOutput) return buffer instanceof UnsafeOutput
+				&& ((UnsafeOutput)buffer).supportVarInts() == ((UnsafeMemoryOutput)output).getVarIntsEnabled();
+			if (output instanceof ByteBufferOutput) {
+				if (buffer.getClass() != ByteBufferOutput.class) return false;
+				ByteBufferOutput byteBufferOutput = (ByteBufferOutput)output, byteBuffer = (ByteBufferOutput)buffer;
+				return byteBuffer.order() == byteBufferOutput.order()
+					&& byteBuffer.getVarIntsEnabled() == byteBufferOutput.getVarIntsEnabled();
+			}
+			if (output instanceof FastOutput) return buffer instanceof FastOutput;
+			return buffer.getClass() == Output.class;
+		}
+	}
 }
@@ -0,0 +1,55 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import static com.esotericsoftware.minlog.Log.*;
+
+/** Configuration for CompatibleFieldSerializer instances, in addition to the {@link FieldSerializerConfig}. */
+public class CompatibleFieldSerializerConfig {
+	private boolean chunkedEncoding = true;
+	private SchemaRegistry schemaRegistry;
+
+	/** Sets how the data for each field is delimited, so fields that are unknown when reading can be skipped. Data written with
+	 * one setting can't be read with the other. Already existing serializer instances are not affected by this setting.
+	 * @param chunkedEncoding If true, the data for each field is written using chunked encoding (default). If false, the data for
+	 *           each field is buffered and prefixed with its length as a varint. This is smaller and faster, especially for
+	 *           fields with little data, but the data for a field must fit in memory. */
+	public void setChunkedEncoding (boolean chunkedEncoding) {
+		this.chunkedEncoding = chunkedEncoding;
+		if (TRACE) trace("kryo.CompatibleFieldSerializerConfig", "setChunkedEncoding: " + chunkedEncoding);
+	}
+
+	public boolean isChunkedEncoding () {
+		return chunkedEncoding;
+	}
+
+	/** Sets the registry used to write a schema ID instead of the field names, the first time a class is encountered in each
+	 * object graph. The reader must use a registry with the same schemas. Already existing serializer instances are not affected
+	 * by this setting.
+	 * @param schemaRegistry May be null to write the field names (default). */
+	public void setSchemaRegistry (SchemaRegistry schemaRegistry) {
+		this.schemaRegistry = schemaRegistry;
+		if (TRACE) trace("kryo.CompatibleFieldSerializerConfig", "setSchemaRegistry: " + schemaRegistry);
+	}
+
+	public SchemaRegistry getSchemaRegistry () {
+		return schemaRegistry;
+	}
+}
@@ -0,0 +1,43 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import com.esotericsoftware.kryo.io.CompressedInput;
+import com.esotericsoftware.kryo.io.CompressedOutput;
+
+/** Compresses and decompresses blocks of bytes. The compressed block does not need to store the uncompressed length, it is stored
+ * by the caller.
+ * @see CompressionSerializer
+ * @see CompressedOutput
+ * @see CompressedInput */
+public interface CompressionCodec {
+	/** Returns the largest number of bytes {@link #compress(byte[], int, int, byte[], int)} can write for the given number of
+	 * bytes. */
+	public int maxCompressedLength (int length);
+
+	/** Compresses the bytes into the destination, which must have room for {@link #maxCompressedLength(int)} bytes.
+	 * @return The number of compressed bytes written. */
+	public int compress (byte[] bytes, int offset, int length, byte[] compressed, int compressedOffset);
+
+	/** Decompresses the bytes into the destination.
+	 * @param length The number of bytes that were compressed.
+	 * @throws com.esotericsoftware.kryo.KryoException if the compressed bytes are malformed. */
+	public void decompress (byte[] compressed, int compressedOffset, int compressedLength, byte[] bytes, int offset, int length);
+}
@@ -0,0 +1,133 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/** Compresses the bytes written by another serializer using a {@link CompressionCodec}. The bytes are written as their length and
+ * their compressed length, followed by the compressed bytes. Values shorter than the threshold, or that do not get smaller, are
+ * stored uncompressed with a compressed length of 0.
+ * 
+ * <pre>
+ * kryo.register(CacheValue.class, new CompressionSerializer(kryo.getDefaultSerializer(CacheValue.class), new LZ4Codec()));
+ * </pre>
+ * 
+ * The buffers are reused, so like most serializers an instance should only be used by a single Kryo instance. */
+public class CompressionSerializer extends Serializer {
+	private final Serializer serializer;
+	private final CompressionCodec codec;
+	private int threshold = 256;
+	private Output output;
+	private Input input;
+	private byte[] compressed;
+	private boolean inUse;
+
+	public CompressionSerializer (Serializer serializer, CompressionCodec codec) {
+		if (serializer == null) throw new IllegalArgumentException("serializer cannot be null.");
+		if (codec == null) throw new IllegalArgumentException("codec cannot be null.");
+		this.serializer = serializer;
+		this.codec = codec;
+	}
+
+	/** Sets the minimum number of serialized bytes for a value to be compressed. Default is 256. */
+	public void setThreshold (int threshold) {
+		this.threshold = threshold;
+	}
+
+	public int getThreshold () {
+		return threshold;
+	}
+
+	public void write (Kryo kryo, Output output, Object object) {
+		// A nested object using this serializer gets its own buffers.
+		boolean nested = inUse;
+		Output bytesOutput = nested ? null : this.output;
+		if (bytesOutput == null) {
+			bytesOutput = new Output(1024, -1);
+			if (!nested) this.output = bytesOutput;
+		}
+		inUse = true;
+		try {
+			bytesOutput.clear();
+			serializer.write(kryo, bytesOutput, object);
+			int length = bytesOutput.position();
+			byte[] bytes = bytesOutput.getBuffer();
+			output.writeVarInt(length, true);
+			if (length >= threshold) {
+				int maxLength = codec.maxCompressedLength(length);
+				byte[] compressed = nested ? null : this.compressed;
+				if (compressed == null || compressed.length < maxLength) {
+					compressed = new byte[maxLength];
+					if (!nested) this.compressed = compressed;
+				}
+				int compressedLength = codec.compress(bytes, 0, length, compressed, 0);
+				if (compressedLength < length) {
+					output.writeVarInt(compressedLength, true);
+					output.writeBytes(compressed, 0, compressedLength);
+					return;
+				}
+			}
+			output.writeVarInt(0, true);
+			output.writeBytes(bytes, 0, length);
+		} finally {
+			if (!nested) inUse = false;
+		}
+	}
+
+	public Object read (Kryo kryo, Input input, Class type) {
+		int length = input.readVarInt(true);
+		int compressedLength = input.readVarInt(true);
+
+		boolean nested = inUse;
+		Input bytesInput = nested ? null : this.input;
+		if (bytesInput == null) {
+			bytesInput = new Input();
+			if (!nested) this.input = bytesInput;
+		}
+		byte[] bytes = bytesInput.getBuffer();
+		if (bytes == null || bytes.length < length) bytes = new byte[length];
+		// The value was written with an Output, so it is always read with an Input rather than the type of the given input.
+		if (compressedLength == 0) {
+			input.readBytes(bytes, 0, length);
+		} else {
+			byte[] compressed = nested ? null : this.compressed;
+			if (compressed == null || compressed.length < compressedLength) {
+				compressed = new byte[compressedLength];
+				if (!nested) this.compressed = compressed;
+			}
+			input.readBytes(compressed, 0, compressedLength);
+			codec.decompress(compressed, 0, compressedLength, bytes, 0, length);
+		}
+		bytesInput.setBuffer(bytes, 0, length);
+		inUse = true;
+		try {
+			return serializer.read(kryo, bytesInput, type);
+		} finally {
+			if (!nested) inUse = false;
+		}
+	}
+
+	public Object copy (Kryo kryo, Object original) {
+		return serializer.copy(kryo, original);
+	}
+}
@@ -30,6 +30,10 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,14 +42,21 @@ import java.util.Currency;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoException;
@@ -687,6 +698,22 @@ public class DefaultSerializers {
 			return createTreeMap(original.getClass(), ((TreeMap)original).comparator());
 		}
 
+		/** The entries were written in sorted order, so a TreeMap collects them and builds the tree in linear time with
+		 * {@link TreeMap#putAll(Map)}. Subclasses may override put, so they are filled one entry at a time. */
+		Map readInto (Kryo kryo, Map map, int size) {
+			if (map.getClass() != TreeMap.class || size < 2) return map;
+			return new SortedEntries(((TreeMap)map).comparator(), size);
+		}
+
+		Map readComplete (Map map, Map entries) {
+			SortedEntries sorted = (SortedEntries)entries;
+			if (sorted.sorted)
+				map.putAll(sorted);
+			else
+				sorted.putEach(map);
+			return map;
+		}
+
 		private TreeMap createTreeMap (Class<? extends Map> type, Comparator comparator) {
 			if (type != TreeMap.class && type != null) {
 				// For subclasses, use reflection
@@ -707,6 +734,111 @@ public class DefaultSerializers {
 		}
 	}
 
+	static int compare (Comparator comparator, Object a, Object b) {
+		return comparator != null ? comparator.compare(a, b) : ((Comparable)a).compareTo(b);
+	}
+
+	/** Collects entries in the order they are put and checks they are in strictly ascending order. Only supports what
+	 * {@link TreeMap#putAll(Map)} and the {@link ConcurrentSkipListMap} constructor need to build from a sorted map. */
+	static final class SortedEntries extends AbstractMap implements SortedMap {
+		final Comparator comparator;
+		final Object[] keys, values;
+		int size;
+		boolean sorted = true;
+
+		SortedEntries (Comparator comparator, int capacity) {
+			this.comparator = comparator;
+			keys = new Object[capacity];
+			values = new Object[capacity];
+		}
+
+		public Object put (Object key, Object value) {
+			if (sorted && size > 0) sorted = compare(comparator, keys[size - 1], key) < 0;
+			keys[size] = key;
+			values[size] = value;
+			size++;
+			return null;
+		}
+
+		/** Puts the entries in the map one at a time. */
+		void putEach (Map map) {
+			for (int i = 0; i < size; i++)
+				map.put(keys[i], values[i]);
+		}
+
+		public int size () {
+			return size;
+		}
+
+		public Comparator comparator () {
+			return comparator;
+		}
+
+		public Set entrySet () {
+			return new AbstractSet() {
+				public int size () {
+					return size;
+				}
+
+				public Iterator iterator () {
+					return new EntryIterator();
+				}
+			};
+		}
+
+		/** Returns itself as the entry for the current index, so the entry is only valid until the next call to {@link #next()}.
+		 * This is enough for the sorted map constructors, which copy the key and value of each entry as it is iterated. */
+		private final class EntryIterator implements Iterator, Entry {
+			int index = -1;
+
+			public boolean hasNext () {
+				return index + 1 < size;
+			}
+
+			public Object next () {
+				if (index + 1 == size) throw new NoSuchElementException();
+				index++;
+				return this;
+			}
+
+			public void remove () {
+				throw new UnsupportedOperationException();
+			}
+
+			public Object getKey () {
+				return keys[index];
+			}
+
+			public Object getValue () {
+				return values[index];
+			}
+
+			public Object setValue (Object value) {
+				throw new UnsupportedOperationException();
+			}
+		}
+
+		public SortedMap subMap (Object fromKey, Object toKey) {
+			throw new UnsupportedOperationException();
+		}
+
+		public SortedMap headMap (Object toKey) {
+			throw new UnsupportedOperationException();
+		}
+
+		public SortedMap tailMap (Object fromKey) {
+			throw new UnsupportedOperationException();
+		}
+
+		public Object firstKey () {
+			throw new UnsupportedOperationException();
+		}
+
+		public Object lastKey () {
+			throw new UnsupportedOperationException();
+		}
+	}
+
 	/** Serializer for {@link TreeMap} and any subclass.
 	 * @author Tumi <serverperformance@gmail.com> (enhacements) */
 	static public class TreeSetSerializer extends CollectionSerializer {
@@ -724,6 +856,23 @@ public class DefaultSerializers {
 			return createTreeSet(original.getClass(), ((TreeSet)original).comparator());
 		}
 
+		/** The elements were written in sorted order, so a TreeSet collects them and builds the tree in linear time with
+		 * {@link TreeSet#addAll(Collection)}. Subclasses may override add, so they are filled one element at a time. */
+		Collection readInto (Collection collection, int size) {
+			if (collection.getClass() != TreeSet.class || size < 2) return collection;
+			return new SortedElements(((TreeSet)collection).comparator(), size);
+		}
+
+		void readComplete (Collection collection, Collection elements) {
+			SortedElements sorted = (SortedElements)elements;
+			if (sorted.sorted)
+				collection.addAll(sorted);
+			else {
+				for (int i = 0, n = sorted.size; i < n; i++)
+					collection.add(sorted.elements[i]);
+			}
+		}
+
 		private TreeSet createTreeSet (Class<? extends Collection> type, Comparator comparator) {
 			if (type != TreeSet.class && type != null) {
 				// For subclasses, use reflection
@@ -742,6 +891,185 @@ public class DefaultSerializers {
 			}
 			return new TreeSet(comparator);
 		}
+
+		/** Collects elements in the order they are added and checks they are in strictly ascending order. Only supports what
+		 * {@link TreeSet#addAll(Collection)} needs to build a tree from a sorted set. */
+		static private final class SortedElements extends AbstractSet implements SortedSet {
+			final Comparator comparator;
+			final Object[] elements;
+			int size;
+			boolean sorted = true;
+
+			SortedElements (Comparator comparator, int capacity) {
+				this.comparator = comparator;
+				elements = new Object[capacity];
+			}
+
+			public boolean add (Object element) {
+				if (sorted && size > 0) sorted = compare(comparator, elements[size - 1], element) < 0;
+				elements[size++] = element;
+				return true;
+			}
+
+			public int size () {
+				return size;
+			}
+
+			public Comparator comparator () {
+				return comparator;
+			}
+
+			public Iterator iterator () {
+				return new Iterator() {
+					int index;
+
+					public boolean hasNext () {
+						return index < size;
+					}
+
+					public Object next () {
+						if (index == size) throw new NoSuchElementException();
+						return elements[index++];
+					}
+
+					public void remove () {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			public SortedSet subSet (Object fromElement, Object toElement) {
+				throw new UnsupportedOperationException();
+			}
+
+			public SortedSet headSet (Object toElement) {
+				throw new UnsupportedOperationException();
+			}
+
+			public SortedSet tailSet (Object fromElement) {
+				throw new UnsupportedOperationException();
+			}
+
+			public Object first () {
+				throw new UnsupportedOperationException();
+			}
+
+			public Object last () {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+
+	/** Serializer for {@link PriorityQueue} and any subclass. The number of elements and the comparator are written, followed by
+	 * the elements in the order of the queue's heap. Adding them in that order to a queue with the required capacity rebuilds the
+	 * same heap with one comparison per element. This is not a default serializer, because {@link CollectionSerializer} is used
+	 * for PriorityQueue by default and does not write the comparator. */
+	static public class PriorityQueueSerializer extends CollectionSerializer {
+		void writeHeader (Kryo kryo, Output output, Collection collection) {
+			kryo.writeClassAndObject(output, ((PriorityQueue)collection).comparator());
+		}
+
+		protected Collection create (Kryo kryo, Input input, Class<Collection> type, int size) {
+			return createPriorityQueue(type, (Comparator)kryo.readClassAndObject(input), size);
+		}
+
+		protected Collection createCopy (Kryo kryo, Collection original) {
+			return createPriorityQueue(original.getClass(), ((PriorityQueue)original).comparator(), original.size());
+		}
+
+		private PriorityQueue createPriorityQueue (Class<? extends Collection> type, Comparator comparator, int size) {
+			int capacity = Math.max(size, 1);
+			if (type != PriorityQueue.class && type != null) {
+				// For subclasses, use reflection
+				try {
+					Constructor constructor = type.getConstructor(int.class, Comparator.class);
+					if (!constructor.isAccessible()) {
+						try {
+							constructor.setAccessible(true);
+						} catch (SecurityException se) {
+						}
+					}
+					return (PriorityQueue)constructor.newInstance(capacity, comparator);
+				} catch (Exception ex) {
+					throw new KryoException(ex);
+				}
+			}
+			return new PriorityQueue(capacity, comparator);
+		}
+	}
+
+	/** Serializer for {@link CopyOnWriteArrayList}. Each add copies the list's array, so the elements are collected and added with
+	 * one {@link CopyOnWriteArrayList#addAll(Collection)}. Subclasses are filled one element at a time. */
+	static public class CopyOnWriteArrayListSerializer extends CollectionSerializer {
+		Collection readInto (Collection collection, int size) {
+			if (collection.getClass() != CopyOnWriteArrayList.class || size < 2) return collection;
+			return new ArrayList(size);
+		}
+
+		void readComplete (Collection collection, Collection elements) {
+			collection.addAll(elements);
+		}
+
+		public Collection copy (Kryo kryo, Collection original) {
+			if (original.getClass() != CopyOnWriteArrayList.class) return super.copy(kryo, original);
+			CopyOnWriteArrayList copy = new CopyOnWriteArrayList();
+			kryo.reference(copy);
+			Object[] elements = original.toArray();
+			for (int i = 0, n = elements.length; i < n; i++)
+				elements[i] = kryo.copy(elements[i]);
+			copy.addAll(Arrays.asList(elements));
+			return copy;
+		}
+	}
+
+	/** Serializer for {@link ConcurrentSkipListMap} and any subclass. The comparator is written, followed by the entries in sorted
+	 * order. When references are disabled, a ConcurrentSkipListMap is built from the sorted entries in linear time. Otherwise
+	 * the map must exist before its entries are read, so they are put one at a time. This is not a default serializer, because
+	 * {@link MapSerializer} is used for ConcurrentSkipListMap by default and does not write the comparator. */
+	static public class ConcurrentSkipListMapSerializer extends MapSerializer {
+		public void write (Kryo kryo, Output output, Map map) {
+			kryo.writeClassAndObject(output, ((ConcurrentSkipListMap)map).comparator());
+			super.write(kryo, output, map);
+		}
+
+		protected Map create (Kryo kryo, Input input, Class<Map> type) {
+			return createConcurrentSkipListMap(type, (Comparator)kryo.readClassAndObject(input));
+		}
+
+		protected Map createCopy (Kryo kryo, Map original) {
+			return createConcurrentSkipListMap(original.getClass(), ((ConcurrentSkipListMap)original).comparator());
+		}
+
+		Map readInto (Kryo kryo, Map map, int size) {
+			if (kryo.getReferences() || map.getClass() != ConcurrentSkipListMap.class || size < 2) return map;
+			return new SortedEntries(((ConcurrentSkipListMap)map).comparator(), size);
+		}
+
+		Map readComplete (Map map, Map entries) {
+			SortedEntries sorted = (SortedEntries)entries;
+			if (sorted.sorted) return new ConcurrentSkipListMap(sorted);
+			sorted.putEach(map);
+			return map;
+		}
+
+		private ConcurrentSkipListMap createConcurrentSkipListMap (Class<? extends Map> type, Comparator comparator) {
+			if (type != ConcurrentSkipListMap.class && type != null) {
+				// For subclasses, use reflection
+				try {
+					Constructor constructor = type.getConstructor(Comparator.class);
+					if (!constructor.isAccessible()) {
+						try {
+							constructor.setAccessible(true);
+						} catch (SecurityException se) {
+						}
+					}
+					return (ConcurrentSkipListMap)constructor.newInstance(comparator);
+				} catch (Exception ex) {
+					throw new KryoException(ex);
+				}
+			}
+			return new ConcurrentSkipListMap(comparator);
+		}
 	}
 
 	/** Serializer for {@link Locale} (immutables).
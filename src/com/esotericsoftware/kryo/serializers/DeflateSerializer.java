@@ -19,11 +19,13 @@
 
 package com.esotericsoftware.kryo.serializers;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoException;
@@ -32,44 +34,95 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.InputChunked;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.io.OutputChunked;
+import com.esotericsoftware.kryo.util.ObjectMap;
 
+/** Compresses the bytes written by another serializer using deflate. The compressed bytes are written using chunked encoding.
+ * <p>
+ * The {@link Deflater}, {@link Inflater} and buffers are created the first time they are needed by each Kryo instance and are
+ * reused for later objects. They are stored in {@link Kryo#getContext()}. */
 public class DeflateSerializer extends Serializer {
 	private final Serializer serializer;
 	private boolean noHeaders = true;
 	private int compressionLevel = 4;
+	private int bufferSize = 4096;
 
 	public DeflateSerializer (Serializer serializer) {
 		this.serializer = serializer;
 	}
 
 	public void write (Kryo kryo, Output output, Object object) {
-		OutputChunked outputChunked = new OutputChunked(output, 256);
-		Deflater deflater = new Deflater(compressionLevel, noHeaders);
+		Codec codec = obtain(kryo);
 		try {
-			DeflaterOutputStream deflaterStream = new DeflaterOutputStream(outputChunked, deflater);
-			Output deflaterOutput = new Output(deflaterStream, 256);
+			if (codec.deflater == null) {
+				codec.deflater = new Deflater(compressionLevel, noHeaders);
+				codec.outputChunked = new OutputChunked(bufferSize);
+				codec.deflaterStream = new DeflaterOutputStream(codec.outputChunked, codec.deflater, bufferSize);
+				codec.deflaterOutput = new Output(bufferSize);
+			}
+			OutputChunked outputChunked = codec.outputChunked;
+			outputChunked.setOutputStream(output);
+			Output deflaterOutput = codec.deflaterOutput;
+			deflaterOutput.setOutputStream(codec.deflaterStream);
 			serializer.write(kryo, deflaterOutput, object);
 			deflaterOutput.flush();
-			deflaterStream.finish();
+			codec.deflaterStream.finish();
+			outputChunked.endChunks();
 		} catch (IOException ex) {
 			throw new KryoException(ex);
 		} finally {
-			deflater.end();
+			if (codec.deflater != null) codec.deflater.reset();
+			release(kryo, codec);
 		}
-		outputChunked.endChunks();
 	}
 
 	public Object read (Kryo kryo, Input input, Class type) {
 		// The inflater would read from input beyond the compressed bytes if chunked enoding wasn't used.
-		Inflater inflater = new Inflater(noHeaders);
+		Codec codec = obtain(kryo);
 		try {
-			InflaterInputStream inflaterStream = new InflaterInputStream(new InputChunked(input, 256), inflater);
-			return serializer.read(kryo, new Input(inflaterStream, 256), type);
+			if (codec.inflater == null) {
+				codec.inflater = new Inflater(noHeaders);
+				codec.inputChunked = new InputChunked(bufferSize);
+				codec.inflaterStream = new InflaterStream(codec.inflater, codec.inputChunked, bufferSize);
+				codec.inflaterInput = new Input(bufferSize);
+			}
+			InputChunked inputChunked = codec.inputChunked;
+			inputChunked.setInputStream(input);
+			Input inflaterInput = codec.inflaterInput;
+			inflaterInput.setInputStream(codec.inflaterStream);
+			Object object = serializer.read(kryo, inflaterInput, type);
+			inputChunked.nextChunks();
+			return object;
 		} finally {
-			inflater.end();
+			if (codec.inflater != null) codec.inflater.reset();
+			release(kryo, codec);
 		}
 	}
 
+	/** Returns the codec stored for the Kryo instance, or a temporary codec if it is in use by a nested object or the settings
+	 * have changed. */
+	private Codec obtain (Kryo kryo) {
+		ObjectMap context = kryo.getContext();
+		Codec codec = (Codec)context.get(this);
+		if (codec != null && !codec.inUse && !codec.matches(this)) {
+			codec.end();
+			codec = null;
+		}
+		if (codec == null) {
+			codec = new Codec(this);
+			context.put(this, codec);
+		} else if (codec.inUse)
+			return new Codec(this);
+		codec.inUse = true;
+		return codec;
+	}
+
+	private void release (Kryo kryo, Codec codec) {
+		if (codec.inUse)
+			codec.inUse = false;
+		else
+			codec.end();
+	}
+
 	public void setNoHeaders (boolean noHeaders) {
 		this.noHeaders = noHeaders;
 	}
@@ -80,7 +133,88 @@ public class DeflateSerializer extends Serializer {
 		this.compressionLevel = compressionLevel;
 	}
 
+	/** Sets the size of the buffers used for compression and the maximum size of each chunk of compressed bytes. Larger buffers
+	 * reduce the chunk overhead for large objects. This only affects writing, bytes written with any buffer size can be read.
+	 * Default is 4096. */
+	public void setBufferSize (int bufferSize) {
+		if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be > 0: " + bufferSize);
+		this.bufferSize = bufferSize;
+	}
+
+	public int getBufferSize () {
+		return bufferSize;
+	}
+
 	public Object copy (Kryo kryo, Object original) {
 		return serializer.copy(kryo, original);
 	}
+
+	/** The compression state for one Kryo instance. */
+	static private final class Codec {
+		final boolean noHeaders;
+		final int compressionLevel, bufferSize;
+		boolean inUse;
+
+		Deflater deflater;
+		OutputChunked outputChunked;
+		DeflaterOutputStream deflaterStream;
+		Output deflaterOutput;
+
+		Inflater inflater;
+		InputChunked inputChunked;
+		InflaterStream inflaterStream;
+		Input inflaterInput;
+
+		Codec (DeflateSerializer serializer) {
+			noHeaders = serializer.noHeaders;
+			compressionLevel = serializer.compressionLevel;
+			bufferSize = serializer.bufferSize;
+		}
+
+		boolean matches (DeflateSerializer serializer) {
+			return noHeaders == serializer.noHeaders && compressionLevel == serializer.compressionLevel
+				&& bufferSize == serializer.bufferSize;
+		}
+
+		void end () {
+			if (deflater != null) deflater.end();
+			if (inflater != null) inflater.end();
+		}
+	}
+
+	/** Like {@link java.util.zip.InflaterInputStream}, but can be reused after the inflater is reset. */
+	static private final class InflaterStream extends InputStream {
+		private final Inflater inflater;
+		private final InputStream input;
+		private final byte[] buffer;
+
+		InflaterStream (Inflater inflater, InputStream input, int bufferSize) {
+			this.inflater = inflater;
+			this.input = input;
+			buffer = new byte[bufferSize];
+		}
+
+		public int read () throws IOException {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+		}
+
+		public int read (byte[] bytes, int offset, int count) throws IOException {
+			if (count == 0) return 0;
+			try {
+				int inflated;
+				while ((inflated = inflater.inflate(bytes, offset, count)) == 0) {
+					if (inflater.finished() || inflater.needsDictionary()) return -1;
+					if (inflater.needsInput()) {
+						int length = input.read(buffer, 0, buffer.length);
+						if (length == -1) throw new EOFException("Unexpected end of compressed bytes.");
+						inflater.setInput(buffer, 0, length);
+					}
+				}
+				return inflated;
+			} catch (DataFormatException ex) {
+				throw new KryoException(ex);
+			}
+		}
+	}
 }
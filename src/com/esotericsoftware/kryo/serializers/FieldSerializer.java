@@ -86,6 +86,15 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 
 	private Generics genericsScope;
 
+	/** Cached fields for each set of generics, so they are built only once per generic type instantiation. */
+	private ObjectMap<GenericsKey, GenericsFields> genericsFields;
+	private GenericsFields lastGenericsFields;
+	/** True while the cached fields are rebuilt, when fields removed by {@link #initializeCachedFields()} don't change the field
+	 * set that is cached per set of generics. */
+	private boolean rebuilding;
+	private final GenericsKey genericsKey = new GenericsKey();
+	static private final Class[] noGenerics = new Class[0];
+
 	/** If set, this serializer tries to use a variable length encoding for int and long fields */
 	private boolean varIntsEnabled;
 
@@ -160,7 +169,16 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 	/** Rebuilds the list of cached fields.
 	 * @param minorRebuild if set, processing due to changes in generic type parameters will be optimized */
 	protected void rebuildCachedFields (boolean minorRebuild) {
-		/** TODO: Optimize rebuildCachedFields invocations performed due to changes in generic type parameters */
+		rebuilding = true;
+		try {
+			buildCachedFields(minorRebuild);
+		} finally {
+			rebuilding = false;
+		}
+	}
+
+	private void buildCachedFields (boolean minorRebuild) {
+		if (!minorRebuild) clearGenericsFields();
 
 		if (TRACE && generics != null) trace("kryo", "Generic type parameters: " + Arrays.toString(generics));
 		if (type.isInterface()) {
@@ -321,8 +339,54 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 			// Generic parameter types do not affect the set of fields, offsets of fields,
 			// transient and non-transient properties. They only affect the type of
 			// fields and serializers selected for each field.
+			useGenericsFields();
+		}
+	}
+
+	/** Sets the cached fields for the current generics. They are built the first time a set of generics is used and reused
+	 * afterward. The fields have the same order for all generics, so state derived from the fields by
+	 * {@link #initializeCachedFields()} remains valid. */
+	private void useGenericsFields () {
+		// The fields can only be reused if all type parameters are known, else they depend on the enclosing generics scope.
+		Class[] generics = this.generics;
+		boolean cacheable;
+		if (generics == null) {
+			cacheable = !kryo.getGenericsResolver().isSet();
+			generics = noGenerics;
+		} else {
+			cacheable = generics.length >= typeParameters.length;
+			for (int i = 0, n = generics.length; i < n; i++)
+				if (generics[i] == null) cacheable = false;
+		}
+		if (!cacheable) {
 			rebuildCachedFields(true);
+			return;
 		}
+
+		GenericsFields cached = lastGenericsFields;
+		if (cached == null || !Arrays.equals(cached.generics, generics)) {
+			if (genericsFields == null) genericsFields = new ObjectMap();
+			cached = genericsFields.get(genericsKey.set(generics));
+			genericsKey.generics = null;
+			if (cached == null) {
+				rebuildCachedFields(true);
+				if (TRACE) trace("kryo", "Cached fields for generic type parameters: " + Arrays.toString(generics));
+				cached = new GenericsFields(generics.clone(), fields, transientFields, genericsScope, hasObjectFields);
+				genericsFields.put(new GenericsKey().set(cached.generics), cached);
+				lastGenericsFields = cached;
+				return;
+			}
+			lastGenericsFields = cached;
+		}
+		fields = cached.fields;
+		transientFields = cached.transientFields;
+		genericsScope = cached.genericsScope;
+		hasObjectFields = cached.hasObjectFields;
+	}
+
+	private void clearGenericsFields () {
+		if (genericsFields != null) genericsFields.clear();
+		lastGenericsFields = null;
 	}
 
 	/** Get generic type parameters of the class controlled by this serializer.
@@ -484,17 +548,14 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 
 	/** This method can be called for different fields having the same type. Even though the raw type is the same, if the type is
 	 * generic, it could happen that different concrete classes are used to instantiate it. Therefore, in case of different
-	 * instantiation parameters, the fields analysis should be repeated.
-	 * 
-	 * TODO: Cache serializer instances generated for a given set of generic parameters. Reuse it later instead of recomputing
-	 * every time. */
+	 * instantiation parameters, the cached fields for those parameters are used. They are built once per set of parameters. */
 	public void write (Kryo kryo, Output output, T object) {
 		if (TRACE) trace("kryo", "FieldSerializer.write fields of class: " + object.getClass().getName());
 
 		if (config.isOptimizedGenerics()) {
 			if (typeParameters != null && generics != null) {
-				// Rebuild fields info. It may result in rebuilding the genericScope
-				rebuildCachedFields();
+				// Use the fields info for the generics. It may change the genericScope
+				useGenericsFields();
 			}
 
 			if (genericsScope != null) {
@@ -524,9 +585,9 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 
 			if (config.isOptimizedGenerics()) {
 				if (typeParameters != null && generics != null) {
-					// Rebuild fields info. It may result in rebuilding the
+					// Use the fields info for the generics. It may change the
 					// genericScope
-					rebuildCachedFields();
+					useGenericsFields();
 				}
 
 				if (genericsScope != null) {
@@ -583,6 +644,7 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 				System.arraycopy(fields, i + 1, newFields, i, newFields.length - i);
 				fields = newFields;
 				removedFields.add(cachedField);
+				if (!rebuilding) clearGenericsFields();
 				return;
 			}
 		}
@@ -595,6 +657,7 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 				System.arraycopy(transientFields, i + 1, newFields, i, newFields.length - i);
 				transientFields = newFields;
 				removedFields.add(cachedField);
+				if (!rebuilding) clearGenericsFields();
 				return;
 			}
 		}
@@ -611,6 +674,7 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 				System.arraycopy(fields, i + 1, newFields, i, newFields.length - i);
 				fields = newFields;
 				removedFields.add(cachedField);
+				if (!rebuilding) clearGenericsFields();
 				return;
 			}
 		}
@@ -623,6 +687,7 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 				System.arraycopy(transientFields, i + 1, newFields, i, newFields.length - i);
 				transientFields = newFields;
 				removedFields.add(cachedField);
+				if (!rebuilding) clearGenericsFields();
 				return;
 			}
 		}
@@ -691,6 +756,45 @@ public class FieldSerializer<T> extends Serializer<T> implements Comparator<Fiel
 		return genericsScope;
 	}
 
+	/** Key for the cached fields of a set of generics. A single instance is reused for lookups. */
+	static private final class GenericsKey {
+		Class[] generics;
+		int hashCode;
+
+		GenericsKey set (Class[] generics) {
+			this.generics = generics;
+			hashCode = Arrays.hashCode(generics);
+			return this;
+		}
+
+		public int hashCode () {
+			return hashCode;
+		}
+
+		public boolean equals (Object obj) {
+			if (!(obj instanceof GenericsKey)) return false;
+			GenericsKey other = (GenericsKey)obj;
+			return hashCode == other.hashCode && Arrays.equals(generics, other.generics);
+		}
+	}
+
+	/** The cached fields built for a set of generics. */
+	static private final class GenericsFields {
+		final Class[] generics;
+		final CachedField[] fields, transientFields;
+		final Generics genericsScope;
+		final boolean hasObjectFields;
+
+		GenericsFields (Class[] generics, CachedField[] fields, CachedField[] transientFields, Generics genericsScope,
+			boolean hasObjectFields) {
+			this.generics = generics;
+			this.fields = fields;
+			this.transientFields = transientFields;
+			this.genericsScope = genericsScope;
+			this.hasObjectFields = hasObjectFields;
+		}
+	}
+
 	/** Controls how a field will be serialized. */
 	public static abstract class CachedField<X> {
 		Field field;
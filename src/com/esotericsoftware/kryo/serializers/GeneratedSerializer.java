@@ -0,0 +1,152 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import static com.esotericsoftware.minlog.Log.*;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer.CachedField;
+import com.esotericsoftware.kryo.util.UnsafeUtil;
+
+import sun.misc.Unsafe;
+
+/** Base class for the serializers created by {@link GeneratedSerializerFactory}. Subclasses are generated at runtime with
+ * {@link #write(Kryo, Output, Object)} and {@link #read(Kryo, Input, Class)} methods that serialize every field of a type in
+ * straight-line code. Primitive fields are accessed with {@link Unsafe} using constant field offsets, object fields use the
+ * final helper methods of this class. The serialized bytes are the same as those of the {@link FieldSerializer} the serializer
+ * was generated from. */
+public abstract class GeneratedSerializer<T> extends Serializer<T> {
+	static protected final Unsafe unsafe = UnsafeUtil.unsafe();
+
+	protected final FieldSerializer<T> fieldSerializer;
+	private final Class type;
+	private final CachedField[] objectFields;
+	private final Class[] valueClasses;
+	private final Serializer[] serializers;
+	private final boolean[] canBeNull;
+	private final Class[][] generics;
+
+	/** @param objectFields The fields passed to the helper methods, by index. */
+	protected GeneratedSerializer (FieldSerializer<T> fieldSerializer, CachedField[] objectFields) {
+		this.fieldSerializer = fieldSerializer;
+		this.type = fieldSerializer.getType();
+		this.objectFields = objectFields;
+		int n = objectFields.length;
+		valueClasses = new Class[n];
+		serializers = new Serializer[n];
+		canBeNull = new boolean[n];
+		generics = new Class[n][];
+		for (int i = 0; i < n; i++) {
+			CachedField field = objectFields[i];
+			valueClasses[i] = field.valueClass;
+			serializers[i] = field.serializer;
+			canBeNull[i] = field.canBeNull;
+			if (field instanceof ObjectField) generics[i] = ((ObjectField)field).generics;
+		}
+	}
+
+	/** Writes the value of an object field the same way as {@link ObjectField}. */
+	protected final void writeObjectField (Kryo kryo, Output output, Object object, Object value, int index) {
+		try {
+			if (TRACE) trace("kryo", "Write field: " + objectFields[index] + " (" + object.getClass().getName() + ")" + " pos="
+				+ output.position());
+			Serializer serializer = serializers[index];
+			Class valueClass = valueClasses[index];
+			if (valueClass == null) {
+				// The concrete type of the field is unknown, write the class first.
+				if (value == null) {
+					kryo.writeClass(output, null);
+					return;
+				}
+				Registration registration = kryo.writeClass(output, value.getClass());
+				if (serializer == null) serializer = registration.getSerializer();
+				serializer.setGenerics(kryo, generics[index]);
+				kryo.writeObject(output, value, serializer);
+			} else {
+				// The concrete type of the field is known, always use the same serializer.
+				if (serializer == null) serializers[index] = serializer = kryo.getSerializer(valueClass);
+				serializer.setGenerics(kryo, generics[index]);
+				if (canBeNull[index])
+					kryo.writeObjectOrNull(output, value, serializer);
+				else {
+					if (value == null) throw new KryoException(
+						"Field value is null but canBeNull is false: " + objectFields[index] + " (" + object.getClass().getName() + ")");
+					kryo.writeObject(output, value, serializer);
+				}
+			}
+		} catch (KryoException ex) {
+			ex.addTrace(objectFields[index] + " (" + object.getClass().getName() + ")");
+			throw ex;
+		} catch (RuntimeException runtimeEx) {
+			KryoException ex = new KryoException(runtimeEx);
+			ex.addTrace(objectFields[index] + " (" + object.getClass().getName() + ")");
+			throw ex;
+		}
+	}
+
+	/** Reads the value of an object field the same way as {@link ObjectField}. */
+	protected final Object readObjectField (Kryo kryo, Input input, int index) {
+		try {
+			if (TRACE) trace("kryo", "Read field: " + objectFields[index] + " (" + type.getName() + ")" + " pos=" + input.position());
+			Serializer serializer = serializers[index];
+			Class valueClass = valueClasses[index];
+			if (valueClass == null) {
+				Registration registration = kryo.readClass(input);
+				if (registration == null) return null;
+				if (serializer == null) serializer = registration.getSerializer();
+				serializer.setGenerics(kryo, generics[index]);
+				return kryo.readObject(input, registration.getType(), serializer);
+			}
+			if (serializer == null) serializers[index] = serializer = kryo.getSerializer(valueClass);
+			serializer.setGenerics(kryo, generics[index]);
+			if (canBeNull[index]) return kryo.readObjectOrNull(input, valueClass, serializer);
+			return kryo.readObject(input, valueClass, serializer);
+		} catch (KryoException ex) {
+			ex.addTrace(objectFields[index] + " (" + type.getName() + ")");
+			throw ex;
+		} catch (RuntimeException runtimeEx) {
+			KryoException ex = new KryoException(runtimeEx);
+			ex.addTrace(objectFields[index] + " (" + type.getName() + ")");
+			throw ex;
+		}
+	}
+
+	/** Used by {@link #read(Kryo, Input, Class)} to create the new object. The default implementation uses
+	 * {@link Kryo#newInstance(Class)}. */
+	protected T create (Kryo kryo, Input input, Class<T> type) {
+		return kryo.newInstance(type);
+	}
+
+	/** Copies using the {@link FieldSerializer} this serializer was generated from. */
+	public T copy (Kryo kryo, T original) {
+		return fieldSerializer.copy(kryo, original);
+	}
+
+	/** Returns the {@link FieldSerializer} this serializer was generated from. Changes to its fields are not reflected by this
+	 * serializer. */
+	public FieldSerializer<T> getFieldSerializer () {
+		return fieldSerializer;
+	}
+}
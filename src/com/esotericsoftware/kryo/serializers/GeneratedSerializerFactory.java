@@ -0,0 +1,88 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import static com.esotericsoftware.kryo.util.Util.*;
+import static com.esotericsoftware.minlog.Log.*;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.factories.SerializerFactory;
+import com.esotericsoftware.kryo.serializers.FieldSerializer.CachedField;
+import com.esotericsoftware.kryo.util.Util;
+
+/** A serializer factory that generates a serializer class for each type at runtime. The generated serializers write and read
+ * all fields in straight-line code, without the per field dispatch of {@link FieldSerializer}. The serialized bytes are the same
+ * as with FieldSerializer, so data written by either can be read by the other.
+ * <p>
+ * To use generated serializers for all types without a default serializer:
+ * 
+ * <pre>
+ * kryo.setDefaultSerializer(new GeneratedSerializerFactory());
+ * </pre>
+ * 
+ * A FieldSerializer is created for each type with the {@link Kryo#getFieldSerializerConfig() FieldSerializer configuration},
+ * then a serializer is generated for its fields. The FieldSerializer is used if a serializer can't be generated: when ASM or
+ * sun.misc.Unsafe is unavailable, for FieldSerializer subclasses, and for types that use optimized generics. Generated classes
+ * are shared by all Kryo instances.
+ * @see #generate(FieldSerializer) */
+public class GeneratedSerializerFactory implements SerializerFactory {
+	static private final boolean available = FieldSerializer.unsafeAvailable && !Util.isAndroid && isAsmAvailable();
+
+	public Serializer makeSerializer (Kryo kryo, Class<?> type) {
+		return generate(new FieldSerializer(kryo, type));
+	}
+
+	/** Generates a serializer for the fields of the specified FieldSerializer. Settings must be made on the FieldSerializer and
+	 * its {@link FieldSerializer#getField(String) fields} before this method is called, later changes are not reflected by the
+	 * generated serializer.
+	 * @return The generated serializer, or the specified FieldSerializer if a serializer can't be generated for it. */
+	static public Serializer generate (FieldSerializer serializer) {
+		if (!isSupported(serializer)) return serializer;
+		try {
+			return SerializerGenerator.newSerializer(serializer);
+		} catch (Exception ex) {
+			if (DEBUG) debug("kryo", "Unable to generate serializer for class: " + className(serializer.type), ex);
+			return serializer;
+		}
+	}
+
+	static private boolean isAsmAvailable () {
+		// Checked by linking rather than by class name, so the check still works when asm is relocated by the shaded jar.
+		try {
+			return SerializerGenerator.isAvailable();
+		} catch (LinkageError ex) {
+			return false;
+		}
+	}
+
+	static private boolean isSupported (FieldSerializer serializer) {
+		if (!available) return false;
+		// Subclasses write additional data.
+		if (serializer.getClass() != FieldSerializer.class) return false;
+		if (serializer.type.isInterface()) return false;
+		// With optimized generics, the fields change with the generic type parameters.
+		if (serializer.config.isOptimizedGenerics()
+			&& (serializer.typeParameters.length > 0 || serializer.getGenericsScope() != null)) return false;
+		for (CachedField field : serializer.getFields())
+			if (field.field == null) return false;
+		return true;
+	}
+}
@@ -0,0 +1,170 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import java.util.Arrays;
+
+import com.esotericsoftware.kryo.KryoException;
+
+/** A compression codec using the LZ4 block format. It finds matches using a hash table of recent positions and does not use
+ * entropy coding, so it compresses less than deflate but is many times faster, especially for decompression.
+ * <p>
+ * The hash table is reused, so an instance must not be used by multiple threads at the same time. */
+public class LZ4Codec implements CompressionCodec {
+	static private final int MIN_MATCH = 4, LAST_LITERALS = 5, MATCH_FIND_LIMIT = 12, MAX_DISTANCE = 0xFFFF;
+	static private final int HASH_LOG = 12, SKIP_TRIGGER = 6;
+
+	private final int[] table = new int[1 << HASH_LOG];
+
+	public int maxCompressedLength (int length) {
+		if (length < 0) throw new IllegalArgumentException("length cannot be < 0: " + length);
+		return length + length / 255 + 16;
+	}
+
+	public int compress (byte[] bytes, int offset, int length, byte[] compressed, int compressedOffset) {
+		int end = offset + length, matchLimit = end - LAST_LITERALS, findLimit = end - MATCH_FIND_LIMIT;
+		int anchor = offset, position = offset, output = compressedOffset;
+		if (length > MATCH_FIND_LIMIT) {
+			int[] table = this.table;
+			Arrays.fill(table, -1);
+			while (position < findLimit) {
+				int sequence = readInt(bytes, position);
+				int hash = hash(sequence);
+				int match = table[hash];
+				table[hash] = position;
+				if (match == -1 || position - match > MAX_DISTANCE || readInt(bytes, match) != sequence) {
+					// Skip faster through bytes that don't compress.
+					position += 1 + ((position - anchor) >>> SKIP_TRIGGER);
+					continue;
+				}
+				while (position > anchor && match > offset && bytes[position - 1] == bytes[match - 1]) {
+					position--;
+					match--;
+				}
+				int matchLength = MIN_MATCH;
+				while (position + matchLength < matchLimit && bytes[position + matchLength] == bytes[match + matchLength])
+					matchLength++;
+				output = writeSequence(bytes, anchor, position - anchor, compressed, output, position - match, matchLength);
+				position += matchLength;
+				anchor = position;
+				if (position - 2 < findLimit) table[hash(readInt(bytes, position - 2))] = position - 2;
+			}
+		}
+		// The last bytes are always literals.
+		int literalLength = end - anchor;
+		output = writeLength(compressed, output, literalLength, 0);
+		System.arraycopy(bytes, anchor, compressed, output, literalLength);
+		return output + literalLength - compressedOffset;
+	}
+
+	static private int writeSequence (byte[] bytes, int literalOffset, int literalLength, byte[] compressed, int output,
+		int distance, int matchLength) {
+		output = writeLength(compressed, output, literalLength, Math.min(matchLength - MIN_MATCH, 15));
+		System.arraycopy(bytes, literalOffset, compressed, output, literalLength);
+		output += literalLength;
+		compressed[output++] = (byte)distance;
+		compressed[output++] = (byte)(distance >>> 8);
+		matchLength -= MIN_MATCH;
+		if (matchLength >= 15) output = writeExtraLength(compressed, output, matchLength - 15);
+		return output;
+	}
+
+	/** Writes the token with the literal length and the low bits of the match length, and the extra literal length bytes. */
+	static private int writeLength (byte[] compressed, int output, int literalLength, int matchToken) {
+		if (literalLength >= 15) {
+			compressed[output++] = (byte)(0xF0 | matchToken);
+			return writeExtraLength(compressed, output, literalLength - 15);
+		}
+		compressed[output++] = (byte)(literalLength << 4 | matchToken);
+		return output;
+	}
+
+	static private int writeExtraLength (byte[] compressed, int output, int length) {
+		while (length >= 255) {
+			compressed[output++] = (byte)255;
+			length -= 255;
+		}
+		compressed[output++] = (byte)length;
+		return output;
+	}
+
+	public void decompress (byte[] compressed, int compressedOffset, int compressedLength, byte[] bytes, int offset, int length) {
+		int input = compressedOffset, inputEnd = compressedOffset + compressedLength;
+		int output = offset, end = offset + length;
+		while (true) {
+			if (input >= inputEnd) throw new KryoException("Malformed compressed bytes.");
+			int token = compressed[input++] & 0xFF;
+
+			int literalLength = token >>> 4;
+			if (literalLength == 15) {
+				int b;
+				do {
+					if (input >= inputEnd) throw new KryoException("Malformed compressed bytes.");
+					b = compressed[input++] & 0xFF;
+					literalLength += b;
+				} while (b == 255);
+			}
+			if (literalLength > inputEnd - input || literalLength > end - output)
+				throw new KryoException("Malformed compressed bytes.");
+			System.arraycopy(compressed, input, bytes, output, literalLength);
+			input += literalLength;
+			output += literalLength;
+			if (output == end) break;
+
+			if (inputEnd - input < 2) throw new KryoException("Malformed compressed bytes.");
+			int distance = (compressed[input] & 0xFF) | (compressed[input + 1] & 0xFF) << 8;
+			input += 2;
+			int matchLength = token & 0xF;
+			if (matchLength == 15) {
+				int b;
+				do {
+					if (input >= inputEnd) throw new KryoException("Malformed compressed bytes.");
+					b = compressed[input++] & 0xFF;
+					matchLength += b;
+				} while (b == 255);
+			}
+			matchLength += MIN_MATCH;
+			int match = output - distance;
+			if (distance == 0 || match < offset || matchLength > end - output)
+				throw new KryoException("Malformed compressed bytes.");
+			if (distance >= matchLength)
+				System.arraycopy(bytes, match, bytes, output, matchLength);
+			else {
+				// Overlapping match, the bytes repeat every distance bytes. Copy the repeated bytes in doubling chunks.
+				for (int copied = 0; copied < matchLength;) {
+					int count = Math.min(distance + copied, matchLength - copied);
+					System.arraycopy(bytes, match, bytes, output + copied, count);
+					copied += count;
+				}
+			}
+			output += matchLength;
+		}
+		if (input != inputEnd) throw new KryoException("Malformed compressed bytes.");
+	}
+
+	static private int readInt (byte[] bytes, int position) {
+		return (bytes[position] & 0xFF) | (bytes[position + 1] & 0xFF) << 8 | (bytes[position + 2] & 0xFF) << 16
+			| (bytes[position + 3] & 0xFF) << 24;
+	}
+
+	static private int hash (int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+}
@@ -23,9 +23,13 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.Serializer;
@@ -41,6 +45,8 @@ public class MapSerializer extends Serializer<Map> {
 	private Serializer keySerializer, valueSerializer;
 	private boolean keysCanBeNull = true, valuesCanBeNull = true;
 	private Class keyGenericType, valueGenericType;
+	private final boolean createOverridden = CollectionSerializer.overrides(getClass(), MapSerializer.class, "create", Kryo.class,
+		Input.class, Class.class);
 
 	/** @param keysCanBeNull False if all keys are not null. This saves 1 byte per key if keyClass is set. True if it is not known
 	 *           (default). */
@@ -120,9 +126,29 @@ public class MapSerializer extends Serializer<Map> {
 		return kryo.newInstance(type);
 	}
 
+	/** Used by {@link #read(Kryo, Input, Class)} to create the new object with room for the number of entries that will be read,
+	 * so the map does not need to be rehashed. This can be overridden to customize object creation. It is not used if
+	 * {@link #create(Kryo, Input, Class)} is overridden, because that method may read bytes that are written before the number of
+	 * entries. The default implementation creates a {@link HashMap}, {@link LinkedHashMap}, {@link IdentityHashMap} or
+	 * {@link ConcurrentHashMap} with the required capacity, else uses {@link Kryo#newInstance(Class)}. */
+	protected Map create (Kryo kryo, Input input, Class<Map> type, int size) {
+		if ((Class)type == HashMap.class) return new HashMap(CollectionSerializer.hashCapacity(size));
+		if ((Class)type == LinkedHashMap.class) return new LinkedHashMap(CollectionSerializer.hashCapacity(size));
+		if ((Class)type == IdentityHashMap.class) return new IdentityHashMap(size);
+		if ((Class)type == ConcurrentHashMap.class) return new ConcurrentHashMap(CollectionSerializer.hashCapacity(size));
+		return kryo.newInstance(type);
+	}
+
 	public Map read (Kryo kryo, Input input, Class<Map> type) {
-		Map map = create(kryo, input, type);
-		int length = input.readInt(true);
+		Map map;
+		int length;
+		if (createOverridden) {
+			map = create(kryo, input, type);
+			length = input.readInt(true);
+		} else {
+			length = input.readInt(true);
+			map = create(kryo, input, type, length);
+		}
 
 		Class keyClass = this.keyClass;
 		Class valueClass = this.valueClass;
@@ -142,6 +168,7 @@ public class MapSerializer extends Serializer<Map> {
 
 		kryo.reference(map);
 
+		Map entries = readInto(kryo, map, length);
 		for (int i = 0; i < length; i++) {
 			Object key;
 			if (keySerializer != null) {
@@ -159,8 +186,21 @@ public class MapSerializer extends Serializer<Map> {
 					value = kryo.readObject(input, valueClass, valueSerializer);
 			} else
 				value = kryo.readClassAndObject(input);
-			map.put(key, value);
+			entries.put(key, value);
 		}
+		if (entries != map) map = readComplete(map, entries);
+		return map;
+	}
+
+	/** Returns the map that {@link #read(Kryo, Input, Class)} puts the entries in. The default implementation returns the new
+	 * map. */
+	Map readInto (Kryo kryo, Map map, int size) {
+		return map;
+	}
+
+	/** Called after the entries were put, if {@link #readInto(Kryo, Map, int)} did not return the new map. Returns the map that
+	 * {@link #read(Kryo, Input, Class)} returns, which must be the new map if references are enabled. */
+	Map readComplete (Map map, Map entries) {
 		return map;
 	}
 
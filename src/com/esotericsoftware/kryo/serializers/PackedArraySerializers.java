@@ -0,0 +1,391 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import static com.esotericsoftware.kryo.Kryo.*;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/** Serializers for int and long arrays that choose a compact encoding for each array. A single scan of the array estimates the
+ * size of each encoding and the smallest is used, recorded in a header byte:
+ * <ul>
+ * <li>{@link #PLAIN}: each value as a zig-zag varint, the same size as {@link DefaultArraySerializers}.</li>
+ * <li>{@link #DELTA}: the first value, then the difference to the previous value as zig-zag varints. Good for sorted values with
+ * small gaps, such as IDs.</li>
+ * <li>{@link #DELTA_PACKED}: the first value and the smallest difference, then each difference minus the smallest difference,
+ * bit packed using the fewest bits that fit all of them. Good for sorted values with regular gaps, such as timestamps.</li>
+ * <li>{@link #FRAME_OF_REFERENCE}: the smallest value, then each value minus the smallest value, bit packed. Good for unsorted
+ * values in a narrow range.</li>
+ * <li>{@link #RUN_LENGTH}: each run of equal values as a zig-zag varint value and a varint count. Good for repeated values.</li>
+ * </ul>
+ * These serializers are not compatible with the default serializers, so they must be registered for both writing and reading:
+ * 
+ * <pre>
+ * kryo.register(long[].class, new PackedLongArraySerializer());
+ * </pre> */
+public class PackedArraySerializers {
+	static public final byte PLAIN = 0, DELTA = 1, DELTA_PACKED = 2, FRAME_OF_REFERENCE = 3, RUN_LENGTH = 4;
+
+	static public class PackedIntArraySerializer extends Serializer<int[]> {
+		{
+			setAcceptsNull(true);
+		}
+
+		public void write (Kryo kryo, Output output, int[] object) {
+			if (object == null) {
+				output.writeVarInt(NULL, true);
+				return;
+			}
+			output.writeVarInt(object.length + 1, true);
+			if (object.length > 0) writeValues(output, new Values(object), object.length);
+		}
+
+		public int[] read (Kryo kryo, Input input, Class<int[]> type) {
+			int length = input.readVarInt(true);
+			if (length == NULL) return null;
+			int[] array = new int[length - 1];
+			if (array.length > 0) readValues(input, new Values(array), array.length);
+			return array;
+		}
+
+		public int[] copy (Kryo kryo, int[] original) {
+			int[] copy = new int[original.length];
+			System.arraycopy(original, 0, copy, 0, copy.length);
+			return copy;
+		}
+	}
+
+	static public class PackedLongArraySerializer extends Serializer<long[]> {
+		{
+			setAcceptsNull(true);
+		}
+
+		public void write (Kryo kryo, Output output, long[] object) {
+			if (object == null) {
+				output.writeVarInt(NULL, true);
+				return;
+			}
+			output.writeVarInt(object.length + 1, true);
+			if (object.length > 0) writeValues(output, new Values(object), object.length);
+		}
+
+		public long[] read (Kryo kryo, Input input, Class<long[]> type) {
+			int length = input.readVarInt(true);
+			if (length == NULL) return null;
+			long[] array = new long[length - 1];
+			if (array.length > 0) readValues(input, new Values(array), array.length);
+			return array;
+		}
+
+		public long[] copy (Kryo kryo, long[] original) {
+			long[] copy = new long[original.length];
+			System.arraycopy(original, 0, copy, 0, copy.length);
+			return copy;
+		}
+	}
+
+	/** Returns the encoding that would be used to write the array. */
+	static public byte getEncoding (int[] array) {
+		return array.length == 0 ? PLAIN : scan(new Values(array), array.length).encoding;
+	}
+
+	/** Returns the encoding that would be used to write the array. */
+	static public byte getEncoding (long[] array) {
+		return array.length == 0 ? PLAIN : scan(new Values(array), array.length).encoding;
+	}
+
+	/** Int or long array values as longs, so the encodings are implemented once. */
+	static final class Values {
+		final int[] ints;
+		final long[] longs;
+
+		Values (int[] ints) {
+			this.ints = ints;
+			longs = null;
+		}
+
+		Values (long[] longs) {
+			this.longs = longs;
+			ints = null;
+		}
+
+		long get (int index) {
+			return longs != null ? longs[index] : ints[index];
+		}
+
+		void set (int index, long value) {
+			if (longs != null)
+				longs[index] = value;
+			else
+				ints[index] = (int)value;
+		}
+	}
+
+	static final class Scan {
+		byte encoding;
+		long min, minDelta;
+		int bits, runs;
+	}
+
+	/** Estimates the size of each encoding in a single pass and chooses the smallest. */
+	static Scan scan (Values values, int length) {
+		long first = values.get(0), min = first, max = first, previous = first;
+		long minDelta = 0, maxDelta = 0;
+		long firstSize = varLongSize(first);
+		long plainSize = firstSize, deltaSize = firstSize, runLengthSize = firstSize + 1;
+		int runs = 1;
+		for (int i = 1; i < length; i++) {
+			long value = values.get(i);
+			if (value < min) min = value;
+			if (value > max) max = value;
+			long delta = value - previous;
+			if (i == 1)
+				minDelta = maxDelta = delta;
+			else if (delta < minDelta)
+				minDelta = delta;
+			else if (delta > maxDelta) maxDelta = delta;
+			long size = varLongSize(value);
+			plainSize += size;
+			deltaSize += varLongSize(delta);
+			if (delta != 0) {
+				runs++;
+				runLengthSize += size + 1;
+			}
+			previous = value;
+		}
+		int forBits = bits(max - min);
+		long forSize = varLongSize(min) + 1 + (length * (long)forBits + 7) / 8;
+		int deltaBits = bits(maxDelta - minDelta);
+		long deltaPackedSize = firstSize + varLongSize(minDelta) + 1 + ((length - 1) * (long)deltaBits + 7) / 8;
+
+		Scan scan = new Scan();
+		scan.encoding = PLAIN;
+		long best = plainSize;
+		if (deltaSize < best) {
+			best = deltaSize;
+			scan.encoding = DELTA;
+		}
+		if (deltaPackedSize < best) {
+			best = deltaPackedSize;
+			scan.encoding = DELTA_PACKED;
+			scan.minDelta = minDelta;
+			scan.bits = deltaBits;
+		}
+		if (forSize < best) {
+			best = forSize;
+			scan.encoding = FRAME_OF_REFERENCE;
+			scan.min = min;
+			scan.bits = forBits;
+		}
+		if (runLengthSize < best) {
+			scan.encoding = RUN_LENGTH;
+			scan.runs = runs;
+		}
+		return scan;
+	}
+
+	/** Returns the number of bits needed for the unsigned value. */
+	static private int bits (long unsigned) {
+		return 64 - Long.numberOfLeadingZeros(unsigned);
+	}
+
+	/** Returns the number of bytes for the value as a zig-zag varint. */
+	static private int varLongSize (long value) {
+		value = (value << 1) ^ (value >> 63);
+		return value == 0 ? 1 : (bits(value) + 6) / 7;
+	}
+
+	/** Writes the encoding header byte and the values. The length must be > 0 and must already have been written. */
+	static void writeValues (Output output, Values values, int length) {
+		Scan scan = scan(values, length);
+		output.writeByte(scan.encoding);
+		switch (scan.encoding) {
+		case PLAIN:
+			for (int i = 0; i < length; i++)
+				output.writeVarLong(values.get(i), false);
+			break;
+		case DELTA: {
+			long previous = 0;
+			for (int i = 0; i < length; i++) {
+				long value = values.get(i);
+				output.writeVarLong(value - previous, false);
+				previous = value;
+			}
+			break;
+		}
+		case DELTA_PACKED: {
+			long previous = values.get(0), minDelta = scan.minDelta;
+			output.writeVarLong(previous, false);
+			output.writeVarLong(minDelta, false);
+			BitWriter writer = new BitWriter(output, scan.bits);
+			for (int i = 1; i < length; i++) {
+				long value = values.get(i);
+				writer.write(value - previous - minDelta);
+				previous = value;
+			}
+			writer.flush();
+			break;
+		}
+		case FRAME_OF_REFERENCE: {
+			long min = scan.min;
+			output.writeVarLong(min, false);
+			BitWriter writer = new BitWriter(output, scan.bits);
+			for (int i = 0; i < length; i++)
+				writer.write(values.get(i) - min);
+			writer.flush();
+			break;
+		}
+		case RUN_LENGTH: {
+			output.writeVarInt(scan.runs, true);
+			long value = values.get(0);
+			int start = 0;
+			for (int i = 1; i <= length; i++) {
+				long next = i < length ? values.get(i) : 0;
+				if (i < length && next == value) continue;
+				output.writeVarLong(value, false);
+				output.writeVarInt(i - start, true);
+				value = next;
+				start = i;
+			}
+			break;
+		}
+		}
+	}
+
+	/** Reads the encoding header byte and the values. */
+	static void readValues (Input input, Values values, int length) {
+		byte encoding = input.readByte();
+		switch (encoding) {
+		case PLAIN:
+			for (int i = 0; i < length; i++)
+				values.set(i, input.readVarLong(false));
+			break;
+		case DELTA: {
+			long value = 0;
+			for (int i = 0; i < length; i++) {
+				value += input.readVarLong(false);
+				values.set(i, value);
+			}
+			break;
+		}
+		case DELTA_PACKED: {
+			long value = input.readVarLong(false), minDelta = input.readVarLong(false);
+			values.set(0, value);
+			BitReader reader = new BitReader(input, input.readByte());
+			for (int i = 1; i < length; i++) {
+				value += reader.read() + minDelta;
+				values.set(i, value);
+			}
+			break;
+		}
+		case FRAME_OF_REFERENCE: {
+			long min = input.readVarLong(false);
+			BitReader reader = new BitReader(input, input.readByte());
+			for (int i = 0; i < length; i++)
+				values.set(i, reader.read() + min);
+			break;
+		}
+		case RUN_LENGTH: {
+			int index = 0;
+			for (int runs = input.readVarInt(true); runs > 0; runs--) {
+				long value = input.readVarLong(false);
+				int count = input.readVarInt(true);
+				if (count > length - index) throw new KryoException("Run exceeds array length: " + length);
+				for (int end = index + count; index < end; index++)
+					values.set(index, value);
+			}
+			if (index != length) throw new KryoException("Runs do not match array length: " + index + " != " + length);
+			break;
+		}
+		default:
+			throw new KryoException("Unknown array encoding: " + encoding);
+		}
+	}
+
+	/** Writes values using a fixed number of bits each, least significant bits first. */
+	static final class BitWriter {
+		private final Output output;
+		private final int bits;
+		private int current, used;
+
+		BitWriter (Output output, int bits) {
+			this.output = output;
+			this.bits = bits;
+			output.writeByte(bits);
+		}
+
+		void write (long value) {
+			int remaining = bits;
+			while (remaining > 0) {
+				int count = Math.min(8 - used, remaining);
+				current |= ((int)value & ((1 << count) - 1)) << used;
+				value >>>= count;
+				remaining -= count;
+				used += count;
+				if (used == 8) {
+					output.writeByte(current);
+					current = 0;
+					used = 0;
+				}
+			}
+		}
+
+		void flush () {
+			if (used > 0) {
+				output.writeByte(current);
+				current = 0;
+				used = 0;
+			}
+		}
+	}
+
+	static final class BitReader {
+		private final Input input;
+		private final int bits;
+		private int current, available;
+
+		BitReader (Input input, int bits) {
+			if (bits < 0 || bits > 64) throw new KryoException("Invalid bit width: " + bits);
+			this.input = input;
+			this.bits = bits;
+		}
+
+		long read () {
+			long value = 0;
+			int shift = 0;
+			while (shift < bits) {
+				if (available == 0) {
+					current = input.readByte() & 0xFF;
+					available = 8;
+				}
+				int count = Math.min(available, bits - shift);
+				value |= (long)(current & ((1 << count) - 1)) << shift;
+				current >>>= count;
+				available -= count;
+				shift += count;
+			}
+			return value;
+		}
+	}
+}
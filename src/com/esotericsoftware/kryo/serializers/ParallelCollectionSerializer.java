@@ -0,0 +1,263 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.io.SegmentedOutput;
+import com.esotericsoftware.kryo.pool.KryoCallback;
+import com.esotericsoftware.kryo.pool.KryoPool;
+
+/** Serializes objects that implement the {@link Collection} interface using multiple threads. The elements are split into
+ * partitions which are written concurrently by tasks on an {@link ExecutorService}, each using a {@link Kryo} instance borrowed
+ * from a {@link KryoPool}. Each partition is written with its element count and byte length, so reading also decodes the
+ * partitions concurrently.
+ * <p>
+ * Each partition is written independently, so references must be disabled: an object appearing in more than one partition would
+ * be written and read more than once. The Kryo instances in the pool must be configured with the same registrations as the Kryo
+ * instance using this serializer. A collection that fits in a single partition is written on the calling thread, using the same
+ * format.
+ * <p>
+ * The calling thread encodes or decodes one partition itself. While waiting for the others, it runs any partition the executor
+ * has not started yet, so it only waits for partitions that are running on another thread. This makes it safe to use the
+ * serializer on a thread of the same executor, eg for nested collections, even when the executor has a single thread.
+ * 
+ * <pre>
+ * kryo.setReferences(false);
+ * kryo.addDefaultSerializer(Snapshot.class, new ParallelCollectionSerializer(pool, executor));
+ * </pre>
+ * @see ParallelObjectArraySerializer */
+public class ParallelCollectionSerializer extends Serializer<Collection> {
+	private final KryoPool pool;
+	private final ExecutorService executor;
+	private int partitionSize = 16384;
+
+	public ParallelCollectionSerializer (KryoPool pool, ExecutorService executor) {
+		if (pool == null) throw new IllegalArgumentException("pool cannot be null.");
+		if (executor == null) throw new IllegalArgumentException("executor cannot be null.");
+		this.pool = pool;
+		this.executor = executor;
+	}
+
+	/** Sets the number of elements in each partition. The reader does not need to use the same partition size. Default is 16384.
+	 * Larger partitions have less overhead, smaller partitions allow more threads to be used for smaller collections. */
+	public void setPartitionSize (int partitionSize) {
+		if (partitionSize <= 0) throw new IllegalArgumentException("partitionSize must be > 0: " + partitionSize);
+		this.partitionSize = partitionSize;
+	}
+
+	public int getPartitionSize () {
+		return partitionSize;
+	}
+
+	public void write (Kryo kryo, Output output, Collection collection) {
+		List elements;
+		if (collection instanceof List && collection instanceof RandomAccess)
+			elements = (List)collection;
+		else
+			elements = Arrays.asList(collection.toArray());
+		output.writeVarInt(elements.size(), true);
+		write(kryo, output, elements, pool, executor, partitionSize);
+	}
+
+	/** Used by {@link #read(Kryo, Input, Class)} to create the new object. This can be overridden to customize object creation, eg
+	 * to call a constructor with arguments. The default implementation uses {@link Kryo#newInstance(Class)}. */
+	protected Collection create (Kryo kryo, Input input, Class<Collection> type) {
+		return kryo.newInstance(type);
+	}
+
+	public Collection read (Kryo kryo, Input input, Class<Collection> type) {
+		Collection collection = create(kryo, input, type);
+		kryo.reference(collection);
+		int length = input.readVarInt(true);
+		if (collection instanceof ArrayList) ((ArrayList)collection).ensureCapacity(length);
+		Object[] elements = new Object[length];
+		read(kryo, input, elements, pool, executor);
+		for (int i = 0; i < length; i++)
+			collection.add(elements[i]);
+		return collection;
+	}
+
+	/** Used by {@link #copy(Kryo, Collection)} to create the new object. This can be overridden to customize object creation, eg to
+	 * call a constructor with arguments. The default implementation uses {@link Kryo#newInstance(Class)}. */
+	protected Collection createCopy (Kryo kryo, Collection original) {
+		return kryo.newInstance(original.getClass());
+	}
+
+	public Collection copy (Kryo kryo, Collection original) {
+		Collection copy = createCopy(kryo, original);
+		kryo.reference(copy);
+		for (Object element : original)
+			copy.add(kryo.copy(element));
+		return copy;
+	}
+
+	/** Writes the partitions, the element count must already have been written. Each partition is written as its element count,
+	 * its byte length and the elements written with {@link Kryo#writeClassAndObject(Output, Object)}. */
+	static void write (Kryo kryo, Output output, final List elements, KryoPool pool, ExecutorService executor, int partitionSize) {
+		if (kryo.getReferences()) throw new KryoException("References must be disabled for parallel serialization.");
+		int length = elements.size();
+		if (length == 0) return;
+		int partitions = (length + partitionSize - 1) / partitionSize;
+		output.writeVarInt(partitions, true);
+		if (partitions == 1) {
+			writePartition(output, length, pool.run(encode(elements, 0, length)));
+			return;
+		}
+		ArrayList<FutureTask<SegmentedOutput>> tasks = new ArrayList(partitions - 1);
+		try {
+			for (int start = partitionSize; start < length; start += partitionSize)
+				tasks.add(submit(executor, encodeTask(pool, elements, start, Math.min(start + partitionSize, length))));
+			// The first partition is encoded on the calling thread while the executor encodes the others.
+			writePartition(output, partitionSize, pool.run(encode(elements, 0, partitionSize)));
+			for (int i = 0, start = partitionSize; i < partitions - 1; i++, start += partitionSize)
+				writePartition(output, Math.min(partitionSize, length - start), join(tasks.get(i)));
+		} finally {
+			for (int i = 0, n = tasks.size(); i < n; i++)
+				tasks.get(i).cancel(false);
+		}
+	}
+
+	static private void writePartition (Output output, int count, SegmentedOutput partition) {
+		long total = partition.total();
+		if (total > Integer.MAX_VALUE) throw new KryoException("Partition is too large: " + total);
+		output.writeVarInt(count, true);
+		output.writeVarInt((int)total, true);
+		partition.writeTo(output);
+	}
+
+	static private KryoCallback<SegmentedOutput> encode (final List elements, final int start, final int end) {
+		return new KryoCallback<SegmentedOutput>() {
+			public SegmentedOutput execute (Kryo kryo) {
+				SegmentedOutput output = new SegmentedOutput();
+				try {
+					for (int i = start; i < end; i++)
+						kryo.writeClassAndObject(output, elements.get(i));
+				} finally {
+					kryo.reset();
+				}
+				return output;
+			}
+		};
+	}
+
+	static private Callable<SegmentedOutput> encodeTask (final KryoPool pool, final List elements, final int start,
+		final int end) {
+		return new Callable<SegmentedOutput>() {
+			public SegmentedOutput call () {
+				return pool.run(encode(elements, start, end));
+			}
+		};
+	}
+
+	/** Reads the partitions into the array, which has the length of the element count that was already read. */
+	static void read (Kryo kryo, Input input, Object[] elements, KryoPool pool, ExecutorService executor) {
+		if (elements.length == 0) return;
+		int partitions = input.readVarInt(true);
+		ArrayList<FutureTask<Object>> tasks = new ArrayList(partitions);
+		try {
+			int start = 0;
+			for (int i = 0; i < partitions; i++) {
+				int count = input.readVarInt(true);
+				if (count > elements.length - start)
+					throw new KryoException("Partition element count exceeds length: " + elements.length);
+				byte[] bytes = input.readBytes(input.readVarInt(true));
+				// The last partition is decoded on the calling thread while the executor decodes the others.
+				if (i == partitions - 1)
+					pool.run(decode(bytes, elements, start, count));
+				else
+					tasks.add(submit(executor, decodeTask(pool, bytes, elements, start, count)));
+				start += count;
+			}
+			if (start != elements.length)
+				throw new KryoException("Partition element counts do not match length: " + start + " != " + elements.length);
+			for (int i = 0, n = tasks.size(); i < n; i++)
+				join(tasks.get(i));
+		} finally {
+			for (int i = 0, n = tasks.size(); i < n; i++)
+				tasks.get(i).cancel(false);
+		}
+	}
+
+	static private KryoCallback<Object> decode (final byte[] bytes, final Object[] elements, final int start, final int count) {
+		return new KryoCallback<Object>() {
+			public Object execute (Kryo kryo) {
+				Input input = new Input(bytes);
+				try {
+					for (int i = start, end = start + count; i < end; i++)
+						elements[i] = kryo.readClassAndObject(input);
+				} finally {
+					kryo.reset();
+				}
+				return null;
+			}
+		};
+	}
+
+	static private Callable<Object> decodeTask (final KryoPool pool, final byte[] bytes, final Object[] elements, final int start,
+		final int count) {
+		return new Callable<Object>() {
+			public Object call () {
+				return pool.run(decode(bytes, elements, start, count));
+			}
+		};
+	}
+
+	static private <T> FutureTask<T> submit (ExecutorService executor, Callable<T> callable) {
+		FutureTask<T> task = new FutureTask(callable);
+		executor.execute(task);
+		return task;
+	}
+
+	/** Runs the task on the calling thread if the executor has not started it, then waits for it. A task runs only once, so the
+	 * calling thread never waits for a task that is queued behind busy executor threads. */
+	static private <T> T join (FutureTask<T> task) throws KryoException {
+		task.run();
+		return get(task);
+	}
+
+	static private <T> T get (Future<T> future) throws KryoException {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new KryoException("Interrupted during parallel serialization.", ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new KryoException(cause);
+		}
+	}
+}
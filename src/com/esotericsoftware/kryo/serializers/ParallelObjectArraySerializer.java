@@ -0,0 +1,85 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import static com.esotericsoftware.kryo.Kryo.*;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+
+/** Serializes an object array using multiple threads, with the same partitioned format as {@link ParallelCollectionSerializer}.
+ * References must be disabled and the Kryo instances in the pool must be configured with the same registrations as the Kryo
+ * instance using this serializer. Like ParallelCollectionSerializer, it can be used on a thread of the same executor.
+ * @see ParallelCollectionSerializer */
+public class ParallelObjectArraySerializer extends Serializer<Object[]> {
+	private final KryoPool pool;
+	private final ExecutorService executor;
+	private int partitionSize = 16384;
+
+	public ParallelObjectArraySerializer (KryoPool pool, ExecutorService executor) {
+		if (pool == null) throw new IllegalArgumentException("pool cannot be null.");
+		if (executor == null) throw new IllegalArgumentException("executor cannot be null.");
+		this.pool = pool;
+		this.executor = executor;
+		setAcceptsNull(true);
+	}
+
+	/** @see ParallelCollectionSerializer#setPartitionSize(int) */
+	public void setPartitionSize (int partitionSize) {
+		if (partitionSize <= 0) throw new IllegalArgumentException("partitionSize must be > 0: " + partitionSize);
+		this.partitionSize = partitionSize;
+	}
+
+	public int getPartitionSize () {
+		return partitionSize;
+	}
+
+	public void write (Kryo kryo, Output output, Object[] object) {
+		if (object == null) {
+			output.writeVarInt(0, true);
+			return;
+		}
+		output.writeVarInt(object.length + 1, true);
+		ParallelCollectionSerializer.write(kryo, output, Arrays.asList(object), pool, executor, partitionSize);
+	}
+
+	public Object[] read (Kryo kryo, Input input, Class<Object[]> type) {
+		int length = input.readVarInt(true);
+		if (length == NULL) return null;
+		Object[] object = (Object[])Array.newInstance(type.getComponentType(), length - 1);
+		kryo.reference(object);
+		ParallelCollectionSerializer.read(kryo, input, object, pool, executor);
+		return object;
+	}
+
+	public Object[] copy (Kryo kryo, Object[] original) {
+		Object[] copy = (Object[])Array.newInstance(original.getClass().getComponentType(), original.length);
+		for (int i = 0, n = original.length; i < n; i++)
+			copy[i] = kryo.copy(original[i]);
+		return copy;
+	}
+}
@@ -0,0 +1,252 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.BooleanSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.ByteSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.CharSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.DoubleSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.FloatSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.IntSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.LongSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.ShortSerializer;
+
+/** A {@link CollectionSerializer} that packs collections whose generic element type is a primitive wrapper, such as a
+ * <code>List&lt;Integer&gt;</code> field. When {@link #setGenerics(Kryo, Class[])} provides a primitive wrapper type and that
+ * type uses its default serializer, the nulls are written as a bitmap followed by the values of the non-null elements, using the
+ * same varint or fixed width encoding as the default serializer but without a null byte, reference bookkeeping or serializer
+ * call per element. Other collections are serialized by CollectionSerializer. FieldSerializer only provides the generic types of
+ * fields when {@link FieldSerializerConfig#setOptimizedGenerics(boolean)} is enabled.
+ * <p>
+ * The packed format is not compatible with CollectionSerializer, so this serializer must be used for both writing and reading:
+ * 
+ * <pre>
+ * kryo.getFieldSerializerConfig().setOptimizedGenerics(true);
+ * kryo.addDefaultSerializer(Collection.class, PrimitiveCollectionSerializer.class);
+ * </pre> */
+public class PrimitiveCollectionSerializer extends CollectionSerializer {
+	static private final int BOOLEAN = 1, BYTE = 2, CHAR = 3, SHORT = 4, INT = 5, LONG = 6, FLOAT = 7, DOUBLE = 8;
+
+	private boolean elementsCanBeNull = true, elementClassSet;
+	private int primitiveType;
+
+	public PrimitiveCollectionSerializer () {
+	}
+
+	public void setElementsCanBeNull (boolean elementsCanBeNull) {
+		super.setElementsCanBeNull(elementsCanBeNull);
+		this.elementsCanBeNull = elementsCanBeNull;
+	}
+
+	/** If an element class is set, the element serializer is always used and collections are not packed. */
+	public void setElementClass (Class elementClass, Serializer serializer) {
+		super.setElementClass(elementClass, serializer);
+		elementClassSet = elementClass != null || serializer != null;
+	}
+
+	public void setGenerics (Kryo kryo, Class[] generics) {
+		super.setGenerics(kryo, generics);
+		primitiveType = 0;
+		if (!elementClassSet && generics != null && generics.length > 0 && generics[0] != null)
+			primitiveType = getPrimitiveType(kryo, generics[0]);
+	}
+
+	/** Returns the packed type for the class, or 0 if the class is not a primitive wrapper using its default serializer. */
+	static private int getPrimitiveType (Kryo kryo, Class type) {
+		int primitiveType;
+		Class serializerType;
+		if (type == Integer.class) {
+			primitiveType = INT;
+			serializerType = IntSerializer.class;
+		} else if (type == Long.class) {
+			primitiveType = LONG;
+			serializerType = LongSerializer.class;
+		} else if (type == Double.class) {
+			primitiveType = DOUBLE;
+			serializerType = DoubleSerializer.class;
+		} else if (type == Float.class) {
+			primitiveType = FLOAT;
+			serializerType = FloatSerializer.class;
+		} else if (type == Short.class) {
+			primitiveType = SHORT;
+			serializerType = ShortSerializer.class;
+		} else if (type == Byte.class) {
+			primitiveType = BYTE;
+			serializerType = ByteSerializer.class;
+		} else if (type == Character.class) {
+			primitiveType = CHAR;
+			serializerType = CharSerializer.class;
+		} else if (type == Boolean.class) {
+			primitiveType = BOOLEAN;
+			serializerType = BooleanSerializer.class;
+		} else
+			return 0;
+		return kryo.getSerializer(type).getClass() == serializerType ? primitiveType : 0;
+	}
+
+	public void write (Kryo kryo, Output output, Collection collection) {
+		int primitiveType = this.primitiveType;
+		if (primitiveType == 0) {
+			super.write(kryo, output, collection);
+			return;
+		}
+		super.setGenerics(kryo, null);
+		this.primitiveType = 0;
+
+		int length = collection.size();
+		output.writeVarInt(length, true);
+		if (length == 0) return;
+		byte[] nulls = null;
+		int i = 0;
+		for (Object element : collection) {
+			if (element == null) {
+				if (nulls == null) nulls = new byte[(length + 7) >>> 3];
+				nulls[i >>> 3] |= 1 << (i & 7);
+			}
+			i++;
+		}
+		if (elementsCanBeNull) {
+			if (nulls == null)
+				output.writeBoolean(false);
+			else {
+				output.writeBoolean(true);
+				output.writeBytes(nulls);
+			}
+		} else if (nulls != null)
+			throw new KryoException("Collection cannot contain null elements when elementsCanBeNull is false.");
+		Iterator iter = collection.iterator();
+		switch (primitiveType) {
+		case INT:
+			while (iter.hasNext()) {
+				Integer value = (Integer)iter.next();
+				if (value != null) output.writeInt(value, false);
+			}
+			break;
+		case LONG:
+			while (iter.hasNext()) {
+				Long value = (Long)iter.next();
+				if (value != null) output.writeLong(value, false);
+			}
+			break;
+		case DOUBLE:
+			while (iter.hasNext()) {
+				Double value = (Double)iter.next();
+				if (value != null) output.writeDouble(value);
+			}
+			break;
+		case FLOAT:
+			while (iter.hasNext()) {
+				Float value = (Float)iter.next();
+				if (value != null) output.writeFloat(value);
+			}
+			break;
+		case SHORT:
+			while (iter.hasNext()) {
+				Short value = (Short)iter.next();
+				if (value != null) output.writeShort(value);
+			}
+			break;
+		case BYTE:
+			while (iter.hasNext()) {
+				Byte value = (Byte)iter.next();
+				if (value != null) output.writeByte(value);
+			}
+			break;
+		case CHAR:
+			while (iter.hasNext()) {
+				Character value = (Character)iter.next();
+				if (value != null) output.writeChar(value);
+			}
+			break;
+		case BOOLEAN:
+			while (iter.hasNext()) {
+				Boolean value = (Boolean)iter.next();
+				if (value != null) output.writeBoolean(value);
+			}
+			break;
+		}
+	}
+
+	public Collection read (Kryo kryo, Input input, Class<Collection> type) {
+		int primitiveType = this.primitiveType;
+		if (primitiveType == 0) return super.read(kryo, input, type);
+		super.setGenerics(kryo, null);
+		this.primitiveType = 0;
+
+		Collection collection;
+		int length;
+		if (createOverridden) {
+			collection = create(kryo, input, type);
+			length = input.readVarInt(true);
+			if (collection instanceof ArrayList) ((ArrayList)collection).ensureCapacity(length);
+		} else {
+			length = input.readVarInt(true);
+			collection = create(kryo, input, type, length);
+		}
+		kryo.reference(collection);
+		if (length == 0) return collection;
+		byte[] nulls = null;
+		if (elementsCanBeNull && input.readBoolean()) nulls = input.readBytes((length + 7) >>> 3);
+		for (int i = 0; i < length; i++) {
+			if (nulls != null && (nulls[i >>> 3] & (1 << (i & 7))) != 0) {
+				collection.add(null);
+				continue;
+			}
+			switch (primitiveType) {
+			case INT:
+				collection.add(input.readInt(false));
+				break;
+			case LONG:
+				collection.add(input.readLong(false));
+				break;
+			case DOUBLE:
+				collection.add(input.readDouble());
+				break;
+			case FLOAT:
+				collection.add(input.readFloat());
+				break;
+			case SHORT:
+				collection.add(input.readShort());
+				break;
+			case BYTE:
+				collection.add(input.readByte());
+				break;
+			case CHAR:
+				collection.add(input.readChar());
+				break;
+			case BOOLEAN:
+				collection.add(input.readBoolean());
+				break;
+			default:
+				throw new KryoException("Unknown primitive type: " + primitiveType);
+			}
+		}
+		return collection;
+	}
+}
@@ -0,0 +1,35 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+/** Assigns IDs to the field name schemas written by {@link CompatibleFieldSerializer}, so only the ID needs to be written. The
+ * same schemas must be available to the reader, eg by sharing the registry or its storage. Implementations must be thread safe
+ * when shared by multiple Kryo instances.
+ * @see CompatibleFieldSerializerConfig#setSchemaRegistry(SchemaRegistry) */
+public interface SchemaRegistry {
+	/** Returns the ID for the schema, adding the schema if it has not been added before. The ID for a schema must never change.
+	 * @param fieldNames Must not be modified.
+	 * @return The ID, which is stored more efficiently if it is small and must be >= 0. */
+	public int getId (Class type, String[] fieldNames);
+
+	/** Returns the field names for the schema with the specified ID, or null if the ID is unknown. The returned array must not be
+	 * modified. */
+	public String[] getFieldNames (int id);
+}
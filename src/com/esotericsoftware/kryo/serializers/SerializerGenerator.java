@@ -0,0 +1,293 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import static com.esotericsoftware.kryo.util.UnsafeUtil.*;
+import static com.esotericsoftware.minlog.Log.*;
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+import com.esotericsoftware.kryo.serializers.FieldSerializer.CachedField;
+
+/** Generates {@link GeneratedSerializer} subclasses using ASM. Only loaded when ASM is available.
+ * @see GeneratedSerializerFactory */
+final class SerializerGenerator {
+	static private final String generatedSerializer = "com/esotericsoftware/kryo/serializers/GeneratedSerializer";
+	static private final String kryo = "Lcom/esotericsoftware/kryo/Kryo;";
+	static private final String output = "com/esotericsoftware/kryo/io/Output";
+	static private final String input = "com/esotericsoftware/kryo/io/Input";
+	static private final String unsafe = "sun/misc/Unsafe";
+
+	/** Type to generated class constructors by field layout. Weak keys allow types to be unloaded, the generated classes don't
+	 * reference them. */
+	static private final WeakHashMap<Class, HashMap<String, Constructor>> constructors = new WeakHashMap();
+
+	/** @throws LinkageError if ASM is not available. */
+	static boolean isAvailable () {
+		return ClassWriter.class != null;
+	}
+
+	static GeneratedSerializer newSerializer (FieldSerializer serializer) throws Exception {
+		ArrayList<CachedField> fields = new ArrayList();
+		for (CachedField field : serializer.getFields())
+			fields.add(field);
+		if (serializer.config.isSerializeTransient()) {
+			for (CachedField field : serializer.getTransientFields())
+				fields.add(field);
+		}
+
+		// The generated class depends only on the kind and offset of each field.
+		StringBuilder buffer = new StringBuilder();
+		ArrayList<CachedField> objectFields = new ArrayList();
+		for (CachedField field : fields) {
+			Class fieldType = field.field.getType();
+			buffer.append(fieldType.isPrimitive() ? fieldType.getName() : "object");
+			if (field.varIntsEnabled) buffer.append('+');
+			buffer.append(unsafe().objectFieldOffset(field.field)).append(',');
+			if (!fieldType.isPrimitive()) objectFields.add(field);
+		}
+		String layout = buffer.toString();
+
+		Constructor constructor;
+		synchronized (constructors) {
+			HashMap<String, Constructor> typeConstructors = constructors.get(serializer.type);
+			if (typeConstructors == null) {
+				typeConstructors = new HashMap();
+				constructors.put(serializer.type, typeConstructors);
+			}
+			constructor = typeConstructors.get(layout);
+			if (constructor == null) {
+				String className = "com.esotericsoftware.kryo.generated." + serializer.type.getName() + "Serializer";
+				byte[] bytes = generate(className.replace('.', '/'), fields);
+				Class generatedClass = new GeneratedClassLoader(GeneratedSerializer.class.getClassLoader()).define(className,
+					bytes);
+				constructor = generatedClass.getConstructor(FieldSerializer.class, CachedField[].class);
+				typeConstructors.put(layout, constructor);
+				if (DEBUG) debug("kryo", "Generated serializer: " + className);
+			}
+		}
+		return (GeneratedSerializer)constructor.newInstance(serializer,
+			objectFields.toArray(new CachedField[objectFields.size()]));
+	}
+
+	static private byte[] generate (String className, ArrayList<CachedField> fields) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, generatedSerializer, null);
+
+		String constructorDesc = "(Lcom/esotericsoftware/kryo/serializers/FieldSerializer;"
+			+ "[Lcom/esotericsoftware/kryo/serializers/FieldSerializer$CachedField;)V";
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", constructorDesc, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitMethodInsn(INVOKESPECIAL, generatedSerializer, "<init>", constructorDesc, false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		generateWrite(cw, fields);
+		generateRead(cw, fields);
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/** Locals: 0 this, 1 kryo, 2 output, 3 object. */
+	static private void generateWrite (ClassWriter cw, ArrayList<CachedField> fields) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "write", "(" + kryo + "L" + output + ";Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+		int objectIndex = 0;
+		for (CachedField cachedField : fields) {
+			Field field = cachedField.field;
+			Class type = field.getType();
+			long offset = unsafe().objectFieldOffset(field);
+			if (!type.isPrimitive()) {
+				// writeObjectField(kryo, output, object, unsafe.getObject(object, offset), index)
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitVarInsn(ALOAD, 3);
+				getField(mv, "Object", "Ljava/lang/Object;", offset);
+				pushInt(mv, objectIndex++);
+				mv.visitMethodInsn(INVOKEVIRTUAL, generatedSerializer, "writeObjectField",
+					"(" + kryo + "L" + output + ";Ljava/lang/Object;Ljava/lang/Object;I)V", false);
+				continue;
+			}
+			mv.visitVarInsn(ALOAD, 2);
+			if (type == int.class) {
+				getField(mv, "Int", "I", offset);
+				if (cachedField.varIntsEnabled) {
+					mv.visitInsn(ICONST_0);
+					mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeInt", "(IZ)I", false);
+					mv.visitInsn(POP);
+				} else
+					mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeInt", "(I)V", false);
+			} else if (type == long.class) {
+				getField(mv, "Long", "J", offset);
+				if (cachedField.varIntsEnabled) {
+					mv.visitInsn(ICONST_0);
+					mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeLong", "(JZ)I", false);
+					mv.visitInsn(POP);
+				} else
+					mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeLong", "(J)V", false);
+			} else if (type == float.class) {
+				getField(mv, "Float", "F", offset);
+				mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeFloat", "(F)V", false);
+			} else if (type == double.class) {
+				getField(mv, "Double", "D", offset);
+				mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeDouble", "(D)V", false);
+			} else if (type == short.class) {
+				getField(mv, "Short", "S", offset);
+				mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeShort", "(I)V", false);
+			} else if (type == byte.class) {
+				getField(mv, "Byte", "B", offset);
+				mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeByte", "(B)V", false);
+			} else if (type == boolean.class) {
+				getField(mv, "Boolean", "Z", offset);
+				mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeBoolean", "(Z)V", false);
+			} else if (type == char.class) {
+				getField(mv, "Char", "C", offset);
+				mv.visitMethodInsn(INVOKEVIRTUAL, output, "writeChar", "(C)V", false);
+			}
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/** Locals: 0 this, 1 kryo, 2 input, 3 type, 4 object. */
+	static private void generateRead (ClassWriter cw, ArrayList<CachedField> fields) {
+		String readDesc = "(" + kryo + "L" + input + ";Ljava/lang/Class;)Ljava/lang/Object;";
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "read", readDesc, null, null);
+		mv.visitCode();
+		// object = create(kryo, input, type); kryo.reference(object);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitVarInsn(ALOAD, 3);
+		mv.visitMethodInsn(INVOKEVIRTUAL, generatedSerializer, "create", readDesc, false);
+		mv.visitVarInsn(ASTORE, 4);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 4);
+		mv.visitMethodInsn(INVOKEVIRTUAL, "com/esotericsoftware/kryo/Kryo", "reference", "(Ljava/lang/Object;)V", false);
+
+		int objectIndex = 0;
+		for (CachedField cachedField : fields) {
+			Field field = cachedField.field;
+			Class type = field.getType();
+			mv.visitFieldInsn(GETSTATIC, generatedSerializer, "unsafe", "L" + unsafe + ";");
+			mv.visitVarInsn(ALOAD, 4);
+			mv.visitLdcInsn(unsafe().objectFieldOffset(field));
+			if (!type.isPrimitive()) {
+				// readObjectField(kryo, input, index)
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitVarInsn(ALOAD, 2);
+				pushInt(mv, objectIndex++);
+				mv.visitMethodInsn(INVOKEVIRTUAL, generatedSerializer, "readObjectField",
+					"(" + kryo + "L" + input + ";I)Ljava/lang/Object;", false);
+				putField(mv, "Object", "Ljava/lang/Object;");
+				continue;
+			}
+			mv.visitVarInsn(ALOAD, 2);
+			if (type == int.class) {
+				if (cachedField.varIntsEnabled) {
+					mv.visitInsn(ICONST_0);
+					mv.visitMethodInsn(INVOKEVIRTUAL, input, "readInt", "(Z)I", false);
+				} else
+					mv.visitMethodInsn(INVOKEVIRTUAL, input, "readInt", "()I", false);
+				putField(mv, "Int", "I");
+			} else if (type == long.class) {
+				if (cachedField.varIntsEnabled) {
+					mv.visitInsn(ICONST_0);
+					mv.visitMethodInsn(INVOKEVIRTUAL, input, "readLong", "(Z)J", false);
+				} else
+					mv.visitMethodInsn(INVOKEVIRTUAL, input, "readLong", "()J", false);
+				putField(mv, "Long", "J");
+			} else if (type == float.class) {
+				mv.visitMethodInsn(INVOKEVIRTUAL, input, "readFloat", "()F", false);
+				putField(mv, "Float", "F");
+			} else if (type == double.class) {
+				mv.visitMethodInsn(INVOKEVIRTUAL, input, "readDouble", "()D", false);
+				putField(mv, "Double", "D");
+			} else if (type == short.class) {
+				mv.visitMethodInsn(INVOKEVIRTUAL, input, "readShort", "()S", false);
+				putField(mv, "Short", "S");
+			} else if (type == byte.class) {
+				mv.visitMethodInsn(INVOKEVIRTUAL, input, "readByte", "()B", false);
+				putField(mv, "Byte", "B");
+			} else if (type == boolean.class) {
+				mv.visitMethodInsn(INVOKEVIRTUAL, input, "readBoolean", "()Z", false);
+				putField(mv, "Boolean", "Z");
+			} else if (type == char.class) {
+				mv.visitMethodInsn(INVOKEVIRTUAL, input, "readChar", "()C", false);
+				putField(mv, "Char", "C");
+			}
+		}
+		mv.visitVarInsn(ALOAD, 4);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/** Pushes unsafe.getX(object, offset), with the object in local 3. */
+	static private void getField (MethodVisitor mv, String name, String desc, long offset) {
+		mv.visitFieldInsn(GETSTATIC, generatedSerializer, "unsafe", "L" + unsafe + ";");
+		mv.visitVarInsn(ALOAD, 3);
+		mv.visitLdcInsn(offset);
+		mv.visitMethodInsn(INVOKEVIRTUAL, unsafe, "get" + name, "(Ljava/lang/Object;J)" + desc, false);
+	}
+
+	/** Calls unsafe.putX(object, offset, value), with the arguments on the stack. */
+	static private void putField (MethodVisitor mv, String name, String desc) {
+		mv.visitMethodInsn(INVOKEVIRTUAL, unsafe, "put" + name, "(Ljava/lang/Object;J" + desc + ")V", false);
+	}
+
+	static private void pushInt (MethodVisitor mv, int value) {
+		if (value <= 5)
+			mv.visitInsn(ICONST_0 + value);
+		else if (value <= Byte.MAX_VALUE)
+			mv.visitIntInsn(BIPUSH, value);
+		else if (value <= Short.MAX_VALUE)
+			mv.visitIntInsn(SIPUSH, value);
+		else
+			mv.visitLdcInsn(value);
+	}
+
+	/** Defines each generated class in its own class loader, so it can be unloaded when no longer used. */
+	static private class GeneratedClassLoader extends ClassLoader {
+		GeneratedClassLoader (ClassLoader parent) {
+			super(parent);
+		}
+
+		Class define (String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
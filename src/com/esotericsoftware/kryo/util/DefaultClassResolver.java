@@ -25,6 +25,7 @@ import static com.esotericsoftware.minlog.Log.*;
 import com.esotericsoftware.kryo.ClassResolver;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.KryoListener;
 import com.esotericsoftware.kryo.Registration;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
@@ -121,6 +122,8 @@ public class DefaultClassResolver implements ClassResolver {
 		classToNameId.put(type, nameId);
 		output.writeVarInt(nameId, true);
 		output.writeString(type.getName());
+		KryoListener listener = kryo.getListener();
+		if (listener != null) listener.classNameWritten(type);
 	}
 
 	public Registration readClass (Input input) {
@@ -165,6 +168,8 @@ public class DefaultClassResolver implements ClassResolver {
 			}
 			nameIdToClass.put(nameId, type);
 			if (TRACE) trace("kryo", "Read class name: " + className);
+			KryoListener listener = kryo.getListener();
+			if (listener != null) listener.classNameRead(type);
 		} else {
 			if (TRACE) trace("kryo", "Read class name reference " + nameId + ": " + className(type));
 		}
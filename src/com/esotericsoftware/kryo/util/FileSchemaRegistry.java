@@ -0,0 +1,127 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.util;
+
+import static com.esotericsoftware.minlog.Log.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import com.esotericsoftware.kryo.KryoException;
+
+/** A {@link MapSchemaRegistry} that appends each new schema to a file and loads the file when created. Writers and readers that
+ * use the same file get the same schema IDs. Only one registry at a time may add schemas to a file, other processes should only
+ * read the file after the schemas they need have been written. */
+public class FileSchemaRegistry extends MapSchemaRegistry {
+	private final File file;
+	/** The offset just after the last complete schema in the file. New schemas are written here, so a partial schema left by an
+	 * interrupted write is overwritten. */
+	private long end;
+
+	/** Loads the schemas from the file, if it exists. An incomplete schema at the end of the file is ignored and is truncated
+	 * before the next schema is written.
+	 * @throws KryoException if the file can't be read. */
+	public FileSchemaRegistry (File file) {
+		if (file == null) throw new IllegalArgumentException("file cannot be null.");
+		this.file = file;
+		if (file.exists()) load();
+	}
+
+	public File getFile () {
+		return file;
+	}
+
+	private void load () {
+		byte[] bytes;
+		RandomAccessFile randomAccessFile = null;
+		try {
+			randomAccessFile = new RandomAccessFile(file, "r");
+			bytes = new byte[(int)randomAccessFile.length()];
+			randomAccessFile.readFully(bytes);
+		} catch (IOException ex) {
+			throw new KryoException("Error reading schemas: " + file, ex);
+		} finally {
+			close(randomAccessFile);
+		}
+
+		ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+		DataInputStream input = new DataInputStream(buffer);
+		int count = 0;
+		try {
+			while (buffer.available() > 0) {
+				int id = input.readInt();
+				String typeName = input.readUTF();
+				String[] fieldNames = new String[input.readInt()];
+				for (int i = 0, n = fieldNames.length; i < n; i++)
+					fieldNames[i] = input.readUTF();
+				add(id, typeName, fieldNames);
+				end = bytes.length - buffer.available();
+				count++;
+			}
+		} catch (EOFException ex) {
+			// An incomplete last schema was never used, as it is written before its ID is returned.
+			if (WARN) warn("kryo", "Ignoring incomplete schema at the end of file: " + file);
+		} catch (IOException ex) {
+			throw new KryoException("Error reading schemas: " + file, ex);
+		}
+		if (DEBUG) debug("kryo", "Loaded " + count + " schemas: " + file);
+	}
+
+	protected void added (int id, String typeName, String[] fieldNames) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream output = new DataOutputStream(bytes);
+		RandomAccessFile randomAccessFile = null;
+		try {
+			output.writeInt(id);
+			output.writeUTF(typeName);
+			output.writeInt(fieldNames.length);
+			for (int i = 0, n = fieldNames.length; i < n; i++)
+				output.writeUTF(fieldNames[i]);
+
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			// Remove an incomplete schema left by a failed write, else every later schema would be misaligned.
+			if (randomAccessFile.length() > end) randomAccessFile.setLength(end);
+			randomAccessFile.seek(end);
+			randomAccessFile.write(bytes.toByteArray());
+			randomAccessFile.close();
+			randomAccessFile = null;
+			end += bytes.size();
+		} catch (IOException ex) {
+			throw new KryoException("Error writing schema: " + file, ex);
+		} finally {
+			close(randomAccessFile);
+		}
+	}
+
+	static private void close (RandomAccessFile randomAccessFile) {
+		if (randomAccessFile != null) {
+			try {
+				randomAccessFile.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+}
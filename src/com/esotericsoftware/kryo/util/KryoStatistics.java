@@ -0,0 +1,181 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.esotericsoftware.kryo.KryoListener;
+import com.esotericsoftware.kryo.Serializer;
+
+/** A {@link KryoListener} that counts objects, bytes, time, references and class names per class. It is thread safe, so the
+ * same instance can be set for many Kryo instances. Because bytes and time of an object include its child objects, the values
+ * for a class show how much the object graphs rooted at instances of that class cost.
+ * <p>
+ * <pre>
+ * KryoStatistics statistics = new KryoStatistics();
+ * kryo.setListener(statistics);
+ * // Serialize...
+ * System.out.println(statistics);
+ * </pre> */
+public class KryoStatistics implements KryoListener {
+	private final ConcurrentHashMap<Class, ClassStatistics> statistics = new ConcurrentHashMap();
+
+	public void objectWritten (Class type, Serializer serializer, long bytes, long nanos) {
+		ClassStatistics statistics = get(type);
+		statistics.writeCount.incrementAndGet();
+		statistics.writeBytes.addAndGet(bytes);
+		statistics.writeNanos.addAndGet(nanos);
+	}
+
+	public void objectRead (Class type, Serializer serializer, long bytes, long nanos) {
+		ClassStatistics statistics = get(type);
+		statistics.readCount.incrementAndGet();
+		statistics.readBytes.addAndGet(bytes);
+		statistics.readNanos.addAndGet(nanos);
+	}
+
+	public void referenceWritten (Class type) {
+		get(type).referencesWritten.incrementAndGet();
+	}
+
+	public void referenceRead (Class type) {
+		get(type).referencesRead.incrementAndGet();
+	}
+
+	public void classNameWritten (Class type) {
+		get(type).classNamesWritten.incrementAndGet();
+	}
+
+	public void classNameRead (Class type) {
+		get(type).classNamesRead.incrementAndGet();
+	}
+
+	private ClassStatistics get (Class type) {
+		ClassStatistics classStatistics = statistics.get(type);
+		if (classStatistics == null) {
+			classStatistics = new ClassStatistics(type);
+			ClassStatistics existing = statistics.putIfAbsent(type, classStatistics);
+			if (existing != null) classStatistics = existing;
+		}
+		return classStatistics;
+	}
+
+	/** Returns the statistics for the class, or null if no events for the class have been received. */
+	public ClassStatistics getStatistics (Class type) {
+		return statistics.get(type);
+	}
+
+	/** Returns a snapshot of the statistics for all classes. */
+	public Map<Class, ClassStatistics> getStatistics () {
+		return new HashMap(statistics);
+	}
+
+	/** Discards all statistics. */
+	public void clear () {
+		statistics.clear();
+	}
+
+	/** Returns a table of the statistics, sorted by the number of bytes written and read. */
+	public String toString () {
+		ArrayList<ClassStatistics> values = new ArrayList(statistics.values());
+		Collections.sort(values, new Comparator<ClassStatistics>() {
+			public int compare (ClassStatistics o1, ClassStatistics o2) {
+				long bytes1 = o1.getWriteBytes() + o1.getReadBytes(), bytes2 = o2.getWriteBytes() + o2.getReadBytes();
+				return bytes1 > bytes2 ? -1 : (bytes1 == bytes2 ? 0 : 1);
+			}
+		});
+		StringBuilder buffer = new StringBuilder();
+		for (ClassStatistics value : values)
+			buffer.append(value).append('\n');
+		return buffer.toString();
+	}
+
+	/** The statistics for a single class. */
+	static public class ClassStatistics {
+		final Class type;
+		final AtomicLong writeCount = new AtomicLong(), writeBytes = new AtomicLong(), writeNanos = new AtomicLong();
+		final AtomicLong readCount = new AtomicLong(), readBytes = new AtomicLong(), readNanos = new AtomicLong();
+		final AtomicLong referencesWritten = new AtomicLong(), referencesRead = new AtomicLong();
+		final AtomicLong classNamesWritten = new AtomicLong(), classNamesRead = new AtomicLong();
+
+		ClassStatistics (Class type) {
+			this.type = type;
+		}
+
+		public Class getType () {
+			return type;
+		}
+
+		/** Returns the number of objects written, excluding references. */
+		public long getWriteCount () {
+			return writeCount.get();
+		}
+
+		public long getWriteBytes () {
+			return writeBytes.get();
+		}
+
+		public long getWriteNanos () {
+			return writeNanos.get();
+		}
+
+		/** Returns the number of objects read, excluding references. */
+		public long getReadCount () {
+			return readCount.get();
+		}
+
+		public long getReadBytes () {
+			return readBytes.get();
+		}
+
+		public long getReadNanos () {
+			return readNanos.get();
+		}
+
+		public long getReferencesWritten () {
+			return referencesWritten.get();
+		}
+
+		public long getReferencesRead () {
+			return referencesRead.get();
+		}
+
+		public long getClassNamesWritten () {
+			return classNamesWritten.get();
+		}
+
+		public long getClassNamesRead () {
+			return classNamesRead.get();
+		}
+
+		public String toString () {
+			return Util.className(type) + ": written " + writeCount + " (" + writeBytes + " bytes, " + writeNanos + " ns), read "
+				+ readCount + " (" + readBytes + " bytes, " + readNanos + " ns), references written " + referencesWritten
+				+ ", references read " + referencesRead + ", class names written " + classNamesWritten + ", class names read "
+				+ classNamesRead;
+		}
+	}
+}
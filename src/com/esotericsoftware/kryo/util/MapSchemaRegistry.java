@@ -0,0 +1,81 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.util;
+
+import static com.esotericsoftware.minlog.Log.*;
+
+import com.esotericsoftware.kryo.serializers.SchemaRegistry;
+
+/** A thread safe {@link SchemaRegistry} that keeps the schemas in memory. IDs are assigned sequentially, so a reader in another
+ * process needs the schemas added in the same order, see {@link #add(int, String, String[])} and {@link FileSchemaRegistry}. */
+public class MapSchemaRegistry implements SchemaRegistry {
+	private final ObjectMap<String, Integer> ids = new ObjectMap();
+	private final IntMap<String[]> fieldNames = new IntMap();
+	private int nextId;
+
+	public synchronized int getId (Class type, String[] fieldNames) {
+		String key = key(type.getName(), fieldNames);
+		Integer id = ids.get(key);
+		if (id != null) return id;
+		while (this.fieldNames.containsKey(nextId))
+			nextId++;
+		int newId = nextId++;
+		// Stored first, so an ID is never returned for a schema that failed to be stored.
+		added(newId, type.getName(), fieldNames);
+		add(newId, type.getName(), fieldNames);
+		return newId;
+	}
+
+	public synchronized String[] getFieldNames (int id) {
+		return fieldNames.get(id);
+	}
+
+	/** Adds a schema with a known ID, eg one that was stored previously.
+	 * @throws IllegalArgumentException if the ID is already used by a different schema. */
+	public synchronized void add (int id, String typeName, String[] fieldNames) {
+		if (id < 0) throw new IllegalArgumentException("id must be >= 0: " + id);
+		if (typeName == null) throw new IllegalArgumentException("typeName cannot be null.");
+		if (fieldNames == null) throw new IllegalArgumentException("fieldNames cannot be null.");
+		String key = key(typeName, fieldNames);
+		String[] existing = this.fieldNames.get(id);
+		if (existing != null) {
+			Integer existingId = ids.get(key);
+			if (existingId == null || existingId != id)
+				throw new IllegalArgumentException("Schema ID " + id + " is already used by a different schema.");
+			return;
+		}
+		ids.put(key, id);
+		this.fieldNames.put(id, fieldNames);
+		if (TRACE) trace("kryo", "Add schema " + id + ": " + typeName + " " + fieldNames.length + " fields");
+	}
+
+	/** Called when {@link #getId(Class, String[])} adds a new schema, before the ID is returned and with the lock held. Subclasses
+	 * can override this to store the schema. */
+	protected void added (int id, String typeName, String[] fieldNames) {
+	}
+
+	static private String key (String typeName, String[] fieldNames) {
+		StringBuilder buffer = new StringBuilder(typeName.length() + fieldNames.length * 8);
+		buffer.append(typeName);
+		for (int i = 0, n = fieldNames.length; i < n; i++)
+			buffer.append(',').append(fieldNames[i]);
+		return buffer.toString();
+	}
+}
@@ -1,6 +1,7 @@
 
 package com.esotericsoftware.kryo;
 
+import java.io.ByteArrayInputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -76,6 +77,22 @@ public class ByteBufferInputOutputTest extends KryoTestCase {
 		assertEquals(5, inputBuffer.getByteBuffer().position());
 	}
 
+	public void testByteBufferInputEof () {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+		buffer.putInt(123).flip();
+		ByteBufferInput inputBuffer = new ByteBufferInput(buffer);
+		assertFalse(inputBuffer.eof());
+		assertEquals(123, inputBuffer.readInt());
+		assertTrue(inputBuffer.eof());
+
+		inputBuffer = new ByteBufferInput(new ByteArrayInputStream(new byte[] {1, 2}), 1);
+		assertFalse(inputBuffer.eof());
+		assertEquals(1, inputBuffer.readByte());
+		assertFalse(inputBuffer.eof());
+		assertEquals(2, inputBuffer.readByte());
+		assertTrue(inputBuffer.eof());
+	}
+
 	public void testByteBufferOutputPosition () {
 		ByteBufferOutput outputBuffer = new ByteBufferOutput(4096);
 		assertEquals(0, outputBuffer.position());
@@ -0,0 +1,125 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+
+import com.esotericsoftware.kryo.io.ChannelInput;
+import com.esotericsoftware.kryo.io.ChannelOutput;
+import com.esotericsoftware.kryo.io.NeedMoreBytesException;
+import com.esotericsoftware.kryo.io.Output;
+
+public class ChannelInputOutputTest extends KryoTestCase {
+	private ArrayList<String> list (int index, int size) {
+		ArrayList<String> list = new ArrayList();
+		for (int i = 0; i < size; i++)
+			list.add("value" + index + "-" + i);
+		return list;
+	}
+
+	public void testBlocking () {
+		kryo.register(ArrayList.class);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		ChannelOutput output = new ChannelOutput(Channels.newChannel(stream), 16, -1);
+		Output expected = new Output(1024, -1);
+		for (int i = 0; i < 100; i++) {
+			output.writeVarInt(i, true);
+			output.writeString("string" + i);
+			output.writeLong(i * 1000000L);
+			kryo.writeObject(output, list(i, 10));
+			expected.writeVarInt(i, true);
+			expected.writeString("string" + i);
+			expected.writeLong(i * 1000000L);
+			kryo.writeObject(expected, list(i, 10));
+		}
+		output.flush();
+		assertEquals(0, output.pending());
+		assertEquals(expected.total(), output.total());
+		assertEquals(expected.toBytes(), stream.toByteArray());
+
+		ChannelInput input = new ChannelInput(Channels.newChannel(new ByteArrayInputStream(stream.toByteArray())), 16, -1);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, input.readVarInt(true));
+			assertEquals("string" + i, input.readString());
+			assertEquals(i * 1000000L, input.readLong());
+			assertEquals(list(i, 10), kryo.readObject(input, ArrayList.class));
+		}
+		assertEquals(expected.total(), input.total());
+		assertFalse(input.canReadInt());
+		assertEquals(-1, input.read());
+	}
+
+	public void testMaxBufferSize () {
+		ChannelInput input = new ChannelInput(Channels.newChannel(new ByteArrayInputStream(new byte[100])), 16, 32);
+		// Without a mark, bytes are read through the buffer in chunks.
+		input.readBytes(64);
+		// The bytes since the mark must fit in the buffer.
+		input.mark();
+		try {
+			input.readBytes(33);
+			fail();
+		} catch (KryoException expected) {
+		}
+	}
+
+	public void testNonBlocking () throws Exception {
+		kryo.register(ArrayList.class);
+		Pipe pipe = Pipe.open();
+		pipe.sink().configureBlocking(false);
+		pipe.source().configureBlocking(false);
+		ChannelOutput output = new ChannelOutput(pipe.sink(), 256, -1);
+		ChannelInput input = new ChannelInput(pipe.source(), 256, -1);
+
+		int count = 50, read = 0, retries = 0;
+		// Write enough that the pipe cannot accept all bytes at once.
+		for (int i = 0; i < count; i++)
+			kryo.writeClassAndObject(output, list(i, 1000));
+		output.flush();
+		assertTrue(output.pending() > 0);
+
+		while (read < count) {
+			input.mark();
+			try {
+				assertEquals(list(read, 1000), kryo.readClassAndObject(input));
+				read++;
+			} catch (KryoException ex) {
+				if (!input.needMoreBytes()) throw ex;
+				assertTrue(ex instanceof NeedMoreBytesException);
+				input.reset();
+				retries++;
+				output.flush();
+			}
+		}
+		assertTrue(retries > 0);
+		assertEquals(0, output.pending());
+		assertEquals(output.total(), input.total());
+		try {
+			input.readByte();
+			fail();
+		} catch (NeedMoreBytesException expected) {
+		}
+		output.close();
+		input.close();
+	}
+}
@@ -19,15 +19,25 @@
 
 package com.esotericsoftware.kryo;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.PriorityQueue;
 import java.util.TreeSet;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import com.esotericsoftware.kryo.MapSerializerTest.DescendingComparator;
 import com.esotericsoftware.kryo.MapSerializerTest.KeyComparator;
 import com.esotericsoftware.kryo.MapSerializerTest.KeyThatIsntComparable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.PriorityQueueSerializer;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers.StringSerializer;
 
 /** @author Nathan Sweet <misc@n4te.com> */
@@ -36,6 +46,32 @@ public class CollectionSerializerTest extends KryoTestCase {
 		supportsCopy = true;
 	}
 
+	public void testCreateWithSize () {
+		final int[] sizes = {-1};
+		CollectionSerializer serializer = new CollectionSerializer() {
+			protected Collection create (Kryo kryo, Input input, Class<Collection> type, int size) {
+				sizes[0] = size;
+				return super.create(kryo, input, type, size);
+			}
+		};
+		kryo.register(ArrayList.class, serializer);
+		kryo.register(HashSet.class, serializer);
+		kryo.register(LinkedHashSet.class, serializer);
+		kryo.register(ArrayDeque.class, serializer);
+		roundTrip(11, 11, list("1", "2", "3"));
+		assertEquals(3, sizes[0]);
+		roundTrip(11, 11, new HashSet(list("1", "2", "3")));
+		roundTrip(14, 14, new LinkedHashSet(list("1", "2", "3", "4")));
+		assertEquals(4, sizes[0]);
+		Output output = new Output(32);
+		kryo.writeObject(output, new ArrayDeque(list("1", "2")));
+		ArrayDeque deque = kryo.readObject(new Input(output.toBytes()), ArrayDeque.class);
+		assertEquals(list("1", "2"), new ArrayList(deque));
+		assertEquals(2, sizes[0]);
+		roundTrip(2, 2, new HashSet());
+		assertEquals(0, sizes[0]);
+	}
+
 	public void testCollections () {
 		kryo.register(ArrayList.class);
 		kryo.register(LinkedList.class);
@@ -82,6 +118,76 @@ public class CollectionSerializerTest extends KryoTestCase {
 		roundTrip(11, 23, set);
 	}
 
+	public void testTreeSetSortedRead () {
+		kryo.register(TreeSet.class);
+		kryo.register(DescendingComparator.class);
+		TreeSet set = new TreeSet();
+		for (int i = 0; i < 1000; i++)
+			set.add(i);
+		TreeSet read = writeAndRead(set);
+		assertEquals(set, read);
+		assertEquals(TreeSet.class, read.getClass());
+		assertNull(read.comparator());
+		read.add(-1);
+		assertEquals(-1, read.first());
+
+		// The comparator used for writing sorts descending, the one read sorts ascending.
+		DescendingComparator comparator = new DescendingComparator();
+		comparator.descending = true;
+		set = new TreeSet(comparator);
+		for (int i = 0; i < 100; i++)
+			set.add(i);
+		read = writeAndRead(set);
+		assertEquals(set, read);
+		assertEquals(0, read.first());
+		assertEquals(99, read.last());
+	}
+
+	public void testPriorityQueue () {
+		kryo.register(PriorityQueue.class, new PriorityQueueSerializer());
+		kryo.register(DescendingComparator.class);
+		PriorityQueue queue = new PriorityQueue(11, new DescendingComparator());
+		for (int i : new int[] {5, 3, 9, 1, 7, 3})
+			queue.add(i);
+		PriorityQueue read = writeAndRead(queue);
+		assertEquals(DescendingComparator.class, read.comparator().getClass());
+		assertEquals(Arrays.asList(queue.toArray()), Arrays.asList(read.toArray()));
+		assertEquals(1, read.poll());
+
+		queue = new PriorityQueue();
+		queue.add("b");
+		queue.add("a");
+		read = writeAndRead(queue);
+		assertNull(read.comparator());
+		assertEquals("a", read.poll());
+
+		PriorityQueue copy = kryo.copy(queue);
+		assertNotSame(queue, copy);
+		assertEquals(Arrays.asList(queue.toArray()), Arrays.asList(copy.toArray()));
+	}
+
+	public void testCopyOnWriteArrayList () {
+		kryo.register(CopyOnWriteArrayList.class);
+		roundTrip(11, 11, new CopyOnWriteArrayList(list("1", "2", "3")));
+		roundTrip(2, 2, new CopyOnWriteArrayList());
+
+		kryo.setReferences(true);
+		CopyOnWriteArrayList list = new CopyOnWriteArrayList();
+		list.add("1");
+		list.add(list);
+		list.add("1");
+		CopyOnWriteArrayList read = writeAndRead(list);
+		assertEquals(3, read.size());
+		assertSame(read, read.get(1));
+		assertSame(read.get(0), read.get(2));
+	}
+
+	private <T> T writeAndRead (T object) {
+		Output output = new Output(1024, -1);
+		kryo.writeClassAndObject(output, object);
+		return (T)kryo.readClassAndObject(new Input(output.toBytes()));
+	}
+
 	static public class TreeSetSubclass<E> extends TreeSet<E> {
 		public TreeSetSubclass () {
 		}
@@ -19,10 +19,18 @@
 
 package com.esotericsoftware.kryo;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
 
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.CompatibleFieldSerializer;
 import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.esotericsoftware.kryo.util.FileSchemaRegistry;
+import com.esotericsoftware.kryo.util.MapSchemaRegistry;
 
 /** @author Nathan Sweet <misc@n4te.com> */
 public class CompatibleFieldSerializerTest extends KryoTestCase {
@@ -86,6 +94,222 @@ public class CompatibleFieldSerializerTest extends KryoTestCase {
 		assertEquals(extendedObject, object2);
 	}
 
+	public void testLengthPrefixed () throws FileNotFoundException {
+		TestClass object1 = new TestClass();
+		object1.child = new TestClass();
+		object1.other = new AnotherClass();
+		object1.other.value = "meow";
+		kryo.getCompatibleFieldSerializerConfig().setChunkedEncoding(false);
+		kryo.setDefaultSerializer(CompatibleFieldSerializer.class);
+		kryo.register(TestClass.class);
+		kryo.register(AnotherClass.class);
+		assertFalse(((CompatibleFieldSerializer)kryo.getSerializer(TestClass.class)).getChunkedEncoding());
+		roundTrip(87, 103, object1);
+	}
+
+	public void testLengthPrefixedAddedField () throws FileNotFoundException {
+		TestClass object1 = new TestClass();
+		object1.child = new TestClass();
+		object1.other = new AnotherClass();
+		object1.other.value = "meow";
+
+		kryo.getCompatibleFieldSerializerConfig().setChunkedEncoding(false);
+		CompatibleFieldSerializer serializer = new CompatibleFieldSerializer(kryo, TestClass.class);
+		serializer.removeField("text");
+		kryo.register(TestClass.class, serializer);
+		kryo.register(AnotherClass.class, new CompatibleFieldSerializer(kryo, AnotherClass.class));
+		roundTrip(63, 79, object1);
+
+		kryo.register(TestClass.class, new CompatibleFieldSerializer(kryo, TestClass.class));
+		Object object2 = kryo.readClassAndObject(input);
+		assertEquals(object1, object2);
+	}
+
+	public void testLengthPrefixedRemovedField () throws FileNotFoundException {
+		TestClass object1 = new TestClass();
+		object1.child = new TestClass();
+		object1.other = new AnotherClass();
+		object1.other.value = "meow";
+
+		kryo.getCompatibleFieldSerializerConfig().setChunkedEncoding(false);
+		kryo.register(TestClass.class, new CompatibleFieldSerializer(kryo, TestClass.class));
+		kryo.register(AnotherClass.class, new CompatibleFieldSerializer(kryo, AnotherClass.class));
+		roundTrip(87, 103, object1);
+
+		CompatibleFieldSerializer serializer = new CompatibleFieldSerializer(kryo, TestClass.class);
+		serializer.removeField("other");
+		kryo.register(TestClass.class, serializer);
+		TestClass object2 = (TestClass)kryo.readClassAndObject(input);
+		assertEquals(object1, object2);
+		assertNull(object2.other);
+		assertEquals(input.limit(), input.position());
+	}
+
+	public void testLengthPrefixedChangedFieldType () {
+		kryo.getCompatibleFieldSerializerConfig().setChunkedEncoding(false);
+		kryo.register(AnotherClass.class, new CompatibleFieldSerializer(kryo, AnotherClass.class));
+		AnotherClass object = new AnotherClass();
+		object.value = "meow";
+		Output output = new Output(64);
+		kryo.writeObject(output, object);
+
+		// The same field name, but the int is read from the string data.
+		kryo.register(ChangedClass.class, new CompatibleFieldSerializer(kryo, ChangedClass.class));
+		try {
+			kryo.readObject(new Input(output.toBytes()), ChangedClass.class);
+			fail();
+		} catch (KryoException expected) {
+		}
+	}
+
+	public void testSchemaRegistry () throws FileNotFoundException {
+		TestClass object1 = new TestClass();
+		object1.child = new TestClass();
+		object1.other = new AnotherClass();
+		object1.other.value = "meow";
+		MapSchemaRegistry registry = new MapSchemaRegistry();
+		kryo.getCompatibleFieldSerializerConfig().setSchemaRegistry(registry);
+		kryo.setDefaultSerializer(CompatibleFieldSerializer.class);
+		kryo.register(TestClass.class);
+		kryo.register(AnotherClass.class);
+		roundTrip(78, 78, object1);
+		assertFalse(new String(output.toBytes()).contains("moo2"));
+		assertEquals(0, registry.getId(TestClass.class, new String[] {"child", "moo", "moo2", "other", "text", "zzz"}));
+		assertEquals(1, registry.getId(AnotherClass.class, new String[] {"value"}));
+
+		// A reader with a removed field, sharing the registry.
+		Kryo reader = new Kryo();
+		reader.setReferences(false);
+		reader.getCompatibleFieldSerializerConfig().setSchemaRegistry(registry);
+		CompatibleFieldSerializer serializer = new CompatibleFieldSerializer(reader, TestClass.class);
+		serializer.removeField("text");
+		reader.register(TestClass.class, serializer);
+		reader.register(AnotherClass.class, new CompatibleFieldSerializer(reader, AnotherClass.class));
+		TestClass object2 = (TestClass)reader.readClassAndObject(new Input(output.toBytes()));
+		assertEquals(object1.moo2, object2.moo2);
+		assertEquals("meow", object2.other.value);
+		assertEquals("something", object2.text);
+
+		// A reader without the schemas.
+		reader = new Kryo();
+		reader.setReferences(false);
+		reader.getCompatibleFieldSerializerConfig().setSchemaRegistry(new MapSchemaRegistry());
+		reader.setDefaultSerializer(CompatibleFieldSerializer.class);
+		reader.register(TestClass.class);
+		reader.register(AnotherClass.class);
+		try {
+			reader.readClassAndObject(new Input(output.toBytes()));
+			fail();
+		} catch (KryoException ex) {
+			assertTrue(ex.getMessage().contains("Unknown schema ID 0"));
+		}
+	}
+
+	public void testFileSchemaRegistry () throws IOException {
+		File file = File.createTempFile("kryo-schemas", ".bin");
+		file.delete();
+		try {
+			TestClass object1 = new TestClass();
+			object1.child = new TestClass();
+			kryo.getCompatibleFieldSerializerConfig().setSchemaRegistry(new FileSchemaRegistry(file));
+			kryo.getCompatibleFieldSerializerConfig().setChunkedEncoding(false);
+			kryo.register(TestClass.class, new CompatibleFieldSerializer(kryo, TestClass.class));
+			Output output = new Output(256);
+			kryo.writeObject(output, object1);
+			assertTrue(file.length() > 0);
+
+			Kryo reader = new Kryo();
+			reader.setReferences(false);
+			reader.getCompatibleFieldSerializerConfig().setSchemaRegistry(new FileSchemaRegistry(file));
+			reader.getCompatibleFieldSerializerConfig().setChunkedEncoding(false);
+			reader.register(TestClass.class, new CompatibleFieldSerializer(reader, TestClass.class));
+			assertEquals(object1, reader.readObject(new Input(output.toBytes()), TestClass.class));
+
+			// The ID is reused for the same schema and a new ID is stored for a changed schema.
+			FileSchemaRegistry registry = new FileSchemaRegistry(file);
+			String[] names = {"child", "moo", "moo2", "other", "text", "zzz"};
+			assertEquals(0, registry.getId(TestClass.class, names));
+			assertEquals(1, registry.getId(TestClass.class, new String[] {"moo"}));
+			assertTrue(Arrays.equals(new String[] {"moo"}, new FileSchemaRegistry(file).getFieldNames(1)));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testFileSchemaRegistryIncompleteSchema () throws IOException {
+		File file = File.createTempFile("kryo-schemas", ".bin");
+		file.delete();
+		try {
+			FileSchemaRegistry registry = new FileSchemaRegistry(file);
+			assertEquals(0, registry.getId(Integer.class, new String[] {"a"}));
+			long complete = file.length();
+			assertEquals(1, registry.getId(Long.class, new String[] {"b"}));
+
+			// A schema that was cut off part way is ignored and overwritten by the next schema.
+			truncate(file, file.length() - 3);
+			registry = new FileSchemaRegistry(file);
+			assertNull(registry.getFieldNames(1));
+			assertEquals(1, registry.getId(Short.class, new String[] {"c"}));
+			assertEquals(2, registry.getId(Byte.class, new String[] {"d"}));
+
+			// An ID that was cut off part way is also overwritten.
+			truncate(file, complete + 2);
+			registry = new FileSchemaRegistry(file);
+			assertEquals(1, registry.getId(Float.class, new String[] {"e"}));
+
+			registry = new FileSchemaRegistry(file);
+			assertTrue(Arrays.equals(new String[] {"a"}, registry.getFieldNames(0)));
+			assertTrue(Arrays.equals(new String[] {"e"}, registry.getFieldNames(1)));
+			assertNull(registry.getFieldNames(2));
+			assertEquals(2, registry.getId(Byte.class, new String[] {"d"}));
+			assertTrue(Arrays.equals(new String[] {"d"}, new FileSchemaRegistry(file).getFieldNames(2)));
+		} finally {
+			file.delete();
+		}
+	}
+
+	static private void truncate (File file, long length) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(length);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	public void testSchemaRegistryAdd () {
+		MapSchemaRegistry registry = new MapSchemaRegistry();
+		registry.add(1, "a", new String[] {"x"});
+		registry.add(1, "a", new String[] {"x"});
+		try {
+			registry.add(1, "b", new String[] {"x"});
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		// New IDs skip IDs that were added.
+		assertEquals(0, registry.getId(Integer.class, new String[] {"y"}));
+		assertEquals(2, registry.getId(Long.class, new String[] {"z"}));
+		assertTrue(Arrays.equals(new String[] {"x"}, registry.getFieldNames(1)));
+	}
+
+	public void testBinarySearchAddedField () {
+		ManyFields object1 = new ManyFields();
+		object1.f00 = 1;
+		object1.f32 = 32;
+
+		// 32 or more written names are matched to the fields with a binary search. The reader has more fields than were written.
+		CompatibleFieldSerializer serializer = new CompatibleFieldSerializer(kryo, ManyFields.class);
+		serializer.removeField("f10");
+		kryo.register(ManyFields.class, serializer);
+		Output output = new Output(1024);
+		kryo.writeClassAndObject(output, object1);
+
+		kryo.register(ManyFields.class, new CompatibleFieldSerializer(kryo, ManyFields.class));
+		ManyFields object2 = (ManyFields)kryo.readClassAndObject(new Input(output.toBytes()));
+		assertEquals(1, object2.f00);
+		assertEquals(32, object2.f32);
+	}
+
 	static public class TestClass {
 		public String text = "something";
 		public int moo = 120;
@@ -141,7 +365,17 @@ public class CompatibleFieldSerializerTest extends KryoTestCase {
 		}
 	}
 
+	static public class ManyFields {
+		public int f00, f01, f02, f03, f04, f05, f06, f07, f08, f09, f10;
+		public int f11, f12, f13, f14, f15, f16, f17, f18, f19, f20, f21;
+		public int f22, f23, f24, f25, f26, f27, f28, f29, f30, f31, f32;
+	}
+
 	static public class AnotherClass {
 		String value;
 	}
+
+	static public class ChangedClass {
+		int value;
+	}
 }
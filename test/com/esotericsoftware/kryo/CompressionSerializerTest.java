@@ -0,0 +1,144 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.esotericsoftware.kryo.io.CompressedInput;
+import com.esotericsoftware.kryo.io.CompressedOutput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.CompressionSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.IntSerializer;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.StringSerializer;
+import com.esotericsoftware.kryo.serializers.LZ4Codec;
+
+public class CompressionSerializerTest extends KryoTestCase {
+	private byte[] text (Random random, int length) {
+		String[] words = {"kryo ", "fast ", "serialization ", "compression ", "block ", "value ", "cache "};
+		StringBuilder buffer = new StringBuilder();
+		while (buffer.length() < length) {
+			buffer.append(words[random.nextInt(words.length)]);
+			if (random.nextInt(10) == 0) buffer.append(random.nextInt());
+		}
+		return buffer.substring(0, length).getBytes();
+	}
+
+	private int roundTrip (LZ4Codec codec, byte[] bytes) {
+		byte[] compressed = new byte[codec.maxCompressedLength(bytes.length) + 3];
+		int compressedLength = codec.compress(bytes, 0, bytes.length, compressed, 3);
+		assertTrue(compressedLength <= codec.maxCompressedLength(bytes.length));
+		byte[] result = new byte[bytes.length + 2];
+		codec.decompress(compressed, 3, compressedLength, result, 2, bytes.length);
+		assertTrue(Arrays.equals(bytes, Arrays.copyOfRange(result, 2, result.length)));
+		return compressedLength;
+	}
+
+	public void testCodec () {
+		LZ4Codec codec = new LZ4Codec();
+		Random random = new Random(3);
+		for (int length : new int[] {0, 1, 12, 13, 100, 1000, 70000, 300000}) {
+			byte[] bytes = text(random, length);
+			int compressedLength = roundTrip(codec, bytes);
+			if (length >= 1000) assertTrue(compressedLength < length / 2);
+
+			byte[] randoms = new byte[length];
+			random.nextBytes(randoms);
+			roundTrip(codec, randoms);
+
+			byte[] zeros = new byte[length];
+			compressedLength = roundTrip(codec, zeros);
+			if (length >= 1000) assertTrue(compressedLength < length / 50);
+		}
+	}
+
+	public void testMalformed () {
+		LZ4Codec codec = new LZ4Codec();
+		byte[] bytes = text(new Random(5), 1000);
+		byte[] compressed = new byte[codec.maxCompressedLength(bytes.length)];
+		int compressedLength = codec.compress(bytes, 0, bytes.length, compressed, 0);
+		try {
+			codec.decompress(compressed, 0, compressedLength - 1, new byte[bytes.length], 0, bytes.length);
+			fail();
+		} catch (KryoException expected) {
+		}
+		try {
+			codec.decompress(compressed, 0, compressedLength, new byte[bytes.length - 1], 0, bytes.length - 1);
+			fail();
+		} catch (KryoException expected) {
+		}
+	}
+
+	public void testSerializer () {
+		CompressionSerializer serializer = new CompressionSerializer(new StringSerializer(), new LZ4Codec());
+		kryo.register(String.class, serializer);
+		roundTrip(6, 6, "abc");
+
+		String value = new String(text(new Random(1), 5000));
+		Output output = new Output(1024, -1);
+		kryo.writeObject(output, value);
+		assertTrue(output.position() < 2500);
+		kryo.writeObject(output, "short");
+		output.writeInt(1234);
+		Input input = new Input(output.toBytes());
+		assertEquals(value, kryo.readObject(input, String.class));
+		assertEquals("short", kryo.readObject(input, String.class));
+		assertEquals(1234, input.readInt());
+
+		serializer.setThreshold(Integer.MAX_VALUE);
+		output.clear();
+		kryo.writeObject(output, value);
+		assertTrue(output.position() > 5000);
+		assertEquals(value, kryo.readObject(new Input(output.toBytes()), String.class));
+	}
+
+	public void testUnsafeStreams () {
+		// The value is serialized with an Output, so it must not be read with the unsafe input given to the serializer.
+		kryo.register(Integer.class, new CompressionSerializer(new IntSerializer(), new LZ4Codec()));
+		roundTrip(5, 5, 1234);
+	}
+
+	public void testStreams () {
+		Random random = new Random(9);
+		byte[] bytes = text(random, 200000);
+		ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+		CompressedOutput output = new CompressedOutput(outStream, new LZ4Codec(), 16384);
+		output.writeBytes(bytes);
+		output.writeString("end");
+		output.endBlocks();
+		output.writeInt(7);
+		output.writeBytes(new byte[10]);
+		output.endBlocks();
+		output.flush();
+		assertTrue(outStream.size() < bytes.length / 2);
+
+		CompressedInput input = new CompressedInput(new ByteArrayInputStream(outStream.toByteArray()), new LZ4Codec(), 1000);
+		assertTrue(Arrays.equals(bytes, input.readBytes(bytes.length)));
+		assertEquals("end", input.readString());
+		assertEquals(-1, input.read());
+		input.nextBlocks();
+		assertEquals(7, input.readInt());
+		input.nextBlocks();
+		assertEquals(-1, input.read());
+	}
+}
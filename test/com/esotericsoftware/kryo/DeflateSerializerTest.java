@@ -19,8 +19,13 @@
 
 package com.esotericsoftware.kryo;
 
+import java.util.Random;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.DefaultSerializers.StringSerializer;
 import com.esotericsoftware.kryo.serializers.DeflateSerializer;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
 
 /** @author Nathan Sweet <misc@n4te.com> */
 public class DeflateSerializerTest extends KryoTestCase {
@@ -43,6 +48,57 @@ public class DeflateSerializerTest extends KryoTestCase {
 		roundTrip(8, 8, message);
 	}
 
+	public void testReuse () {
+		DeflateSerializer serializer = new DeflateSerializer(new StringSerializer());
+		serializer.setBufferSize(256);
+		kryo.register(String.class, serializer);
+
+		Random random = new Random(1);
+		String[] values = new String[6];
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			for (int ii = 0; ii < 2000; ii++)
+				buffer.append((char)('a' + random.nextInt(8)));
+			values[i] = buffer.toString();
+		}
+
+		Output output = new Output(1024, -1);
+		for (int i = 0; i < values.length; i++) {
+			if (i == 3) serializer.setCompressionLevel(9);
+			if (i == 4) serializer.setBufferSize(8192);
+			kryo.writeObject(output, values[i]);
+		}
+		output.writeInt(1234);
+		Input input = new Input(output.toBytes());
+		for (int i = 0; i < values.length; i++)
+			assertEquals(values[i], kryo.readObject(input, String.class));
+		assertEquals(1234, input.readInt());
+	}
+
+	public void testNested () {
+		kryo.register(Node.class, new DeflateSerializer(new FieldSerializer(kryo, Node.class)));
+		Node node = null;
+		for (int i = 0; i < 5; i++) {
+			Node parent = new Node();
+			parent.value = i;
+			parent.next = node;
+			node = parent;
+		}
+		roundTrip(30, 30, node);
+		roundTrip(30, 30, node);
+	}
+
+	public static class Node {
+		public int value;
+		public Node next;
+
+		public boolean equals (Object obj) {
+			if (!(obj instanceof Node)) return false;
+			Node other = (Node)obj;
+			return value == other.value && (next == null ? other.next == null : next.equals(other.next));
+		}
+	}
+
 	public static class ServerPhysicsUpdate {
 		public int value;
 
@@ -8,12 +8,20 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.*;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
 import com.esotericsoftware.kryo.io.FastOutput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.esotericsoftware.kryo.serializers.FieldSerializer.CachedField;
+import com.esotericsoftware.kryo.serializers.TaggedFieldSerializer;
+import com.esotericsoftware.kryo.serializers.TaggedFieldSerializer.Tag;
 
 @RunWith(Parameterized.class)
 public class FieldSerializerGenericsTest {
@@ -61,6 +69,135 @@ public class FieldSerializerGenericsTest {
 		kryo.writeObject(new FastOutput(outputStream), genBar1);
 	}
 
+	@Test
+	public void testDifferentGenericsRoundTrip () {
+		Kryo kryo = new Kryo();
+		kryo.getFieldSerializerConfig().setOptimizedGenerics(optimizedGenerics);
+		Pairs pairs = new Pairs();
+		pairs.stringLong = new Pair<String, Long>("a", 1L);
+		pairs.integerString = new Pair<Integer, String>(2, "b");
+		pairs.stringLong2 = new Pair<String, Long>("c", 3L);
+
+		for (int i = 0; i < 2; i++) {
+			Output output = new Output(1024);
+			kryo.writeObject(output, pairs);
+			Pairs copy = kryo.readObject(new Input(output.toBytes()), Pairs.class);
+			assertEquals(pairs, copy);
+		}
+	}
+
+	@Test
+	public void testGenericsFieldsReused () {
+		if (!optimizedGenerics) return;
+		Kryo kryo = new Kryo();
+		kryo.getFieldSerializerConfig().setOptimizedGenerics(true);
+		FieldSerializer serializer = (FieldSerializer)kryo.getSerializer(Pair.class);
+
+		serializer.setGenerics(kryo, new Class[] {String.class, Long.class});
+		CachedField[] stringLong = serializer.getFields();
+		serializer.setGenerics(kryo, new Class[] {Integer.class, String.class});
+		CachedField[] integerString = serializer.getFields();
+		assertNotSame(stringLong, integerString);
+		serializer.setGenerics(kryo, new Class[] {String.class, Long.class});
+		assertSame(stringLong, serializer.getFields());
+		serializer.setGenerics(kryo, new Class[] {Integer.class, String.class});
+		assertSame(integerString, serializer.getFields());
+
+		// Changing the configuration discards the cached fields.
+		serializer.setFixedFieldTypes(true);
+		serializer.setGenerics(kryo, new Class[] {Integer.class, String.class});
+		assertNotSame(integerString, serializer.getFields());
+	}
+
+	@Test
+	public void testTaggedGenericsFieldsReused () {
+		if (!optimizedGenerics) return;
+		Kryo kryo = new Kryo();
+		kryo.getFieldSerializerConfig().setOptimizedGenerics(true);
+		TaggedFieldSerializer serializer = new TaggedFieldSerializer(kryo, TaggedPair.class);
+		kryo.register(TaggedPair.class, serializer);
+
+		// Removing the untagged field for each set of generics doesn't discard the fields cached for the others.
+		serializer.setGenerics(kryo, new Class[] {String.class, Long.class});
+		CachedField[] stringLong = serializer.getFields();
+		assertEquals(2, stringLong.length);
+		serializer.setGenerics(kryo, new Class[] {Integer.class, String.class});
+		CachedField[] integerString = serializer.getFields();
+		serializer.setGenerics(kryo, new Class[] {String.class, Long.class});
+		assertSame(stringLong, serializer.getFields());
+		serializer.setGenerics(kryo, new Class[] {Integer.class, String.class});
+		assertSame(integerString, serializer.getFields());
+
+		serializer.removeField("second");
+		serializer.setGenerics(kryo, new Class[] {String.class, Long.class});
+		assertNotSame(stringLong, serializer.getFields());
+		assertEquals(1, serializer.getFields().length);
+	}
+
+	@Test
+	public void testGenericsFieldsKeptWhenRebuildRemovesFields () {
+		if (!optimizedGenerics) return;
+		Kryo kryo = new Kryo();
+		kryo.getFieldSerializerConfig().setOptimizedGenerics(true);
+		// Removes a field only for some generics, so the removal happens during a minor rebuild.
+		FieldSerializer serializer = new FieldSerializer(kryo, Pair.class) {
+			protected void initializeCachedFields () {
+				Class[] generics = getGenerics();
+				if (generics != null && generics[1] == Long.class) removeField("second");
+			}
+		};
+		kryo.register(Pair.class, serializer);
+
+		serializer.setGenerics(kryo, new Class[] {Integer.class, String.class});
+		CachedField[] integerString = serializer.getFields();
+		assertEquals(2, integerString.length);
+		serializer.setGenerics(kryo, new Class[] {String.class, Long.class});
+		CachedField[] stringLong = serializer.getFields();
+		assertEquals(1, stringLong.length);
+		serializer.setGenerics(kryo, new Class[] {Integer.class, String.class});
+		assertSame(integerString, serializer.getFields());
+		serializer.setGenerics(kryo, new Class[] {String.class, Long.class});
+		assertSame(stringLong, serializer.getFields());
+	}
+
+	static public class TaggedPair<A, B> {
+		@Tag(0) public A first;
+		@Tag(1) public B second;
+		public A untagged;
+	}
+
+	static public class Pair<A, B> {
+		public A first;
+		public B second;
+
+		public Pair () {
+		}
+
+		public Pair (A first, B second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		public boolean equals (Object obj) {
+			if (!(obj instanceof Pair)) return false;
+			Pair other = (Pair)obj;
+			return first.equals(other.first) && second.equals(other.second);
+		}
+	}
+
+	static public class Pairs {
+		public Pair<String, Long> stringLong;
+		public Pair<Integer, String> integerString;
+		public Pair<String, Long> stringLong2;
+
+		public boolean equals (Object obj) {
+			if (!(obj instanceof Pairs)) return false;
+			Pairs other = (Pairs)obj;
+			return stringLong.equals(other.stringLong) && integerString.equals(other.integerString)
+				&& stringLong2.equals(other.stringLong2);
+		}
+	}
+
 	static class GenericBarContainer<T extends Bar> {
 		BarContainer barContainer;
 
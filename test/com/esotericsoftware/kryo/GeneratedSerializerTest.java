@@ -0,0 +1,173 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import java.util.Arrays;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.esotericsoftware.kryo.serializers.GeneratedSerializer;
+import com.esotericsoftware.kryo.serializers.GeneratedSerializerFactory;
+
+public class GeneratedSerializerTest extends KryoTestCase {
+	{
+		supportsCopy = true;
+	}
+
+	protected void setUp () throws Exception {
+		super.setUp();
+		kryo.setDefaultSerializer(new GeneratedSerializerFactory());
+	}
+
+	public void testGenerated () {
+		kryo.register(AllTypes.class);
+		kryo.register(Inner.class);
+		assertTrue(kryo.getSerializer(AllTypes.class) instanceof GeneratedSerializer);
+
+		roundTrip(2, 5, new Inner());
+		AllTypes object = new AllTypes();
+		object.setValues();
+		AllTypes result = roundTrip(48, 61, object);
+		assertEquals(0, result.transientValue);
+	}
+
+	public void testNulls () {
+		kryo.register(AllTypes.class);
+		kryo.register(Inner.class);
+		roundTrip(27, 37, new AllTypes());
+	}
+
+	public void testSameBytesAsFieldSerializer () {
+		kryo.register(AllTypes.class);
+		kryo.register(Inner.class);
+		AllTypes object = new AllTypes();
+		object.setValues();
+		byte[] generated = write(object);
+
+		Kryo fieldKryo = new Kryo();
+		fieldKryo.setReferences(false);
+		fieldKryo.register(AllTypes.class);
+		fieldKryo.register(Inner.class);
+		assertEquals(FieldSerializer.class, fieldKryo.getSerializer(AllTypes.class).getClass());
+		Output output = new Output(256);
+		fieldKryo.writeObject(output, object);
+		assertTrue(Arrays.equals(output.toBytes(), generated));
+	}
+
+	public void testTransient () {
+		kryo.getFieldSerializerConfig().setSerializeTransient(true);
+		kryo.register(AllTypes.class);
+		kryo.register(Inner.class);
+		AllTypes object = new AllTypes();
+		object.setValues();
+		AllTypes result = roundTrip(49, 65, object);
+		assertEquals(object.transientValue, result.transientValue);
+	}
+
+	public void testReferences () {
+		kryo.setReferences(true);
+		kryo.register(AllTypes.class);
+		kryo.register(Inner.class);
+		AllTypes object = new AllTypes();
+		object.setValues();
+		object.self = object;
+		object.innerCopy = object.inner;
+		Output output = new Output(256);
+		kryo.writeObject(output, object);
+		AllTypes result = kryo.readObject(new Input(output.toBytes()), AllTypes.class);
+		assertSame(result, result.self);
+		assertSame(result.inner, result.innerCopy);
+		assertEquals(object.inner.value, result.inner.value);
+	}
+
+	public void testFallback () {
+		kryo.getFieldSerializerConfig().setOptimizedGenerics(true);
+		kryo.register(Holder.class);
+		assertEquals(FieldSerializer.class, kryo.getSerializer(Holder.class).getClass());
+	}
+
+	private byte[] write (Object object) {
+		Output output = new Output(256);
+		kryo.writeObject(output, object);
+		return output.toBytes();
+	}
+
+	static public class AllTypes {
+		private int intValue;
+		long longValue;
+		float floatValue;
+		double doubleValue;
+		short shortValue;
+		byte byteValue;
+		boolean booleanValue;
+		char charValue;
+		Integer integerValue;
+		Long longWrapper;
+		String string;
+		Inner inner, innerCopy;
+		AllTypes self;
+		transient int transientValue;
+
+		void setValues () {
+			intValue = -1234567;
+			longValue = 123456789012345L;
+			floatValue = 1.5f;
+			doubleValue = -2.25;
+			shortValue = -300;
+			byteValue = -7;
+			booleanValue = true;
+			charValue = 'k';
+			integerValue = 42;
+			longWrapper = -42L;
+			string = "generated";
+			inner = new Inner();
+			inner.value = 99;
+			transientValue = 13;
+		}
+
+		public boolean equals (Object obj) {
+			if (this == obj) return true;
+			if (obj == null || getClass() != obj.getClass()) return false;
+			AllTypes other = (AllTypes)obj;
+			return intValue == other.intValue && longValue == other.longValue && floatValue == other.floatValue
+				&& doubleValue == other.doubleValue && shortValue == other.shortValue && byteValue == other.byteValue
+				&& booleanValue == other.booleanValue && charValue == other.charValue && equal(integerValue, other.integerValue)
+				&& equal(longWrapper, other.longWrapper) && equal(string, other.string) && equal(inner, other.inner)
+				&& equal(innerCopy, other.innerCopy);
+		}
+
+		static private boolean equal (Object a, Object b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
+	static public class Inner {
+		int value;
+
+		public boolean equals (Object obj) {
+			return obj instanceof Inner && ((Inner)obj).value == value;
+		}
+	}
+
+	static public class Holder<T> {
+		T value;
+	}
+}
@@ -818,6 +818,36 @@ public class InputOutputTest extends KryoTestCase {
 		input.readBytes(toRead);
 	}
 
+	public void testVarIntBuffers () throws Exception {
+		for (int value : UnsafeInputOutputTest.varIntValues()) {
+			for (int capacity = 5; capacity <= 12; capacity++) {
+				// Values that don't fit in the remaining buffer are written after the buffer is flushed.
+				ByteArrayOutputStream os = new ByteArrayOutputStream();
+				Output write = new Output(os, capacity);
+				write.writeVarInt(value, false);
+				write.writeVarInt(value, true);
+				write.flush();
+				Input read = new Input(new ByteArrayInputStream(os.toByteArray()), capacity);
+				assertEquals(value, read.readVarInt(false));
+				assertEquals(value, read.readVarInt(true));
+				assertTrue(read.eof());
+			}
+		}
+		for (long value : UnsafeInputOutputTest.varLongValues()) {
+			for (int capacity = 9; capacity <= 20; capacity++) {
+				ByteArrayOutputStream os = new ByteArrayOutputStream();
+				Output write = new Output(os, capacity);
+				write.writeVarLong(value, false);
+				write.writeVarLong(value, true);
+				write.flush();
+				Input read = new Input(new ByteArrayInputStream(os.toByteArray()), capacity);
+				assertEquals(value, read.readVarLong(false));
+				assertEquals(value, read.readVarLong(true));
+				assertTrue(read.eof());
+			}
+		}
+	}
+
 	public void testVerySmallBuffers () throws Exception {
 		Output out1 = new Output(4, -1);
 		Output out2 = new ByteBufferOutput(4, -1);
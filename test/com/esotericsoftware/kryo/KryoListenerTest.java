@@ -0,0 +1,84 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import java.util.ArrayList;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.KryoStatistics;
+import com.esotericsoftware.kryo.util.KryoStatistics.ClassStatistics;
+
+public class KryoListenerTest extends KryoTestCase {
+	public void testStatistics () {
+		kryo.setRegistrationRequired(false);
+		kryo.setReferences(true);
+		KryoStatistics statistics = new KryoStatistics();
+		kryo.setListener(statistics);
+
+		Node shared = new Node();
+		shared.value = "shared";
+		ArrayList list = new ArrayList();
+		list.add(shared);
+		list.add(shared);
+		list.add(new Node());
+
+		Output output = new Output(1024);
+		kryo.writeClassAndObject(output, list);
+		int total = output.position();
+
+		ClassStatistics listStatistics = statistics.getStatistics(ArrayList.class);
+		assertEquals(1, listStatistics.getWriteCount());
+		assertEquals(1, listStatistics.getClassNamesWritten());
+		assertTrue(listStatistics.getWriteBytes() > 0 && listStatistics.getWriteBytes() < total);
+		ClassStatistics nodeStatistics = statistics.getStatistics(Node.class);
+		assertEquals(2, nodeStatistics.getWriteCount());
+		assertEquals(1, nodeStatistics.getReferencesWritten());
+		assertEquals(1, nodeStatistics.getClassNamesWritten());
+		assertEquals(1, statistics.getStatistics(String.class).getWriteCount());
+
+		Object copy = kryo.readClassAndObject(new Input(output.getBuffer(), 0, total));
+		assertEquals(list, copy);
+		assertEquals(1, listStatistics.getReadCount());
+		assertEquals(listStatistics.getWriteBytes(), listStatistics.getReadBytes());
+		assertEquals(1, listStatistics.getClassNamesRead());
+		assertEquals(2, nodeStatistics.getReadCount());
+		assertEquals(1, nodeStatistics.getReferencesRead());
+		assertEquals(nodeStatistics.getWriteBytes(), nodeStatistics.getReadBytes());
+
+		assertTrue(statistics.toString().startsWith("java.util.ArrayList: "));
+		statistics.clear();
+		assertNull(statistics.getStatistics(ArrayList.class));
+
+		kryo.setListener(null);
+		kryo.writeClassAndObject(new Output(1024), list);
+		assertTrue(statistics.getStatistics().isEmpty());
+	}
+
+	static public class Node {
+		public String value;
+
+		public boolean equals (Object obj) {
+			if (!(obj instanceof Node)) return false;
+			Node other = (Node)obj;
+			return value == null ? other.value == null : value.equals(other.value);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.KryoObjectReader;
+import com.esotericsoftware.kryo.io.KryoObjectReader.PrefetchIterator;
+import com.esotericsoftware.kryo.io.KryoObjectWriter;
+import com.esotericsoftware.kryo.io.Output;
+
+public class KryoObjectStreamTest extends KryoTestCase {
+	private byte[] write (int count, int batchSize, final int[] flushes) {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream() {
+			public void flush () throws IOException {
+				flushes[0]++;
+			}
+		};
+		KryoObjectWriter writer = new KryoObjectWriter(kryo, new Output(stream, 1024));
+		writer.setBatchSize(batchSize);
+		for (int i = 0; i < count; i++)
+			writer.write(i % 5 == 0 ? null : "value" + i);
+		assertEquals(count, writer.getCount());
+		writer.close();
+		return stream.toByteArray();
+	}
+
+	private void assertValues (Iterator iterator, int count) {
+		for (int i = 0; i < count; i++) {
+			assertTrue(iterator.hasNext());
+			assertEquals(i % 5 == 0 ? null : "value" + i, iterator.next());
+		}
+		assertFalse(iterator.hasNext());
+		try {
+			iterator.next();
+			fail();
+		} catch (NoSuchElementException expected) {
+		}
+	}
+
+	public void testReadWrite () {
+		int[] flushes = new int[1];
+		byte[] bytes = write(1000, 100, flushes);
+		// 10 batches and the close.
+		assertEquals(11, flushes[0]);
+
+		assertValues(new KryoObjectReader(kryo, new Input(new ByteArrayInputStream(bytes), 64)), 1000);
+		assertValues(new KryoObjectReader(kryo, new Input(bytes)), 1000);
+		assertValues(new KryoObjectReader(kryo, new ByteBufferInput(bytes)), 1000);
+
+		int count = 0;
+		for (Object value : new KryoObjectReader(kryo, new Input(bytes)))
+			count++;
+		assertEquals(1000, count);
+
+		assertFalse(new KryoObjectReader(kryo, new Input(new byte[0])).hasNext());
+	}
+
+	public void testType () {
+		kryo.register(ArrayList.class);
+		Output output = new Output(1024, -1);
+		KryoObjectWriter<ArrayList> writer = new KryoObjectWriter(kryo, output, ArrayList.class);
+		ArrayList list = new ArrayList();
+		list.add("a");
+		writer.write(list);
+		writer.write(null);
+		writer.write(list);
+		KryoObjectReader<ArrayList> reader = new KryoObjectReader(kryo, new Input(output.toBytes()), ArrayList.class);
+		assertEquals(list, reader.next());
+		assertNull(reader.next());
+		assertEquals(list, reader.next());
+		assertFalse(reader.hasNext());
+	}
+
+	public void testPrefetch () {
+		byte[] bytes = write(1000, 64, new int[1]);
+		PrefetchIterator iterator = new KryoObjectReader(kryo, new Input(new ByteArrayInputStream(bytes), 64)).prefetch(16);
+		assertValues(iterator, 1000);
+		iterator.close();
+
+		// Closing early stops the background thread between objects, so the input can be used again.
+		Input input = new Input(bytes);
+		iterator = new KryoObjectReader(kryo, input).prefetch(2);
+		assertEquals(null, iterator.next());
+		iterator.close();
+		assertFalse(iterator.hasNext());
+		ArrayList remaining = new ArrayList();
+		for (Object value : new KryoObjectReader(kryo, input))
+			remaining.add(value);
+		for (int i = 1000 - remaining.size(), ii = 0; i < 1000; i++, ii++)
+			assertEquals(i % 5 == 0 ? null : "value" + i, remaining.get(ii));
+	}
+
+	public void testPrefetchError () {
+		byte[] bytes = write(10, 64, new int[1]);
+		byte[] truncated = new byte[bytes.length - 2];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		PrefetchIterator iterator = new KryoObjectReader(kryo, new Input(truncated)).prefetch(4);
+		for (int i = 0; i < 9; i++)
+			iterator.next();
+		try {
+			iterator.hasNext();
+			fail();
+		} catch (KryoException expected) {
+		}
+	}
+}
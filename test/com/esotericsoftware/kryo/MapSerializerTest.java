@@ -22,15 +22,18 @@ package com.esotericsoftware.kryo;
 import java.io.ByteArrayInputStream;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers.ConcurrentSkipListMapSerializer;
 import com.esotericsoftware.kryo.serializers.MapSerializer;
 
 import junit.framework.Assert;
@@ -62,6 +65,39 @@ public class MapSerializerTest extends KryoTestCase {
 		roundTrip(14, 17, map);
 	}
 
+	public void testCreateWithSize () {
+		final int[] sizes = {-1};
+		MapSerializer serializer = new MapSerializer() {
+			protected Map create (Kryo kryo, Input input, Class<Map> type, int size) {
+				sizes[0] = size;
+				return super.create(kryo, input, type, size);
+			}
+		};
+		kryo.register(HashMap.class, serializer);
+		kryo.register(LinkedHashMap.class, serializer);
+		kryo.register(IdentityHashMap.class, serializer);
+		kryo.register(ConcurrentHashMap.class, serializer);
+		HashMap map = new HashMap();
+		for (int i = 0; i < 100; i++)
+			map.put("key" + i, i);
+		Output output = new Output(4096);
+		kryo.writeObject(output, map);
+		assertEquals(map, kryo.readObject(new Input(output.toBytes()), HashMap.class));
+		assertEquals(100, sizes[0]);
+		LinkedHashMap linked = new LinkedHashMap();
+		linked.put("a", 1);
+		linked.put("b", 2);
+		roundTrip(12, 21, linked);
+		assertEquals(2, sizes[0]);
+		IdentityHashMap identity = new IdentityHashMap();
+		identity.put(1, 2);
+		roundTrip(6, 15, identity);
+		assertEquals(1, sizes[0]);
+		ConcurrentHashMap concurrent = new ConcurrentHashMap(linked);
+		roundTrip(12, 21, concurrent);
+		assertEquals(2, sizes[0]);
+	}
+
 	public void testEmptyHashMap () {
 		execute(new HashMap<Object, Object>(), 0);
 	}
@@ -142,6 +178,84 @@ public class MapSerializerTest extends KryoTestCase {
 		roundTrip(24, 38, map);
 	}
 
+	public void testTreeMapSortedRead () {
+		kryo.register(TreeMap.class);
+		kryo.register(DescendingComparator.class);
+		TreeMap map = new TreeMap();
+		for (int i = 0; i < 1000; i++)
+			map.put(i, String.valueOf(i));
+		TreeMap read = writeAndRead(map);
+		assertEquals(map, read);
+		assertEquals(TreeMap.class, read.getClass());
+		assertNull(read.comparator());
+		read.put(-1, "-1");
+		assertEquals(-1, read.firstKey());
+
+		// The comparator used for writing sorts descending, the one read sorts ascending.
+		DescendingComparator comparator = new DescendingComparator();
+		comparator.descending = true;
+		map = new TreeMap(comparator);
+		for (int i = 0; i < 100; i++)
+			map.put(i, String.valueOf(i));
+		read = writeAndRead(map);
+		assertEquals(map, read);
+		assertEquals(0, read.firstKey());
+		assertEquals(99, read.lastKey());
+
+		kryo.setReferences(true);
+		map = new TreeMap();
+		map.put("a", "x");
+		map.put("b", "x");
+		map.put("c", map);
+		read = writeAndRead(map);
+		assertEquals(3, read.size());
+		assertSame(read, read.get("c"));
+		assertSame(read.get("a"), read.get("b"));
+	}
+
+	public void testConcurrentSkipListMap () {
+		kryo.register(ConcurrentSkipListMap.class, new ConcurrentSkipListMapSerializer());
+		kryo.register(DescendingComparator.class);
+		ConcurrentSkipListMap map = new ConcurrentSkipListMap();
+		map.put("1", 1);
+		map.put("2", 2);
+		roundTrip(13, 22, map);
+
+		DescendingComparator comparator = new DescendingComparator();
+		comparator.descending = true;
+		map = new ConcurrentSkipListMap(comparator);
+		for (int i = 0; i < 100; i++)
+			map.put(i, i);
+		ConcurrentSkipListMap read = writeAndRead(map);
+		assertEquals(map, read);
+		assertEquals(DescendingComparator.class, read.comparator().getClass());
+		assertEquals(0, read.firstKey());
+
+		comparator.descending = false;
+		map = new ConcurrentSkipListMap(comparator);
+		for (int i = 0; i < 100; i++)
+			map.put(i, i);
+		read = writeAndRead(map);
+		assertEquals(map, read);
+		assertEquals(0, read.firstKey());
+		read.put(-1, -1);
+		assertEquals(-1, read.firstKey());
+
+		kryo.setReferences(true);
+		map = new ConcurrentSkipListMap();
+		map.put("a", "x");
+		map.put("b", map);
+		read = writeAndRead(map);
+		assertEquals(2, read.size());
+		assertSame(read, read.get("b"));
+	}
+
+	private <T> T writeAndRead (T object) {
+		Output output = new Output(1024, -1);
+		kryo.writeClassAndObject(output, object);
+		return (T)kryo.readClassAndObject(new Input(output.toBytes()));
+	}
+
 	public void testTreeMapWithReferences () {
 		kryo.setReferences(true);
 		kryo.register(TreeMap.class);
@@ -205,6 +319,14 @@ public class MapSerializerTest extends KryoTestCase {
 		}
 	}
 
+	static public class DescendingComparator implements Comparator<Comparable> {
+		public transient boolean descending;
+
+		public int compare (Comparable o1, Comparable o2) {
+			return descending ? o2.compareTo(o1) : o1.compareTo(o2);
+		}
+	}
+
 	static public class KeyThatIsntComparable {
 		public String value;
 
@@ -0,0 +1,145 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import com.esotericsoftware.kryo.io.MappedFileInput;
+import com.esotericsoftware.kryo.io.MappedFileOutput;
+import com.esotericsoftware.kryo.io.Output;
+
+public class MappedFileInputOutputTest extends KryoTestCase {
+	private File file;
+
+	protected void setUp () throws Exception {
+		super.setUp();
+		file = File.createTempFile("mapped", ".bin");
+		file.deleteOnExit();
+	}
+
+	protected void tearDown () throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	private ArrayList<String> list (int index) {
+		ArrayList<String> list = new ArrayList();
+		for (int i = 0; i < 10; i++)
+			list.add("value" + index + "-" + i);
+		return list;
+	}
+
+	public void testRegions () {
+		kryo.register(ArrayList.class);
+		// Small regions so that many regions are mapped and values cross region boundaries.
+		MappedFileOutput output = new MappedFileOutput(file, 100);
+		Output expected = new Output(1024, -1);
+		long[] positions = new long[200];
+		for (int i = 0; i < 200; i++) {
+			positions[i] = output.total();
+			output.writeInt(i);
+			output.writeString("string" + i);
+			kryo.writeObject(output, list(i));
+			expected.writeInt(i);
+			expected.writeString("string" + i);
+			kryo.writeObject(expected, list(i));
+		}
+		output.writeBytes(new byte[250]);
+		expected.writeBytes(new byte[250]);
+		assertEquals(expected.total(), output.total());
+		output.close();
+		assertEquals(expected.total(), file.length());
+
+		MappedFileInput input = new MappedFileInput(file, 100);
+		assertEquals(file.length(), input.length());
+		for (int i = 0; i < 200; i++) {
+			assertEquals(positions[i], input.total());
+			assertEquals(i, input.readInt());
+			assertEquals("string" + i, input.readString());
+			assertEquals(list(i), kryo.readObject(input, ArrayList.class));
+		}
+		assertEquals(new byte[250], input.readBytes(250));
+		assertTrue(input.eof());
+		assertFalse(input.canReadInt());
+		assertEquals(-1, input.read());
+
+		// Random access.
+		for (int i = 199; i >= 0; i -= 7) {
+			input.seek(positions[i]);
+			assertEquals(i, input.readInt());
+			assertEquals("string" + i, input.readString());
+		}
+		input.seek(positions[150]);
+		input.skip(4L);
+		assertEquals("string150", input.readString());
+		input.close();
+	}
+
+	public void testSeekOutput () throws Exception {
+		MappedFileOutput output = new MappedFileOutput(file, 64);
+		for (int i = 0; i < 100; i++)
+			output.writeLong(i);
+		output.seek(8 * 50);
+		output.writeLong(-50);
+		output.seek(8);
+		output.writeLong(-1);
+		output.close();
+		assertEquals(800, file.length());
+
+		MappedFileInput input = new MappedFileInput(file, 64);
+		for (int i = 0; i < 100; i++)
+			assertEquals(i == 1 || i == 50 ? -i : i, input.readLong());
+		input.close();
+	}
+
+	public void testAppend () throws Exception {
+		MappedFileOutput output = new MappedFileOutput(file, 1000);
+		output.writeString("first");
+		output.close();
+		long length = file.length();
+
+		output = new MappedFileOutput(new RandomAccessFile(file, "rw").getChannel(), length, 1000);
+		assertEquals(length, output.total());
+		output.writeString("second");
+		output.close();
+
+		MappedFileInput input = new MappedFileInput(file);
+		assertEquals("first", input.readString());
+		assertEquals("second", input.readString());
+		assertTrue(input.eof());
+		input.close();
+	}
+
+	public void testUnderflow () {
+		MappedFileOutput output = new MappedFileOutput(file, 16);
+		output.writeInt(1);
+		output.close();
+		MappedFileInput input = new MappedFileInput(file, 16);
+		assertEquals(1, input.readInt());
+		try {
+			input.readInt();
+			fail();
+		} catch (KryoException expected) {
+		}
+		input.close();
+	}
+}
@@ -0,0 +1,137 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+
+import com.esotericsoftware.kryo.io.RecordFileReader;
+import com.esotericsoftware.kryo.io.RecordFileWriter;
+
+public class RecordFileTest extends KryoTestCase {
+	private File file;
+
+	protected void setUp () throws Exception {
+		super.setUp();
+		kryo.register(ArrayList.class);
+		file = File.createTempFile("records", ".bin");
+		file.deleteOnExit();
+	}
+
+	protected void tearDown () throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	public void testRecords () {
+		RecordFileWriter writer = new RecordFileWriter(kryo, file);
+		for (int i = 0; i < 1000; i++) {
+			ArrayList<String> list = new ArrayList();
+			for (int ii = 0; ii < i % 10; ii++)
+				list.add("value" + i);
+			assertEquals(i, writer.write(i % 3 == 0 ? "key" + i : null, list));
+		}
+		assertEquals(1001, writer.write(null) + 1);
+		writer.close();
+
+		RecordFileReader reader = new RecordFileReader(kryo, file);
+		assertEquals(1001, reader.size());
+		assertNull(reader.read(1000));
+		for (int i = 999; i >= 0; i -= 13) {
+			ArrayList<String> list = (ArrayList)reader.read(i);
+			assertEquals(i % 10, list.size());
+			if (list.size() > 0) assertEquals("value" + i, list.get(0));
+			assertEquals(i % 3 == 0 ? "key" + i : null, reader.getKey(i));
+		}
+		assertEquals(303, reader.indexOf("key303"));
+		assertEquals(-1, reader.indexOf("key304"));
+		assertEquals("value303", ((ArrayList)reader.read("key303")).get(0));
+		assertTrue(reader.getOffset(1) > reader.getOffset(0));
+		reader.close();
+	}
+
+	public void testReferencesDoNotCrossRecords () {
+		kryo.setReferences(true);
+		ArrayList<String> shared = new ArrayList();
+		shared.add("shared");
+		RecordFileWriter writer = new RecordFileWriter(kryo, file);
+		writer.write(shared);
+		writer.write(shared);
+		writer.close();
+
+		// With references crossing records, the second record could only be read after the first.
+		RecordFileReader reader = new RecordFileReader(kryo, file);
+		assertEquals(shared, reader.read(1));
+		assertEquals(shared, reader.read(0));
+		reader.close();
+	}
+
+	public void testDuplicateKey () {
+		RecordFileWriter writer = new RecordFileWriter(kryo, file);
+		writer.write("a", null);
+		try {
+			writer.write("a", null);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		writer.close();
+	}
+
+	public void testFailedWrite () {
+		RecordFileWriter writer = new RecordFileWriter(kryo, file);
+		writer.write("a", "first");
+		ArrayList unregistered = new ArrayList();
+		unregistered.add("value");
+		unregistered.add(new Object());
+		try {
+			writer.write("b", unregistered);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		assertEquals(1, writer.size());
+		assertEquals(1, writer.write("b", "second"));
+		assertEquals(2, writer.write("c", "third"));
+		writer.close();
+
+		RecordFileReader reader = new RecordFileReader(kryo, file);
+		assertEquals(3, reader.size());
+		assertEquals("first", reader.read("a"));
+		assertEquals("second", reader.read("b"));
+		assertEquals("third", reader.read(2));
+		assertEquals("c", reader.getKey(2));
+		reader.close();
+	}
+
+	public void testTruncated () throws Exception {
+		RecordFileWriter writer = new RecordFileWriter(kryo, file);
+		for (int i = 0; i < 10; i++)
+			writer.write(new ArrayList());
+		writer.close();
+		FileOutputStream stream = new FileOutputStream(file, true);
+		stream.getChannel().truncate(file.length() - 1);
+		stream.close();
+		try {
+			new RecordFileReader(kryo, file);
+			fail();
+		} catch (KryoException expected) {
+		}
+	}
+}
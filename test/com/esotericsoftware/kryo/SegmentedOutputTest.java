@@ -0,0 +1,180 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Random;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.io.SegmentedOutput;
+
+public class SegmentedOutputTest extends KryoTestCase {
+	private byte[] writeValues (Output output) {
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; i++) {
+			output.writeInt(random.nextInt());
+			output.writeVarLong(random.nextLong(), false);
+			output.writeString("ascii" + i);
+			output.writeAscii("more ascii" + i);
+			output.writeString("utf8 \u1234\u00e9 " + i);
+			output.writeDouble(random.nextDouble());
+		}
+		byte[] bytes = new byte[1000];
+		random.nextBytes(bytes);
+		output.writeBytes(bytes);
+		return bytes;
+	}
+
+	private void readValues (Input input, byte[] bytes) {
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(random.nextInt(), input.readInt());
+			assertEquals(random.nextLong(), input.readVarLong(false));
+			assertEquals("ascii" + i, input.readString());
+			assertEquals("more ascii" + i, input.readString());
+			assertEquals("utf8 \u1234\u00e9 " + i, input.readString());
+			assertEquals(random.nextDouble(), input.readDouble());
+		}
+		assertEquals(bytes, input.readBytes(bytes.length));
+	}
+
+	public void testSegments () {
+		SegmentedOutput output = new SegmentedOutput(37);
+		byte[] bytes = writeValues(output);
+		Output expected = new Output(1024, -1);
+		writeValues(expected);
+
+		assertEquals(expected.total(), output.total());
+		assertTrue(output.getSegmentCount() > 1);
+		assertEquals(expected.toBytes(), output.toBytes());
+		readValues(new Input(output.toBytes()), bytes);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		output.writeTo(stream);
+		assertEquals(expected.toBytes(), stream.toByteArray());
+
+		ByteBuffer[] buffers = output.toByteBuffers();
+		assertEquals(output.getSegmentCount(), buffers.length);
+		long total = 0;
+		for (ByteBuffer buffer : buffers)
+			total += buffer.remaining();
+		assertEquals(output.total(), total);
+	}
+
+	public void testLargeWrite () {
+		SegmentedOutput output = new SegmentedOutput(16);
+		output.writeByte(1);
+		byte[] bytes = new byte[100];
+		new Random().nextBytes(bytes);
+		output.writeBytes(bytes);
+		output.writeLong(123);
+		Input input = new Input(output.toBytes());
+		assertEquals(1, input.readByte());
+		assertEquals(bytes, input.readBytes(100));
+		assertEquals(123, input.readLong());
+	}
+
+	public void testWriteBytesFirst () {
+		SegmentedOutput output = new SegmentedOutput(16);
+		byte[] bytes = new byte[100];
+		new Random().nextBytes(bytes);
+		output.writeBytes(bytes);
+		assertEquals(bytes, output.toBytes());
+
+		output.close();
+		assertEquals(0, output.total());
+		output.writeBytes(bytes, 0, 10);
+		output.writeChars(new char[] {'a', 'b'});
+		Input input = new Input(output.toBytes());
+		byte[] start = new byte[10];
+		System.arraycopy(bytes, 0, start, 0, 10);
+		assertEquals(start, input.readBytes(10));
+		assertEquals(new char[] {'a', 'b'}, input.readChars(2));
+
+		output.close();
+		output.writeString("utf8 \u1234\u00e9");
+		assertEquals("utf8 \u1234\u00e9", new Input(output.toBytes()).readString());
+	}
+
+	public void testChannels () throws Exception {
+		SegmentedOutput output = new SegmentedOutput(64);
+		byte[] bytes = writeValues(output);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		assertEquals(output.total(), output.writeTo(Channels.newChannel(stream)));
+		readValues(new Input(stream.toByteArray()), bytes);
+
+		File file = File.createTempFile("segmented", ".bin");
+		file.deleteOnExit();
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			assertEquals(output.total(), output.writeTo(channel));
+			assertEquals(output.total(), channel.size());
+			byte[] written = new byte[(int)channel.size()];
+			randomAccessFile.seek(0);
+			randomAccessFile.readFully(written);
+			readValues(new Input(written), bytes);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	public void testClearAndPooling () {
+		final ArrayList<byte[]> free = new ArrayList();
+		SegmentedOutput output = new SegmentedOutput(32) {
+			protected byte[] newSegment (int size) {
+				if (size == getSegmentSize() && !free.isEmpty()) return free.remove(free.size() - 1);
+				return super.newSegment(size);
+			}
+
+			protected void freeSegment (byte[] segment) {
+				free.add(segment);
+			}
+		};
+		byte[] bytes = writeValues(output);
+		int segments = output.getSegmentCount();
+		output.clear();
+		assertEquals(0, output.total());
+		assertEquals(segments - 1, free.size());
+
+		writeValues(output);
+		readValues(new Input(output.toBytes()), bytes);
+		output.close();
+		assertEquals(segments, free.size());
+	}
+
+	public void testKryo () {
+		kryo.register(ArrayList.class);
+		ArrayList<String> list = new ArrayList();
+		for (int i = 0; i < 10000; i++)
+			list.add("value" + i);
+		SegmentedOutput output = new SegmentedOutput(1024);
+		kryo.writeObject(output, list);
+		assertEquals(list, kryo.readObject(new Input(output.toBytes()), ArrayList.class));
+	}
+}
@@ -34,6 +34,8 @@ import java.util.List;
 import org.objenesis.strategy.StdInstantiatorStrategy;
 
 import com.esotericsoftware.kryo.SerializationCompatTestData.TestData;
+import com.esotericsoftware.kryo.SerializationCompatTestData.TestDataCollectionWrappers;
+import com.esotericsoftware.kryo.SerializationCompatTestData.TestDataConcurrentCollections;
 import com.esotericsoftware.kryo.SerializationCompatTestData.TestDataJava8;
 import com.esotericsoftware.kryo.io.ByteBufferInput;
 import com.esotericsoftware.kryo.io.ByteBufferOutput;
@@ -74,13 +76,18 @@ public class SerializationCompatTest extends KryoTestCase {
 
 	private static final String ENDIANNESS = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? "le" : "be";
 	private static final int JAVA_VERSION = Integer.parseInt(System.getProperty("java.version").split("\\.")[1]);
-	private static final int EXPECTED_DEFAULT_SERIALIZER_COUNT = JAVA_VERSION < 8 ? 35 : 53;
+	private static final int EXPECTED_DEFAULT_SERIALIZER_COUNT = JAVA_VERSION < 8 ? 51 : 73;
 	private static final List<TestDataDescription<?>> TEST_DATAS = new ArrayList<TestDataDescription<?>>();
 
 	static {
 		TEST_DATAS.add(new TestDataDescription<TestData>("3.0.0", new TestData(), 1865, 1882, 1973, 1990));
-		if (JAVA_VERSION >= 8)
+		if (JAVA_VERSION >= 8) {
 			TEST_DATAS.add(new TestDataDescription<TestDataJava8>("3.1.0", new TestDataJava8(), 2025, 2042, 2177, 2194));
+			TEST_DATAS.add(new TestDataDescription<TestDataCollectionWrappers>("4.0.1", new TestDataCollectionWrappers(), 2863, 2880,
+				3007, 3024));
+			TEST_DATAS.add(new TestDataDescription<TestDataConcurrentCollections>("4.0.1", new TestDataConcurrentCollections(), 2021,
+				2046, 2138, 2163));
+		}
 	};
 
 	private void setUp (boolean optimizedGenerics) throws Exception {
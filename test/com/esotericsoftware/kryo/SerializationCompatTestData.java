@@ -49,17 +49,26 @@ import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -113,6 +122,71 @@ class SerializationCompatTestData {
 		}
 	}
 
+	static class TestDataCollectionWrappers extends TestData {
+		private Collection<String> unmodifiableCollection;
+		private List<String> unmodifiableList;
+		private List<String> unmodifiableRandomAccessList;
+		private Set<String> unmodifiableSet;
+		private SortedSet<String> unmodifiableSortedSet;
+		private NavigableSet<String> unmodifiableNavigableSet;
+		private Map<String, Integer> unmodifiableMap;
+		private SortedMap<String, Integer> unmodifiableSortedMap;
+		private NavigableMap<String, Integer> unmodifiableNavigableMap;
+		private Collection<String> synchronizedCollection;
+		private List<String> synchronizedList;
+		private List<String> synchronizedRandomAccessList;
+		private Set<String> synchronizedSet;
+		private SortedSet<String> synchronizedSortedSet;
+		private NavigableSet<String> synchronizedNavigableSet;
+		private Map<String, Integer> synchronizedMap;
+		private SortedMap<String, Integer> synchronizedSortedMap;
+		private NavigableMap<String, Integer> synchronizedNavigableMap;
+		private List<String> arraysAsList;
+
+		TestDataCollectionWrappers () {
+			List<String> list = Arrays.asList("foo", "bar");
+			Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+			map.put("foo", 1);
+			map.put("bar", 2);
+
+			unmodifiableCollection = Collections.unmodifiableCollection(new ArrayList<String>(list));
+			unmodifiableList = Collections.unmodifiableList(new LinkedList<String>(list));
+			unmodifiableRandomAccessList = Collections.unmodifiableList(new ArrayList<String>(list));
+			unmodifiableSet = Collections.unmodifiableSet(new HashSet<String>(list));
+			unmodifiableSortedSet = Collections.unmodifiableSortedSet(new TreeSet<String>(list));
+			unmodifiableNavigableSet = Collections.unmodifiableNavigableSet(new TreeSet<String>(list));
+			unmodifiableMap = Collections.unmodifiableMap(new HashMap<String, Integer>(map));
+			unmodifiableSortedMap = Collections.unmodifiableSortedMap(new TreeMap<String, Integer>(map));
+			unmodifiableNavigableMap = Collections.unmodifiableNavigableMap(new TreeMap<String, Integer>(map));
+			synchronizedCollection = Collections.synchronizedCollection(new ArrayList<String>(list));
+			synchronizedList = Collections.synchronizedList(new LinkedList<String>(list));
+			synchronizedRandomAccessList = Collections.synchronizedList(new ArrayList<String>(list));
+			synchronizedSet = Collections.synchronizedSet(new HashSet<String>(list));
+			synchronizedSortedSet = Collections.synchronizedSortedSet(new TreeSet<String>(list));
+			synchronizedNavigableSet = Collections.synchronizedNavigableSet(new TreeSet<String>(list));
+			synchronizedMap = Collections.synchronizedMap(new HashMap<String, Integer>(map));
+			synchronizedSortedMap = Collections.synchronizedSortedMap(new TreeMap<String, Integer>(map));
+			synchronizedNavigableMap = Collections.synchronizedNavigableMap(new TreeMap<String, Integer>(map));
+			arraysAsList = list;
+		}
+	}
+
+	/** PriorityQueue and ConcurrentSkipListMap use natural ordering, because the default serializers do not keep a comparator. */
+	static class TestDataConcurrentCollections extends TestData {
+		private PriorityQueue<String> priorityQueue;
+		private CopyOnWriteArrayList<String> copyOnWriteArrayList;
+		private ConcurrentSkipListMap<String, Integer> concurrentSkipListMap;
+
+		TestDataConcurrentCollections () {
+			List<String> list = Arrays.asList("foo", "bar", "baz");
+			priorityQueue = new PriorityQueue<String>(list);
+			copyOnWriteArrayList = new CopyOnWriteArrayList<String>(list);
+			concurrentSkipListMap = new ConcurrentSkipListMap<String, Integer>();
+			concurrentSkipListMap.put("foo", 1);
+			concurrentSkipListMap.put("bar", 2);
+		}
+	}
+
 	public static class TestData implements Serializable {
 
 		private boolean _boolean;
@@ -24,6 +24,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Random;
 
+import org.junit.Assert;
+
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.io.UnsafeInput;
@@ -829,4 +831,77 @@ public class UnsafeInputOutputTest extends KryoTestCase {
 		final int actualValue = in.readVarInt(true);
 		assertEquals(value, actualValue);
 	}
+
+	public void testVarIntBoundaries () {
+		for (int value : varIntValues()) {
+			for (boolean optimizePositive : new boolean[] {true, false}) {
+				// The encoding must match Output, both with enough space for the fast path and at the end of the buffer.
+				Output expected = new Output(16);
+				int length = expected.writeVarInt(value, optimizePositive);
+				for (int capacity = length; capacity <= length + 8; capacity++) {
+					UnsafeOutput write = new UnsafeOutput(capacity);
+					assertEquals(length, write.writeVarInt(value, optimizePositive));
+					assertEquals(length, write.position());
+					Assert.assertArrayEquals(expected.toBytes(), write.toBytes());
+
+					byte[] bytes = new byte[capacity];
+					System.arraycopy(write.toBytes(), 0, bytes, 0, length);
+					UnsafeInput read = new UnsafeInput(bytes);
+					assertEquals(value, read.readVarInt(optimizePositive));
+					assertEquals(length, read.position());
+				}
+			}
+		}
+	}
+
+	public void testVarLongBoundaries () {
+		for (long value : varLongValues()) {
+			for (boolean optimizePositive : new boolean[] {true, false}) {
+				Output expected = new Output(16);
+				int length = expected.writeVarLong(value, optimizePositive);
+				for (int capacity = length; capacity <= length + 9; capacity++) {
+					UnsafeOutput write = new UnsafeOutput(capacity);
+					assertEquals(length, write.writeVarLong(value, optimizePositive));
+					assertEquals(length, write.position());
+					Assert.assertArrayEquals(expected.toBytes(), write.toBytes());
+
+					byte[] bytes = new byte[capacity];
+					System.arraycopy(write.toBytes(), 0, bytes, 0, length);
+					UnsafeInput read = new UnsafeInput(bytes);
+					assertEquals(value, read.readVarLong(optimizePositive));
+					assertEquals(length, read.position());
+				}
+			}
+		}
+	}
+
+	static int[] varIntValues () {
+		int[] values = new int[32 * 3 + 4];
+		int i = 0;
+		for (int bit = 0; bit < 32; bit++) {
+			values[i++] = 1 << bit;
+			values[i++] = (1 << bit) - 1;
+			values[i++] = -(1 << bit);
+		}
+		values[i++] = Integer.MAX_VALUE;
+		values[i++] = Integer.MIN_VALUE;
+		values[i++] = -1;
+		values[i++] = 0xAAAAAAAA;
+		return values;
+	}
+
+	static long[] varLongValues () {
+		long[] values = new long[64 * 3 + 4];
+		int i = 0;
+		for (int bit = 0; bit < 64; bit++) {
+			values[i++] = 1L << bit;
+			values[i++] = (1L << bit) - 1;
+			values[i++] = -(1L << bit);
+		}
+		values[i++] = Long.MAX_VALUE;
+		values[i++] = Long.MIN_VALUE;
+		values[i++] = -1;
+		values[i++] = 0xAAAAAAAAAAAAAAAAL;
+		return values;
+	}
 }
@@ -0,0 +1,168 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.pool;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+public class BufferPoolTest {
+	private static KryoFactory factory = new KryoFactory() {
+		@Override
+		public Kryo create () {
+			Kryo kryo = new Kryo();
+			kryo.register(ArrayList.class);
+			return kryo;
+		}
+	};
+
+	@Test
+	public void obtainShouldRoundUpToSizeClass () {
+		BufferPool pool = new BufferPool(1000, 100000, 4);
+		assertEquals(1024, pool.getMinimumSize());
+		assertEquals(131072, pool.getMaximumSize());
+		assertEquals(1024, pool.obtain(0).length);
+		assertEquals(1024, pool.obtain(1024).length);
+		assertEquals(2048, pool.obtain(1025).length);
+		assertEquals(200000, pool.obtain(200000).length);
+	}
+
+	@Test
+	public void freedArrayShouldBeReused () {
+		BufferPool pool = new BufferPool(1024, 8192, 4);
+		byte[] array = pool.obtain(3000);
+		pool.free(array);
+		assertEquals(1, pool.getArrayCount());
+		assertSame(array, pool.obtain(4096));
+		assertEquals(0, pool.getArrayCount());
+
+		// An array which is not a power of two serves the largest size class it covers.
+		byte[] odd = new byte[3000];
+		pool.free(odd);
+		assertNotSame(odd, pool.obtain(3000));
+		assertSame(odd, pool.obtain(2048));
+
+		// Arrays outside the size classes are not pooled.
+		pool.free(new byte[100]);
+		pool.free(new byte[10000]);
+		assertEquals(0, pool.getArrayCount());
+	}
+
+	@Test
+	public void maximumCountShouldBeRespected () {
+		BufferPool pool = new BufferPool(1024, 1024, 2);
+		pool.free(new byte[1024]);
+		pool.free(new byte[1024]);
+		pool.free(new byte[1024]);
+		assertEquals(2, pool.getArrayCount());
+		pool.clear();
+		assertEquals(0, pool.getArrayCount());
+	}
+
+	@Test
+	public void byteBuffers () {
+		BufferPool pool = new BufferPool(1024, 4096, 2);
+		ByteBuffer buffer = pool.obtainByteBuffer(2000);
+		assertTrue(buffer.isDirect());
+		assertEquals(2048, buffer.capacity());
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(1);
+		pool.free(buffer);
+		assertEquals(1, pool.getByteBufferCount());
+		ByteBuffer reused = pool.obtainByteBuffer(2048);
+		assertSame(buffer, reused);
+		assertEquals(0, reused.position());
+		assertEquals(2048, reused.limit());
+		assertEquals(ByteOrder.BIG_ENDIAN, reused.order());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void heapByteBufferShouldBeRejected () {
+		new BufferPool().free(ByteBuffer.allocate(4096));
+	}
+
+	@Test
+	public void runShouldProvideOutputAndInput () {
+		BufferPool bufferPool = new BufferPool(64, 1024, 4);
+		KryoPool pool = new KryoPool.Builder(factory).build();
+		final ArrayList<String> list = new ArrayList(Arrays.asList("a", "b", "c"));
+		final byte[] bytes = bufferPool.run(pool, new KryoBufferCallback<byte[]>() {
+			public byte[] execute (Kryo kryo, Output output, Input input) {
+				kryo.writeObject(output, list);
+				return output.toBytes();
+			}
+		});
+		ArrayList<String> result = bufferPool.run(pool, new KryoBufferCallback<ArrayList<String>>() {
+			public ArrayList<String> execute (Kryo kryo, Output output, Input input) {
+				input.setBuffer(bytes);
+				return kryo.readObject(input, ArrayList.class);
+			}
+		});
+		assertEquals(list, result);
+		// The Output and Input buffers are returned, the caller's array is not pooled.
+		assertEquals(2, bufferPool.getArrayCount());
+	}
+
+	@Test
+	public void runShouldGrowOutputFromPool () {
+		BufferPool bufferPool = new BufferPool(64, 1024, 4);
+		KryoPool pool = new KryoPool.Builder(factory).striped().build();
+		final byte[] data = new byte[700];
+		Arrays.fill(data, (byte)7);
+		final Output[] used = new Output[1];
+		byte[] bytes = bufferPool.run(pool, new KryoBufferCallback<byte[]>() {
+			public byte[] execute (Kryo kryo, Output output, Input input) {
+				used[0] = output;
+				output.writeBytes(data);
+				return output.toBytes();
+			}
+		});
+		assertArrayEquals(data, bytes);
+		byte[] grown = used[0].getBuffer();
+		assertEquals(1024, grown.length);
+		// The grown buffer is returned to the pool and reused by the next growth.
+		assertSame(grown, bufferPool.obtain(1024));
+	}
+
+	@Test
+	public void runShouldReturnBuffersOnException () {
+		BufferPool bufferPool = new BufferPool(64, 1024, 4);
+		KryoPool pool = new KryoPool.Builder(factory).build();
+		try {
+			bufferPool.run(pool, new KryoBufferCallback<String>() {
+				public String execute (Kryo kryo, Output output, Input input) {
+					throw new IllegalStateException();
+				}
+			});
+			fail("Exception should be rethrown.");
+		} catch (IllegalStateException expected) {
+		}
+		assertEquals(2, bufferPool.getArrayCount());
+	}
+}
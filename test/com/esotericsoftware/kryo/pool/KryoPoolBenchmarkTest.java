@@ -73,6 +73,14 @@ public class KryoPoolBenchmarkTest {
 		runWithPool(builder, RUN_CNT, ITER_CNT, true);
 	}
 
+	@Test
+	public void testWithStripedPool () throws Exception {
+		KryoPool.Builder builder = new KryoPool.Builder(factory).striped();
+		// Warm-up phase: Perform 100000 iterations
+		runWithPool(builder, 1, WARMUP_ITERATIONS, false);
+		runWithPool(builder, RUN_CNT, ITER_CNT, true);
+	}
+
 	private void run (String description, Runnable runnable, final int runCount, final int iterCount, boolean outputResults)
 		throws Exception {
 		long avgDur = 0;
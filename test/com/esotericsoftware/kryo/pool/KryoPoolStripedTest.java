@@ -0,0 +1,177 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.pool;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+public class KryoPoolStripedTest {
+	private static KryoFactory factory = new KryoFactory() {
+		@Override
+		public Kryo create () {
+			return new Kryo();
+		}
+	};
+
+	@Test
+	public void borrowShouldReturnReleasedInstance () {
+		KryoPoolMetrics metrics = new KryoPoolMetrics();
+		KryoPool pool = new KryoPool.Builder(factory).striped().metrics(metrics).build();
+		Kryo kryo = pool.borrow();
+		pool.release(kryo);
+		assertSame(kryo, pool.borrow());
+		assertEquals(2, metrics.getBorrows());
+		assertEquals(1, metrics.getHits());
+		assertEquals(1, metrics.getMisses());
+		assertEquals(1, metrics.getCreations());
+		assertEquals(1, metrics.getReleases());
+	}
+
+	@Test
+	public void releaseShouldFallBackToQueue () {
+		KryoPoolMetrics metrics = new KryoPoolMetrics();
+		KryoPoolStripedImpl pool = (KryoPoolStripedImpl)new KryoPool.Builder(factory).striped(4).metrics(metrics).build();
+		Kryo kryo1 = pool.borrow(), kryo2 = pool.borrow(), kryo3 = pool.borrow();
+		pool.release(kryo1);
+		pool.release(kryo2);
+		pool.release(kryo3);
+		assertEquals(3, pool.size());
+		Set<Kryo> borrowed = Collections.newSetFromMap(new IdentityHashMap());
+		borrowed.add(pool.borrow());
+		borrowed.add(pool.borrow());
+		borrowed.add(pool.borrow());
+		assertEquals(3, borrowed.size());
+		assertTrue(borrowed.contains(kryo1) && borrowed.contains(kryo2) && borrowed.contains(kryo3));
+		assertEquals(0, pool.size());
+		assertEquals(3, metrics.getCreations());
+		assertEquals(0, metrics.getEvictions());
+	}
+
+	@Test
+	public void maximumSizeShouldDropReleasedInstance () {
+		KryoPoolMetrics metrics = new KryoPoolMetrics();
+		KryoPoolStripedImpl pool = (KryoPoolStripedImpl)new KryoPool.Builder(factory).striped(1).maximumSize(2).metrics(metrics)
+			.build();
+		Kryo kryo1 = pool.borrow(), kryo2 = pool.borrow(), kryo3 = pool.borrow();
+		pool.release(kryo1);
+		pool.release(kryo2);
+		pool.release(kryo3);
+		assertEquals(2, pool.size());
+		assertEquals(1, metrics.getEvictions());
+		assertSame(kryo1, pool.borrow());
+		assertSame(kryo2, pool.borrow());
+		assertNotSame(kryo3, pool.borrow());
+	}
+
+	@Test
+	public void evictOldestShouldKeepReleasedInstance () {
+		KryoPoolMetrics metrics = new KryoPoolMetrics();
+		KryoPoolStripedImpl pool = (KryoPoolStripedImpl)new KryoPool.Builder(factory).striped(1).maximumSize(2).evictOldest()
+			.metrics(metrics).build();
+		Kryo kryo1 = pool.borrow(), kryo2 = pool.borrow(), kryo3 = pool.borrow();
+		pool.release(kryo1);
+		pool.release(kryo2);
+		pool.release(kryo3);
+		assertEquals(2, pool.size());
+		assertEquals(1, metrics.getEvictions());
+		assertSame(kryo1, pool.borrow());
+		assertSame(kryo3, pool.borrow());
+	}
+
+	@Test
+	public void softReferences () {
+		KryoPoolStripedImpl pool = (KryoPoolStripedImpl)new KryoPool.Builder(factory).striped(1).softReferences().build();
+		Kryo kryo1 = pool.borrow(), kryo2 = pool.borrow();
+		pool.release(kryo1);
+		pool.release(kryo2);
+		assertEquals(2, pool.size());
+		assertSame(kryo1, pool.borrow());
+		assertSame(kryo2, pool.borrow());
+		assertEquals(0, pool.size());
+	}
+
+	@Test
+	public void runShouldReleaseOnException () {
+		KryoPoolStripedImpl pool = (KryoPoolStripedImpl)new KryoPool.Builder(factory).striped().build();
+		try {
+			pool.run(new KryoCallback<String>() {
+				@Override
+				public String execute (Kryo kryo) {
+					throw new IllegalArgumentException();
+				}
+			});
+			fail("Exception should be rethrown.");
+		} catch (IllegalArgumentException expected) {
+		}
+		assertEquals(1, pool.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void maximumSizeRequiresStriped () {
+		new KryoPool.Builder(factory).maximumSize(10).build();
+	}
+
+	@Test
+	public void concurrentBorrowAndRelease () throws Exception {
+		final int threads = 16, iterations = 2000, maximumSize = 8;
+		final KryoPoolMetrics metrics = new KryoPoolMetrics();
+		final KryoPoolStripedImpl pool = (KryoPoolStripedImpl)new KryoPool.Builder(factory).striped().maximumSize(maximumSize)
+			.metrics(metrics).build();
+		final Set<Kryo> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap()));
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList());
+		final CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			new Thread() {
+				public void run () {
+					try {
+						start.await();
+						for (int ii = 0; ii < iterations; ii++) {
+							Kryo kryo = pool.borrow();
+							if (!inUse.add(kryo)) throw new AssertionError("Instance borrowed twice.");
+							inUse.remove(kryo);
+							pool.release(kryo);
+						}
+					} catch (Throwable ex) {
+						errors.add(ex);
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		done.await();
+		assertEquals(Collections.EMPTY_LIST, errors);
+		assertEquals(threads * iterations, metrics.getBorrows());
+		assertEquals(threads * iterations, metrics.getReleases());
+		assertTrue(pool.size() <= maximumSize);
+		assertEquals(metrics.getCreations(), pool.size() + metrics.getEvictions());
+	}
+}
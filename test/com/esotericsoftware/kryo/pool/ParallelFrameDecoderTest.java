@@ -0,0 +1,132 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.pool;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.FramedRecordReader;
+import com.esotericsoftware.kryo.io.FramedRecordWriter;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+public class ParallelFrameDecoderTest {
+	private static KryoFactory factory = new KryoFactory() {
+		@Override
+		public Kryo create () {
+			Kryo kryo = new Kryo();
+			kryo.setReferences(true);
+			kryo.register(ArrayList.class);
+			return kryo;
+		}
+	};
+
+	private ExecutorService executor;
+	private KryoPool pool;
+
+	@Before
+	public void before () {
+		executor = Executors.newFixedThreadPool(4);
+		pool = new KryoPool.Builder(factory).striped().build();
+	}
+
+	@After
+	public void after () {
+		executor.shutdownNow();
+	}
+
+	private ArrayList<Object> record (int index) {
+		ArrayList<Object> list = new ArrayList();
+		String value = "value" + index;
+		list.add(index);
+		list.add(value);
+		list.add(value);
+		return list;
+	}
+
+	private byte[] write (int count) {
+		Output output = new Output(1024, -1);
+		FramedRecordWriter writer = new FramedRecordWriter(factory.create(), output);
+		for (int i = 0; i < count; i++)
+			writer.write(i == 7 ? null : record(i));
+		return output.toBytes();
+	}
+
+	@Test
+	public void sequential () {
+		FramedRecordReader reader = new FramedRecordReader(new Input(write(100)));
+		Kryo kryo = factory.create();
+		for (int i = 0; i < 100; i++)
+			assertEquals(i == 7 ? null : record(i), reader.read(kryo));
+		assertTrue(reader.eof());
+		assertNull(reader.readFrame());
+	}
+
+	@Test
+	public void ordered () {
+		ParallelFrameDecoder decoder = new ParallelFrameDecoder(pool, executor, 16);
+		Iterator<Object> records = decoder.decode(new FramedRecordReader(new Input(write(5000))), true);
+		for (int i = 0; i < 5000; i++)
+			assertEquals(i == 7 ? null : record(i), records.next());
+		assertFalse(records.hasNext());
+	}
+
+	@Test
+	public void unordered () {
+		ParallelFrameDecoder decoder = new ParallelFrameDecoder(pool, executor, 16);
+		Iterator<Object> records = decoder.decode(new FramedRecordReader(new Input(write(5000))), false);
+		ArrayList<Integer> indices = new ArrayList();
+		while (records.hasNext()) {
+			ArrayList record = (ArrayList)records.next();
+			indices.add(record == null ? 7 : (Integer)record.get(0));
+		}
+		Collections.sort(indices);
+		assertEquals(5000, indices.size());
+		for (int i = 0; i < 5000; i++)
+			assertEquals(i, (int)indices.get(i));
+	}
+
+	@Test
+	public void decodeError () {
+		Output output = new Output(64);
+		FramedRecordWriter writer = new FramedRecordWriter(factory.create(), output);
+		writer.write(record(0));
+		writer.writeFrame(new byte[] {127, 1, 2}, 0, 3);
+		ParallelFrameDecoder decoder = new ParallelFrameDecoder(pool, executor);
+		Iterator<Object> records = decoder.decode(new FramedRecordReader(new Input(output.toBytes())), true);
+		assertEquals(record(0), records.next());
+		try {
+			records.next();
+			fail();
+		} catch (KryoException expected) {
+		}
+	}
+}
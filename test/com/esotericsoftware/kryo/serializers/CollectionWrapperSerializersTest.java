@@ -0,0 +1,170 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.esotericsoftware.kryo.KryoTestCase;
+import com.esotericsoftware.kryo.serializers.CollectionWrapperSerializers.ImmutableCollectionSerializer;
+import com.esotericsoftware.kryo.serializers.CollectionWrapperSerializers.ImmutableMapSerializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+public class CollectionWrapperSerializersTest extends KryoTestCase {
+	{
+		supportsCopy = true;
+	}
+
+	public void testUnmodifiable () {
+		roundTrip(11, 11, register(Collections.unmodifiableCollection(list("1", "2", "3"))));
+		roundTrip(11, 11, register(Collections.unmodifiableList(new LinkedList(list("1", "2", "3")))));
+		roundTrip(11, 11, register(Collections.unmodifiableList(list("1", "2", "3"))));
+		roundTrip(11, 11, register(Collections.unmodifiableSet(new HashSet(list("1", "2", "3")))));
+		roundTrip(12, 12, register(Collections.unmodifiableSortedSet(new TreeSet(list("1", "2", "3")))));
+		roundTrip(12, 12, register(Collections.unmodifiableNavigableSet(new TreeSet(list("1", "2", "3")))));
+		roundTrip(12, 18, register(Collections.unmodifiableMap(map())));
+		roundTrip(13, 19, register(Collections.unmodifiableSortedMap(new TreeMap(map()))));
+		roundTrip(13, 19, register(Collections.unmodifiableNavigableMap(new TreeMap(map()))));
+	}
+
+	public void testSynchronized () {
+		roundTrip(11, 11, register(Collections.synchronizedCollection(list("1", "2", "3"))));
+		roundTrip(11, 11, register(Collections.synchronizedList(new LinkedList(list("1", "2", "3")))));
+		roundTrip(11, 11, register(Collections.synchronizedList(list("1", "2", "3"))));
+		roundTrip(11, 11, register(Collections.synchronizedSet(new HashSet(list("1", "2", "3")))));
+		roundTrip(12, 12, register(Collections.synchronizedSortedSet(new TreeSet(list("1", "2", "3")))));
+		roundTrip(12, 12, register(Collections.synchronizedNavigableSet(new TreeSet(list("1", "2", "3")))));
+		roundTrip(12, 18, register(Collections.synchronizedMap(map())));
+		roundTrip(13, 19, register(Collections.synchronizedSortedMap(new TreeMap(map()))));
+		roundTrip(13, 19, register(Collections.synchronizedNavigableMap(new TreeMap(map()))));
+	}
+
+	public void testArraysAsList () {
+		roundTrip(11, 11, register(Arrays.asList("1", "2", "3")));
+		roundTrip(2, 2, Arrays.asList());
+
+		List list = Arrays.asList("1", "2", "3");
+		List read = writeAndRead(list);
+		read.set(0, "4");
+		assertEquals(list("4", "2", "3"), read);
+	}
+
+	public void testComparator () {
+		kryo.register(ReverseComparator.class);
+		TreeSet elements = new TreeSet(new ReverseComparator());
+		elements.addAll(list("1", "2", "3"));
+		SortedSet read = roundTrip(12, 12, register(Collections.unmodifiableSortedSet(elements)));
+		assertEquals(ReverseComparator.class, read.comparator().getClass());
+		assertEquals("3", read.first());
+	}
+
+	public void testReferences () {
+		kryo.setReferences(true);
+		List list = register(Collections.synchronizedList(new ArrayList()));
+		list.add("1");
+		list.add(list);
+		List read = writeAndRead(list);
+		assertEquals(2, read.size());
+		assertSame(read, read.get(1));
+
+		kryo.register(ArrayList.class);
+		Map map = register(Collections.unmodifiableMap(new HashMap()));
+		List contents = list("1", map);
+		List readContents = writeAndRead(register(Arrays.asList(map, contents, map)));
+		assertSame(readContents.get(0), readContents.get(2));
+		assertSame(readContents.get(0), ((List)readContents.get(1)).get(1));
+	}
+
+	public void testCopy () {
+		List list = register(Collections.synchronizedList(list("1", "2")));
+		List copy = kryo.copy(list);
+		assertNotSame(list, copy);
+		assertEquals(list.getClass(), copy.getClass());
+		copy.add("3");
+		assertEquals(2, list.size());
+	}
+
+	public void testImmutable () throws Exception {
+		kryo.setRegistrationRequired(false);
+		Method listOf;
+		try {
+			listOf = List.class.getMethod("of", Object[].class);
+		} catch (NoSuchMethodException ex) {
+			return; // java < 9
+		}
+		Method setOf = Set.class.getMethod("of", Object[].class);
+		Method mapOf = Map.class.getMethod("of", Object.class, Object.class, Object.class, Object.class);
+		for (Object object : new Object[] {listOf.invoke(null, (Object)new Object[0]), listOf.invoke(null, (Object)new Object[] {"1"}),
+			listOf.invoke(null, (Object)new Object[] {"1", "2", "3"}), setOf.invoke(null, (Object)new Object[] {"1", "2", "3"}),
+			mapOf.invoke(null, "1", 1, "2", 2)}) {
+			assertTrue(kryo.getSerializer(object.getClass()) instanceof ImmutableCollectionSerializer
+				|| kryo.getSerializer(object.getClass()) instanceof ImmutableMapSerializer);
+			Object read = writeAndRead(object);
+			assertEquals(object, read);
+			assertEquals(object.getClass(), read.getClass());
+		}
+	}
+
+	protected void doAssertEquals (Object object1, Object object2) {
+		assertEquals(object1.getClass(), object2.getClass());
+		if (object1 instanceof List || object1 instanceof Set || object1 instanceof Map)
+			super.doAssertEquals(object1, object2);
+		else
+			super.doAssertEquals(new ArrayList((Collection)object1), new ArrayList((Collection)object2));
+	}
+
+	private <T> T register (T object) {
+		kryo.register(object.getClass());
+		return object;
+	}
+
+	private <T> T writeAndRead (T object) {
+		Output output = new Output(1024, -1);
+		kryo.writeClassAndObject(output, object);
+		return (T)kryo.readClassAndObject(new Input(output.toBytes()));
+	}
+
+	static private Map map () {
+		Map map = new HashMap();
+		map.put("1", 1);
+		map.put("2", 2);
+		return map;
+	}
+
+	static public class ReverseComparator implements Comparator<String> {
+		public int compare (String o1, String o2) {
+			return o2.compareTo(o1);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import static com.esotericsoftware.kryo.serializers.PackedArraySerializers.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.esotericsoftware.kryo.KryoTestCase;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.PackedArraySerializers.PackedIntArraySerializer;
+import com.esotericsoftware.kryo.serializers.PackedArraySerializers.PackedLongArraySerializer;
+
+public class PackedArraySerializersTest extends KryoTestCase {
+	{
+		supportsCopy = true;
+	}
+
+	protected void setUp () throws Exception {
+		super.setUp();
+		kryo.register(int[].class, new PackedIntArraySerializer());
+		kryo.register(long[].class, new PackedLongArraySerializer());
+	}
+
+	private long[] roundTrip (long[] array) {
+		Output output = new Output(1024, -1);
+		kryo.writeObjectOrNull(output, array, long[].class);
+		long[] result = kryo.readObjectOrNull(new Input(output.toBytes()), long[].class);
+		assertTrue(Arrays.equals(array, result));
+		return result;
+	}
+
+	private int[] roundTrip (int[] array) {
+		Output output = new Output(1024, -1);
+		kryo.writeObjectOrNull(output, array, int[].class);
+		int[] result = kryo.readObjectOrNull(new Input(output.toBytes()), int[].class);
+		assertTrue(Arrays.equals(array, result));
+		return result;
+	}
+
+	private int size (long[] array) {
+		Output output = new Output(1024, -1);
+		kryo.writeObject(output, array);
+		return output.position();
+	}
+
+	public void testSmall () {
+		roundTrip(2, 2, new long[0]);
+		roundTrip(4, 4, new long[] {-1});
+		roundTrip(6, 6, new int[] {1, 2, 3, 4});
+		roundTrip(5, 5, new int[] {7, 7, 7, 7, 7, 7, 7, 7, 7, 7});
+		roundTrip(8, 8, new int[] {1, 2, -100, 4});
+	}
+
+	public void testEncodings () {
+		long[] timestamps = new long[1000];
+		for (int i = 0; i < timestamps.length; i++)
+			timestamps[i] = 1500000000000L + i * 1000L;
+		assertEquals(DELTA_PACKED, getEncoding(timestamps));
+		roundTrip(timestamps);
+		assertTrue(size(timestamps) < 20);
+
+		Random random = new Random(42);
+		long[] jittered = timestamps.clone();
+		for (int i = 0; i < jittered.length; i++)
+			jittered[i] += random.nextInt(16);
+		assertEquals(DELTA_PACKED, getEncoding(jittered));
+		roundTrip(jittered);
+		// Plain varints would use 6 bytes per timestamp.
+		assertTrue(size(jittered) * 8 < jittered.length * 6);
+
+		long[] ids = new long[1000];
+		for (int i = 1; i < ids.length; i++)
+			ids[i] = ids[i - 1] + 1 + (i % 100 == 0 ? 100000 : random.nextInt(3));
+		assertEquals(DELTA, getEncoding(ids));
+		roundTrip(ids);
+
+		long[] narrow = new long[1000];
+		for (int i = 0; i < narrow.length; i++)
+			narrow[i] = 1000000 + random.nextInt(8);
+		assertEquals(FRAME_OF_REFERENCE, getEncoding(narrow));
+		roundTrip(narrow);
+
+		int[] runs = new int[1000];
+		for (int i = 0; i < runs.length; i++)
+			runs[i] = i < 500 ? 1000000 : -1000000;
+		assertEquals(RUN_LENGTH, getEncoding(runs));
+		roundTrip(runs);
+
+		long[] randoms = new long[1000];
+		for (int i = 0; i < randoms.length; i++)
+			randoms[i] = i == 500 ? Long.MAX_VALUE : random.nextInt(100) - 50;
+		assertEquals(PLAIN, getEncoding(randoms));
+		roundTrip(randoms);
+	}
+
+	public void testExtremes () {
+		roundTrip((long[])null);
+		roundTrip((int[])null);
+		roundTrip(new long[] {Long.MIN_VALUE, Long.MAX_VALUE, 0, Long.MIN_VALUE, Long.MAX_VALUE});
+		roundTrip(new long[] {Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE});
+		roundTrip(new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE, 0, Integer.MIN_VALUE});
+
+		Random random = new Random(7);
+		for (int n = 0; n < 200; n++) {
+			long[] longs = new long[random.nextInt(50) + 1];
+			int[] ints = new int[longs.length];
+			long base = random.nextLong();
+			for (int i = 0; i < longs.length; i++) {
+				switch (n % 4) {
+				case 0:
+					longs[i] = random.nextLong();
+					break;
+				case 1:
+					longs[i] = base += random.nextInt(1 << (n % 40 / 2));
+					break;
+				case 2:
+					longs[i] = base + random.nextInt(1 << (n % 60 / 2));
+					break;
+				default:
+					longs[i] = i % 7 == 0 ? random.nextLong() : base;
+				}
+				ints[i] = (int)longs[i];
+			}
+			roundTrip(longs);
+			roundTrip(ints);
+		}
+	}
+}
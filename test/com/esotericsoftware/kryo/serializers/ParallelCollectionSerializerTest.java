@@ -0,0 +1,173 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.KryoTestCase;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoFactory;
+import com.esotericsoftware.kryo.pool.KryoPool;
+
+public class ParallelCollectionSerializerTest extends KryoTestCase {
+	private ExecutorService executor;
+	private KryoPool pool;
+
+	protected void setUp () throws Exception {
+		super.setUp();
+		register(kryo);
+		executor = Executors.newFixedThreadPool(4);
+		pool = new KryoPool.Builder(new KryoFactory() {
+			public Kryo create () {
+				Kryo kryo = new Kryo();
+				kryo.setReferences(false);
+				kryo.setRegistrationRequired(true);
+				register(kryo);
+				return kryo;
+			}
+		}).striped().build();
+	}
+
+	protected void tearDown () throws Exception {
+		executor.shutdownNow();
+		super.tearDown();
+	}
+
+	void register (Kryo kryo) {
+		kryo.register(ArrayList.class);
+		kryo.register(LinkedList.class);
+		kryo.register(Object[].class);
+		kryo.register(String[].class);
+	}
+
+	private <T> T roundTrip (T object, Class<T> type) {
+		Output output = new Output(1024, -1);
+		kryo.writeObject(output, object);
+		return kryo.readObject(new Input(output.toBytes()), type);
+	}
+
+	private ArrayList<Object> elements (int count) {
+		ArrayList<Object> list = new ArrayList();
+		for (int i = 0; i < count; i++)
+			list.add(i % 3 == 0 ? "value" + i : i % 3 == 1 ? null : (Object)i);
+		return list;
+	}
+
+	public void testCollection () {
+		ParallelCollectionSerializer serializer = new ParallelCollectionSerializer(pool, executor);
+		serializer.setPartitionSize(100);
+		kryo.register(ArrayList.class, serializer);
+		kryo.register(LinkedList.class, serializer);
+
+		for (int count : new int[] {0, 1, 100, 101, 1000, 12345}) {
+			ArrayList<Object> list = elements(count);
+			assertEquals(list, roundTrip(list, ArrayList.class));
+			LinkedList<Object> linked = new LinkedList(list);
+			assertEquals(linked, roundTrip(linked, LinkedList.class));
+		}
+	}
+
+	public void testReadWithDifferentPartitionSize () {
+		ParallelCollectionSerializer serializer = new ParallelCollectionSerializer(pool, executor);
+		serializer.setPartitionSize(7);
+		kryo.register(ArrayList.class, serializer);
+		ArrayList<Object> list = elements(1000);
+		Output output = new Output(1024, -1);
+		kryo.writeObject(output, list);
+
+		serializer.setPartitionSize(1000);
+		assertEquals(list, kryo.readObject(new Input(output.toBytes()), ArrayList.class));
+
+		// The parallel format differs from CollectionSerializer only in the partition headers.
+		kryo.register(ArrayList.class, new CollectionSerializer());
+		Output sequential = new Output(1024, -1);
+		kryo.writeObject(sequential, list);
+		assertTrue(output.total() > sequential.total());
+	}
+
+	public void testObjectArray () {
+		ParallelObjectArraySerializer serializer = new ParallelObjectArraySerializer(pool, executor);
+		serializer.setPartitionSize(64);
+		kryo.register(Object[].class, serializer);
+		kryo.register(String[].class, serializer);
+
+		Object[] array = elements(1000).toArray();
+		Object[] result = roundTrip(array, Object[].class);
+		assertEquals(Object[].class, result.getClass());
+		assertEquals(elements(1000), Arrays.asList(result));
+
+		String[] strings = new String[500];
+		for (int i = 0; i < strings.length; i++)
+			strings[i] = "s" + i;
+		String[] stringsResult = roundTrip(strings, String[].class);
+		assertEquals(String[].class, stringsResult.getClass());
+		assertTrue(Arrays.equals(strings, stringsResult));
+
+		Output output = new Output(16);
+		kryo.writeObjectOrNull(output, null, Object[].class);
+		assertNull(kryo.readObjectOrNull(new Input(output.toBytes()), Object[].class));
+	}
+
+	public void testNested () {
+		// With one thread, the outer partitions occupy the executor while the inner collections wait for it.
+		final ExecutorService single = Executors.newFixedThreadPool(1);
+		try {
+			final KryoPool[] nestedPool = new KryoPool[1];
+			nestedPool[0] = new KryoPool.Builder(new KryoFactory() {
+				public Kryo create () {
+					Kryo kryo = new Kryo();
+					kryo.setReferences(false);
+					kryo.setRegistrationRequired(true);
+					ParallelCollectionSerializer serializer = new ParallelCollectionSerializer(nestedPool[0], single);
+					serializer.setPartitionSize(3);
+					kryo.register(ArrayList.class, serializer);
+					return kryo;
+				}
+			}).build();
+			ParallelCollectionSerializer serializer = new ParallelCollectionSerializer(nestedPool[0], single);
+			serializer.setPartitionSize(2);
+			kryo.register(ArrayList.class, serializer);
+
+			ArrayList<Object> list = new ArrayList();
+			for (int i = 0; i < 9; i++)
+				list.add(elements(i * 4));
+			assertEquals(list, roundTrip(list, ArrayList.class));
+		} finally {
+			single.shutdownNow();
+		}
+	}
+
+	public void testReferencesRequireDisabled () {
+		kryo.setReferences(true);
+		kryo.register(ArrayList.class, new ParallelCollectionSerializer(pool, executor));
+		try {
+			kryo.writeObject(new Output(1024), elements(10));
+			fail();
+		} catch (KryoException expected) {
+		}
+	}
+}
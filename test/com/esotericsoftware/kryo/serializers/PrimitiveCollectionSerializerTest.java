@@ -0,0 +1,113 @@
+/* Copyright (c) 2008, Nathan Sweet
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following
+ * conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * - Neither the name of Esoteric Software nor the names of its contributors may be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING,
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.esotericsoftware.kryo.serializers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.esotericsoftware.kryo.KryoTestCase;
+import com.esotericsoftware.kryo.io.Output;
+
+public class PrimitiveCollectionSerializerTest extends KryoTestCase {
+	{
+		supportsCopy = true;
+	}
+
+	protected void setUp () throws Exception {
+		super.setUp();
+		kryo.getFieldSerializerConfig().setOptimizedGenerics(true);
+		kryo.addDefaultSerializer(Collection.class, PrimitiveCollectionSerializer.class);
+		kryo.register(ArrayList.class);
+		kryo.register(HashSet.class);
+		kryo.register(Numbers.class);
+	}
+
+	public void testPacked () {
+		Numbers numbers = new Numbers();
+		numbers.ints = new ArrayList(Arrays.asList(1, -1, 300, Integer.MAX_VALUE, Integer.MIN_VALUE));
+		numbers.longs = new ArrayList(Arrays.asList(1L, null, Long.MIN_VALUE, null));
+		numbers.doubles = new HashSet(Arrays.asList(1.5d, -2d));
+		numbers.shorts = new ArrayList(Arrays.asList((short)1, (short)-300));
+		numbers.chars = new ArrayList(Arrays.asList('a', 'z'));
+		numbers.booleans = new ArrayList(Arrays.asList(true, null, false));
+		numbers.strings = new ArrayList(Arrays.asList("a", null, "b"));
+		numbers.objects = new ArrayList(Arrays.asList(1, 2L));
+		roundTrip(84, 106, numbers);
+
+		roundTrip(9, 9, new Numbers());
+
+		numbers = new Numbers();
+		numbers.ints = new ArrayList();
+		numbers.longs = new ArrayList(Arrays.asList(null, null));
+		roundTrip(13, 13, numbers);
+	}
+
+	public void testSmallerThanCollectionSerializer () {
+		Numbers numbers = new Numbers();
+		numbers.ints = new ArrayList();
+		for (int i = 0; i < 1000; i++)
+			numbers.ints.add(i % 10 == 0 ? null : i);
+
+		Output packed = new Output(4096, -1);
+		kryo.writeObject(packed, numbers);
+
+		kryo.register(ArrayList.class, new CollectionSerializer());
+		Output unpacked = new Output(4096, -1);
+		kryo.writeObject(unpacked, numbers);
+
+		assertTrue(packed.total() + 800 < unpacked.total());
+	}
+
+	public void testElementClassDisablesPacking () {
+		PrimitiveCollectionSerializer serializer = new PrimitiveCollectionSerializer();
+		serializer.setElementClass(Integer.class, new DefaultSerializers.IntSerializer());
+		kryo.register(ArrayList.class, serializer);
+		Numbers numbers = new Numbers();
+		numbers.ints = new ArrayList(Arrays.asList(1, null, 3));
+		roundTrip(15, 21, numbers);
+	}
+
+	static public class Numbers {
+		public List<Integer> ints;
+		public ArrayList<Long> longs;
+		public Set<Double> doubles;
+		public List<Short> shorts;
+		public List<Character> chars;
+		public List<Boolean> booleans;
+		public List<String> strings;
+		public List objects;
+
+		public boolean equals (Object obj) {
+			if (!(obj instanceof Numbers)) return false;
+			Numbers other = (Numbers)obj;
+			return equals(ints, other.ints) && equals(longs, other.longs) && equals(doubles, other.doubles)
+				&& equals(shorts, other.shorts) && equals(chars, other.chars) && equals(booleans, other.booleans)
+				&& equals(strings, other.strings) && equals(objects, other.objects);
+		}
+
+		static private boolean equals (Object a, Object b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+}